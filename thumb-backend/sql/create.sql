@@ -32,3 +32,4 @@ create table if not exists thumb
     createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间'
 );
 create unique index idx_userId_blogId on thumb (userId, blogId);
+create index idx_blogId on thumb (blogId);
@@ -1,12 +1,22 @@
 package com.yxc.thumbbackend.config;
 
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnels;
+import com.yxc.thumbbackend.manager.cache.CuckooFilter;
+import com.yxc.thumbbackend.manager.cache.InMemoryMembershipChangeFeed;
+import com.yxc.thumbbackend.manager.cache.MembershipChangeFeed;
+import com.yxc.thumbbackend.manager.cache.MembershipFilter;
+import com.yxc.thumbbackend.manager.cache.MirroredMembershipFilter;
+import com.yxc.thumbbackend.manager.cache.ScalableBloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.UUID;
 
 /**
  * 布隆过滤器配置类
@@ -17,15 +27,79 @@ import java.nio.charset.Charset;
 public class BloomFilterConfig {
 
     /**
-     * 创建点赞记录布隆过滤器
-     * 预期插入100万条记录，误判率0.01%
+     * 第一个子过滤器的容量,数据量超过后自动扩容
      */
+    @Value("${thumb.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    /**
+     * 整体误判率上限,两种过滤器都按子过滤器逐级收紧误判率,扩容后整体误判率仍不超过该值
+     */
+    @Value("${thumb.bloom.fpp:0.0001}")
+    private double fpp;
+
+    /**
+     * 过滤器类型: cuckoo(布谷鸟过滤器,支持删除) / bloom(布隆过滤器,不支持删除)
+     */
+    @Value("${thumb.bloom.type:cuckoo}")
+    private String type;
+
+    /**
+     * 删除去重窗口(秒): 取消点赞和消费取消点赞消息都会删除,窗口内同一组合只删除一次
+     */
+    @Value("${thumb.bloom.remove-dedup-seconds:600}")
+    private long removeDedupSeconds;
+
+    /**
+     * 创建点赞记录过滤器
+     * 可扩容,点赞记录超过预期数量后追加更大的子过滤器
+     * 默认使用布谷鸟过滤器,取消点赞时可以删除,避免频繁点赞/取消的用户让过滤器逐渐失效
+     * 元素直接是(用户ID, 博客ID),不拼接字符串,哈希结果与节点的默认字符集无关
+     */
+    @Bean
+    public MembershipFilter thumbBloomFilter(MeterRegistry meterRegistry) {
+        MembershipFilter filter = "bloom".equalsIgnoreCase(type)
+                ? new ScalableBloomFilter(expectedInsertions, fpp)
+                : new CuckooFilter(expectedInsertions, fpp);
+        log.info("点赞记录过滤器类型: {}", filter.getClass().getSimpleName());
+        Gauge.builder("thumb.bloom.insertions", filter, MembershipFilter::approximateElementCount)
+                .description("Elements inserted into the thumb Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("thumb.bloom.fpp.estimated", filter, MembershipFilter::expectedFpp)
+                .description("Estimated false positive probability of the thumb Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("thumb.bloom.stages", filter, MembershipFilter::stageCount)
+                .description("Sub-filters in the thumb Bloom filter chain")
+                .register(meterRegistry);
+        return filter;
+    }
+
+    /**
+     * 点赞记录过滤器的本地镜像: 查询只访问本地过滤器,添加/删除通过变更流同步到所有节点
+     */
+    @Bean
+    public MirroredMembershipFilter thumbFilterMirror(MembershipFilter thumbBloomFilter,
+                                                      MembershipChangeFeed membershipChangeFeed,
+                                                      MeterRegistry meterRegistry) {
+        MirroredMembershipFilter mirror = new MirroredMembershipFilter(thumbBloomFilter, membershipChangeFeed,
+                UUID.randomUUID().toString(), Duration.ofSeconds(removeDedupSeconds));
+        FunctionCounter.builder("thumb.bloom.feed.applied", mirror, MirroredMembershipFilter::applied)
+                .description("Filter changes from other nodes applied to the local mirror")
+                .register(meterRegistry);
+        FunctionCounter.builder("thumb.bloom.feed.gaps", mirror, MirroredMembershipFilter::gaps)
+                .description("Times the change feed was trimmed past the local position")
+                .register(meterRegistry);
+        Gauge.builder("thumb.bloom.feed.lag", mirror, MirroredMembershipFilter::lagMillis)
+                .description("Milliseconds between a filter change and its application on this node")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return mirror;
+    }
+
+    // 单机或测试环境使用内存版变更流
     @Bean
-    public BloomFilter<String> thumbBloomFilter() {
-        return BloomFilter.create(
-                Funnels.stringFunnel(Charset.defaultCharset()),
-                1000000, // 预期插入的数据量
-                0.0001   // 误判率
-        );
+    @ConditionalOnProperty(name = "thumb.bloom.feed", havingValue = "memory")
+    public MembershipChangeFeed inMemoryMembershipChangeFeed() {
+        return new InMemoryMembershipChangeFeed(100_000);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.yxc.thumbbackend.config;
+
+import com.yxc.thumbbackend.manager.cache.MembershipChangeBatch;
+import com.yxc.thumbbackend.manager.cache.MirroredMembershipFilter;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 在后台虚拟线程中跟随点赞过滤器变更流,把其他节点的添加/删除应用到本地过滤器
+ * 变更流被裁剪导致变更丢失时,从数据库补齐最近的点赞记录
+ */
+@Component
+@Slf4j
+public class BloomFilterFeedFollower {
+
+    @Resource
+    private MirroredMembershipFilter thumbFilterMirror;
+
+    @Resource
+    private BloomFilterSnapshotManager bloomFilterSnapshotManager;
+
+    /**
+     * 每次读取的最大变更数量
+     */
+    @Value("${thumb.bloom.feed-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 没有新变更时每次读取的最长等待时间(毫秒),也是跟随延迟的上限
+     */
+    @Value("${thumb.bloom.feed-block:1000}")
+    private long blockMillis;
+
+    private volatile boolean running;
+
+    private Thread followThread;
+
+    /**
+     * 开始跟随,在本地过滤器加载完成后调用
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        followThread = Thread.ofVirtual().name("bloom-filter-feed").start(this::follow);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (followThread != null) {
+            followThread.interrupt();
+        }
+    }
+
+    private void follow() {
+        Duration block = Duration.ofMillis(blockMillis);
+        while (running) {
+            try {
+                MembershipChangeBatch batch = thumbFilterMirror.poll(batchSize, block);
+                if (batch.gap()) {
+                    log.warn("点赞过滤器变更流已被裁剪,部分变更丢失,从数据库补齐");
+                    bloomFilterSnapshotManager.catchUp();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("跟随点赞过滤器变更流失败", e);
+                try {
+                    Thread.sleep(block);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
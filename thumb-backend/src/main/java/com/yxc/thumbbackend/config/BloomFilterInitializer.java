@@ -1,30 +1,77 @@
 package com.yxc.thumbbackend.config;
 
-import com.yxc.thumbbackend.service.ThumbService;
+import com.yxc.thumbbackend.manager.cache.MirroredMembershipFilter;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
 /**
  * 布隆过滤器初始化器
- * 在应用启动完成后初始化布隆过滤器
+ * 在应用启动完成后初始化布隆过滤器,优先从本地快照恢复
+ * 在后台虚拟线程中加载,不阻塞启动; 加载完成前 readiness 探针返回 OUT_OF_SERVICE,hasThumb 不使用布隆过滤器
+ * 加载失败时按指数退避重试
  */
 @Component
 @Slf4j
 public class BloomFilterInitializer implements ApplicationRunner {
 
     @Resource
-    private ThumbService thumbService;
+    private BloomFilterSnapshotManager bloomFilterSnapshotManager;
+
+    @Resource
+    private MirroredMembershipFilter thumbFilterMirror;
+
+    @Resource
+    private BloomFilterFeedFollower bloomFilterFeedFollower;
+
+    @Resource
+    private BloomFilterLoadProgress bloomFilterLoadProgress;
+
+    /**
+     * 加载失败后第一次重试的等待时间(毫秒),之后每次翻倍
+     */
+    @Value("${thumb.bloom.load.retry-initial:1000}")
+    private long retryInitialMillis;
+
+    /**
+     * 加载失败后重试等待时间的上限(毫秒)
+     */
+    @Value("${thumb.bloom.load.retry-max:60000}")
+    private long retryMaxMillis;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        try {
-            thumbService.initBloomFilter();
-            log.info("点赞记录布隆过滤器初始化完成");
-        } catch (Exception e) {
-            log.error("初始化点赞记录布隆过滤器失败", e);
+        Thread.ofVirtual().name("bloom-filter-loader").start(this::loadWithRetry);
+    }
+
+    /**
+     * 加载失败(例如启动时数据库短暂不可用)时按指数退避重试,直到成功
+     * 失败期间健康检查返回 DOWN 并带上失败原因
+     */
+    private void loadWithRetry() {
+        long backoff = retryInitialMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // 先记录变更流位置再加载,加载期间其他节点的变更在加载完成后回放
+                thumbFilterMirror.markPosition();
+                bloomFilterSnapshotManager.load();
+                bloomFilterFeedFollower.start();
+                log.info("点赞记录布隆过滤器初始化完成");
+                return;
+            } catch (Exception e) {
+                bloomFilterLoadProgress.markFailed(e);
+                log.error("初始化点赞记录布隆过滤器失败(第 {} 次), {}ms 后重试", attempt, backoff, e);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, retryMaxMillis);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.yxc.thumbbackend.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 布隆过滤器加载进度
+ * 加载完成前布隆过滤器会把已点赞的记录判断为不存在,所以加载完成前健康检查返回 OUT_OF_SERVICE,
+ * 配合 readiness 分组让负载均衡在加载完成后再转发流量
+ */
+@Component("bloomFilter")
+public class BloomFilterLoadProgress implements HealthIndicator {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final LongAdder loadedRows = new LongAdder();
+
+    private final LongAdder scannedIds = new LongAdder();
+
+    private volatile long idSpan;
+
+    private volatile boolean ready;
+
+    // 最近一次加载失败的原因,加载成功后清空
+    private volatile String lastError;
+
+    private volatile int failedAttempts;
+
+    @PostConstruct
+    public void init() {
+        FunctionCounter.builder("thumb.bloom.load.rows", loadedRows, LongAdder::sum)
+                .description("Thumb rows loaded into the Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("thumb.bloom.load.progress", this, BloomFilterLoadProgress::progress)
+                .description("Progress of the current Bloom filter load, from 0 to 1")
+                .register(meterRegistry);
+        Gauge.builder("thumb.bloom.ready", this, p -> p.ready ? 1 : 0)
+                .description("Whether the Bloom filter has finished its initial load")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 开始一次加载
+     * @param idSpan 本次需要扫描的 id 范围大小
+     */
+    public void start(long idSpan) {
+        scannedIds.reset();
+        this.idSpan = idSpan;
+    }
+
+    /**
+     * 记录加载了一条记录
+     * @param ids 距离上一条记录扫过的 id 数量
+     */
+    public void advance(long ids) {
+        loadedRows.increment();
+        scannedIds.add(ids);
+    }
+
+    /**
+     * 记录一段没有数据的 id 范围,例如分片末尾被删除的记录
+     */
+    public void skip(long ids) {
+        scannedIds.add(ids);
+    }
+
+    public void markReady() {
+        ready = true;
+        lastError = null;
+    }
+
+    /**
+     * 记录一次加载失败,加载器会在退避后重试
+     */
+    public void markFailed(Throwable e) {
+        failedAttempts++;
+        lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /**
+     * 初始加载是否完成,完成前不能根据布隆过滤器判断"一定不存在"
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public double progress() {
+        long span = idSpan;
+        return span <= 0 ? 1 : Math.min(1, (double) scannedIds.sum() / span);
+    }
+
+    @Override
+    public Health health() {
+        // 加载失败时返回 DOWN 并带上失败原因,与正常加载中(OUT_OF_SERVICE)区分
+        String error = lastError;
+        Health.Builder builder = ready ? Health.up() : error != null ? Health.down() : Health.outOfService();
+        builder.withDetail("loadedRows", loadedRows.sum())
+                .withDetail("progress", progress());
+        if (!ready && error != null) {
+            builder.withDetail("failedAttempts", failedAttempts)
+                    .withDetail("error", error);
+        }
+        return builder.build();
+    }
+}
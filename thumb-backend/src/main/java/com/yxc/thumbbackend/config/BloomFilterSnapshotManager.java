@@ -0,0 +1,186 @@
+package com.yxc.thumbbackend.config;
+
+import com.yxc.thumbbackend.manager.cache.MembershipFilter;
+import com.yxc.thumbbackend.service.ThumbService;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 点赞记录布隆过滤器快照
+ * 定时和停机时把布隆过滤器写入本地文件,同时记录已加载的最大点赞记录 id(高水位)
+ * 启动时先从快照恢复,再只回放高水位之后的点赞记录,避免每次重启都全表扫描
+ * 文件格式: 魔数 + 版本 + 高水位 + MembershipFilter.writeTo 的内容(以过滤器类型标记开头)
+ * 旧版本或其他类型过滤器的快照无法沿用,读到时全量加载,加载完成后立即以当前格式重写快照
+ * 版本 4 起元素是(用户ID, 博客ID)两个 long,之前的版本以 "userId:blogId" 字符串按平台字符集哈希,位数组/指纹无法转换
+ */
+@Component
+@Slf4j
+public class BloomFilterSnapshotManager {
+
+    private static final int MAGIC = 0x54424C4D;
+
+    private static final int VERSION = 4;
+
+    @Resource
+    private MembershipFilter thumbBloomFilter;
+
+    @Resource
+    private ThumbService thumbService;
+
+    @Resource
+    private BloomFilterLoadProgress bloomFilterLoadProgress;
+
+    /**
+     * 快照文件路径
+     */
+    @Value("${thumb.bloom.snapshot.path:./data/thumb-bloom.snapshot}")
+    private String snapshotPath;
+
+    /**
+     * 回放时往回多读的 id 数量
+     * 自增 id 不保证按提交顺序可见,高水位之前可能还有当时未提交的记录
+     */
+    @Value("${thumb.bloom.snapshot.replay-overlap:10000}")
+    private long replayOverlap;
+
+    // 已加载到布隆过滤器的最大点赞记录 id, -1 表示还未加载完成
+    private volatile long highWaterMark = -1;
+
+    /**
+     * 加载布隆过滤器: 有可用快照时恢复快照并回放增量,否则全量加载
+     * 全量加载后立即保存快照,旧格式的快照只需要重建一次,下次启动即可增量回放
+     */
+    public void load() {
+        long start = System.currentTimeMillis();
+        long restored = restore();
+        long afterId = restored < 0 ? 0 : Math.max(0, restored - replayOverlap);
+        highWaterMark = thumbService.initBloomFilter(afterId, Math.max(0, restored));
+        bloomFilterLoadProgress.markReady();
+        log.info("布隆过滤器加载完成, 快照高水位: {}, 当前高水位: {}, 耗时: {}ms",
+                restored, highWaterMark, System.currentTimeMillis() - start);
+        if (restored < 0) {
+            try {
+                save();
+            } catch (Exception e) {
+                log.error("保存布隆过滤器快照失败", e);
+            }
+        }
+    }
+
+    /**
+     * 定时补齐增量并保存快照
+     */
+    @Scheduled(initialDelayString = "${thumb.bloom.snapshot.interval:600000}",
+            fixedDelayString = "${thumb.bloom.snapshot.interval:600000}")
+    public void snapshot() {
+        if (highWaterMark < 0) {
+            return;
+        }
+        try {
+            catchUp();
+            save();
+        } catch (Exception e) {
+            log.error("保存布隆过滤器快照失败", e);
+        }
+    }
+
+    /**
+     * 从数据库补齐高水位之后的点赞记录
+     */
+    public void catchUp() {
+        long hwm = highWaterMark;
+        if (hwm < 0) {
+            return;
+        }
+        highWaterMark = thumbService.initBloomFilter(Math.max(0, hwm - replayOverlap), hwm);
+    }
+
+    /**
+     * 停机时保存快照,不再查询数据库
+     */
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (highWaterMark < 0) {
+            return;
+        }
+        try {
+            save();
+        } catch (Exception e) {
+            log.error("停机保存布隆过滤器快照失败", e);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换,避免停机或崩溃时留下不完整的快照
+     * 高水位在写入位图之前读取,写入过程中新增的记录会在下次回放时补上
+     */
+    private void save() throws IOException {
+        long hwm = highWaterMark;
+        Path target = Paths.get(snapshotPath);
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeLong(hwm);
+                thumbBloomFilter.writeTo(data);
+                data.flush();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("布隆过滤器快照已保存: {}, 高水位: {}", target, hwm);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 从快照恢复布隆过滤器
+     * @return 快照的高水位,没有可用快照时返回 -1
+     */
+    private long restore() {
+        Path target = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(target)) {
+            log.info("布隆过滤器快照不存在, 全量加载: {}", target);
+            return -1;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(target))) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) {
+                log.warn("布隆过滤器快照格式不匹配, 全量加载: {}", target);
+                return -1;
+            }
+            int version = data.readInt();
+            if (version != VERSION) {
+                log.warn("布隆过滤器快照版本为 {}, 当前版本为 {}, 全量加载后以当前格式重写: {}", version, VERSION, target);
+                return -1;
+            }
+            long hwm = data.readLong();
+            // 过滤器类型、预期数量或误判率调整后旧快照不能再用,抛出 IllegalArgumentException 后全量加载
+            thumbBloomFilter.readFrom(data);
+            log.info("已从快照恢复布隆过滤器: {}, 高水位: {}", target, hwm);
+            return hwm;
+        } catch (Exception e) {
+            log.warn("读取布隆过滤器快照失败, 全量加载: {}", target, e);
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.yxc.thumbbackend.config;
+
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import com.yxc.thumbbackend.manager.cache.MembershipChange;
+import com.yxc.thumbbackend.manager.cache.MembershipChangeBatch;
+import com.yxc.thumbbackend.manager.cache.MembershipChangeFeed;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 Redis Stream 的点赞过滤器变更流
+ * 每条变更是一个 Stream 条目(n: 节点, u: 用户ID, b: 博客ID, a: 1 添加 / 0 删除, t: 产生时间),按近似长度裁剪
+ * 与失效消息不同,丢失添加会让其他节点把已点赞判断为未点赞,所以使用可以按位置回放的 Stream 而不是 pub/sub
+ */
+@Component
+@ConditionalOnProperty(name = "thumb.bloom.feed", havingValue = "redis", matchIfMissing = true)
+public class RedisMembershipChangeFeed implements MembershipChangeFeed {
+
+    private static final String EMPTY_ID = "0-0";
+
+    @Resource(name = "stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 变更流保留的最大条目数(近似)
+     */
+    @Value("${thumb.bloom.feed-max-length:1000000}")
+    private long maxLength;
+
+    @Override
+    public void append(MembershipChange change) {
+        Map<String, String> fields = Map.of(
+                "n", change.nodeId(),
+                "u", String.valueOf(change.userId()),
+                "b", String.valueOf(change.blogId()),
+                "a", change.added() ? "1" : "0",
+                "t", String.valueOf(change.createdAt()));
+        stringRedisTemplate.opsForStream().add(ThumbConstant.THUMB_FILTER_CHANGE_STREAM_KEY, fields,
+                XAddOptions.maxlen(maxLength).approximateTrimming(true));
+    }
+
+    /**
+     * 变更流保留的最大条目数,在 Lua 脚本中追加变更时使用同样的裁剪长度
+     */
+    public long maxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public String latestId() {
+        List<MapRecord<String, Object, Object>> last = stringRedisTemplate.opsForStream()
+                .reverseRange(ThumbConstant.THUMB_FILTER_CHANGE_STREAM_KEY, Range.unbounded(), Limit.limit().count(1));
+        return last == null || last.isEmpty() ? EMPTY_ID : last.get(0).getId().getValue();
+    }
+
+    @Override
+    public MembershipChangeBatch read(String afterId, int limit, Duration block) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                StreamReadOptions.empty().count(limit).block(block), offsets(ReadOffset.from(afterId)));
+        if (records == null || records.isEmpty()) {
+            return new MembershipChangeBatch(afterId, List.of(), false);
+        }
+        List<MembershipChange> changes = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> value = record.getValue();
+            changes.add(new MembershipChange(
+                    (String) value.get("n"),
+                    Long.parseLong((String) value.get("u")),
+                    Long.parseLong((String) value.get("b")),
+                    "1".equals(value.get("a")),
+                    Long.parseLong((String) value.get("t"))));
+        }
+        String lastId = records.get(records.size() - 1).getId().getValue();
+        return new MembershipChangeBatch(lastId, changes, isTrimmed(afterId, records.get(0).getId()));
+    }
+
+    /**
+     * 上次读取的位置之后、本次读到的第一条之前是否还有被裁剪掉的条目
+     */
+    private boolean isTrimmed(String afterId, RecordId firstRead) {
+        if (EMPTY_ID.equals(afterId)) {
+            return false;
+        }
+        List<MapRecord<String, Object, Object>> before = stringRedisTemplate.opsForStream().range(
+                ThumbConstant.THUMB_FILTER_CHANGE_STREAM_KEY,
+                Range.closed(afterId, firstRead.getValue()), Limit.limit().count(1));
+        // 上次读取的条目还在流中时,它就是范围内的第一条; 已被裁剪时范围内的第一条就是本次读到的第一条
+        return before == null || before.isEmpty() || !afterId.equals(before.get(0).getId().getValue());
+    }
+
+    /**
+     * 变更流的读取位置,直接传数组,避免 read 的泛型可变参数在调用处创建泛型数组
+     */
+    @SuppressWarnings("unchecked")
+    private static StreamOffset<String>[] offsets(ReadOffset readOffset) {
+        return (StreamOffset<String>[]) new StreamOffset<?>[]{
+                StreamOffset.create(ThumbConstant.THUMB_FILTER_CHANGE_STREAM_KEY, readOffset)};
+    }
+}
@@ -64,6 +64,9 @@ public class RedissonConfig {
                 .setRetryAttempts(retryAttempts)
                 .setRetryInterval(retryInterval);
 
+        // 脚本使用 EVALSHA 执行,服务端没有缓存时自动改用 EVAL
+        config.setUseScriptCache(true);
+
         // 如果有密码则设置密码
         if (password != null && !password.trim().isEmpty()) {
             config.useSingleServer().setPassword(password);
@@ -0,0 +1,82 @@
+package com.yxc.thumbbackend.config;
+
+import com.yxc.thumbbackend.constant.RedisLuaScriptConstant;
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 用户点赞状态键(thumb:{userId})的过期方式
+ * native: 使用 Redis 7.4+ 的字段过期(HPEXPIREAT),字段到期由 Redis 删除,读取时不需要解析 JSON 判断过期,也不需要每天全量扫描
+ * embedded: 过期时间只保存在 {@code ThumbCacheData.expireTime} 中,读取时判断,凌晨清理任务删除
+ * auto(默认): 启动时探测 Redis 是否支持字段过期,不支持时使用 embedded
+ */
+@Component
+@Slf4j
+public class ThumbFieldTtlSupport {
+
+    @Value("${thumb.field-ttl.mode:auto}")
+    private String mode;
+
+    @Resource(name = "stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private volatile boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        enabled = switch (mode) {
+            case "native" -> true;
+            case "embedded" -> false;
+            default -> probe();
+        };
+        log.info("用户点赞状态键过期方式: {} (配置: {})", enabled ? "native" : "embedded", mode);
+        if (!enabled) {
+            // 不使用字段过期期间写入的数据没有字段过期时间,下次切换到字段过期后需要重新迁移
+            stringRedisTemplate.delete(ThumbConstant.FIELD_TTL_MIGRATED_KEY);
+        }
+        Gauge.builder("thumb.cache.field.ttl.native", this, support -> support.enabled ? 1 : 0)
+                .description("Whether thumb cache entries expire through Redis hash-field TTLs")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否使用 Redis 字段过期
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 传给 Lua 脚本的开关参数
+     */
+    public String scriptArg() {
+        return enabled ? "1" : "0";
+    }
+
+    /**
+     * 对不存在的键执行一次 HPEXPIRE,不支持该命令(低版本 Redis 或兼容实现)时脚本报错
+     */
+    @SuppressWarnings("rawtypes")
+    private boolean probe() {
+        try {
+            List result = stringRedisTemplate.execute(RedisLuaScriptConstant.FIELD_TTL_PROBE_SCRIPT,
+                    List.of(ThumbConstant.FIELD_TTL_PROBE_KEY));
+            return result != null;
+        } catch (Exception e) {
+            log.info("Redis 不支持字段过期,使用 JSON 中的过期时间: {}", e.getMessage());
+            return false;
+        }
+    }
+}
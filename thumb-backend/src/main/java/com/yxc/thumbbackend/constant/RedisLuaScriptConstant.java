@@ -1,19 +1,72 @@
 package com.yxc.thumbbackend.constant;
 
 import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.data.redis.core.script.RedisScript;  
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
   
 public class RedisLuaScriptConstant {
 
+    /**
+     * 点赞缓存数据的 Lua 解析函数,拼接在需要读取点赞缓存的脚本前
+     * 兼容 JSON 和紧凑格式(首字节为版本号 1,见 CompactThumbCacheCodec),旧数据不需要迁移
+     */
+    private static final String THUMB_CACHE_FUNCTIONS = """
+            -- 返回 是否为未点赞缓存, 过期时间（毫秒）; 无法解析时返回 nil
+            local function decodeThumbCache(value)
+                if string.byte(value, 1) == 1 then
+                    local flags = string.byte(value, 2)
+                    if not flags then
+                        return nil
+                    end
+                    -- 数字: 1 字节长度 + 每字节 7 位(高位在前)
+                    local pos = 3
+                    local function readNumber()
+                        local len = string.byte(value, pos)
+                        if not len or pos + len > #value then
+                            return nil
+                        end
+                        local n = 0
+                        for j = pos + 1, pos + len do
+                            n = n * 128 + string.byte(value, j)
+                        end
+                        pos = pos + len + 1
+                        return n
+                    end
+                    local negative = flags % 4 == 2
+                    if not negative and not readNumber() then
+                        return nil
+                    end
+                    return negative, readNumber()
+                end
+                local ok, data = pcall(cjson.decode, value)
+                if not (ok and type(data) == 'table') then
+                    return nil
+                end
+                return data['thumbId'] == 'none', tonumber(data['expireTime'])
+            end
+
+            -- 只判断是否为未点赞缓存,不解析过期时间
+            local function isNegativeThumbCache(value)
+                if string.byte(value, 1) == 1 then
+                    return (string.byte(value, 2) or 0) % 4 == 2
+                end
+                return string.find(value, '"thumbId":"none"', 1, true) ~= nil
+            end
+
+            """;
+
     /**
      * 点赞脚本,定时任务版本,添加临时点赞记录
      */
-    public static final RedisScript<Long> SCHEDULED_THUMB_SCRIPT = new DefaultRedisScript<>("""  
+    public static final RedisScript<Long> SCHEDULED_THUMB_SCRIPT = new DefaultRedisScript<>(THUMB_CACHE_FUNCTIONS + """  
             local tempThumbKey = KEYS[1]       -- 临时计数键（如 thumb:temp:{timeSlice}）  
             local userThumbKey = KEYS[2]       -- 用户点赞状态键（如 thumb:{userId}）  
             local userId = ARGV[1]             -- 用户 ID  
             local blogId = ARGV[2]             -- 博客 ID  
             local thumbCacheData = ARGV[3]      -- 点赞缓存数据
+            local expireAt = ARGV[4]           -- 点赞缓存过期时间（毫秒）
+            local fieldTtl = ARGV[5]           -- 是否使用字段过期（1/0）
               
             -- 1. 获取旧值（不存在则默认为 0）  
             local hashKey = userId .. ':' .. blogId  
@@ -22,47 +75,138 @@ public class RedisLuaScriptConstant {
             -- 2. 计算新值  
             local newNumber = oldNumber + 1  
               
-            -- 3. 判断是否已点赞
-            local exists = redis.call('HEXISTS', userThumbKey, blogId)
-            if exists == 1 then
+            -- 3. 判断是否已点赞（未点赞缓存不算）
+            local current = redis.call('HGET', userThumbKey, blogId)
+            if current and not isNegativeThumbCache(current) then
                 return -1  -- 已点赞，返回 -1 表示失败
             end
             
-            -- 4. 添加临时点赞记录和用户点赞标记
+            -- 4. 添加临时点赞记录和用户点赞标记（覆盖未点赞缓存）
             redis.call('HSET', tempThumbKey, hashKey, newNumber)  
               
             redis.call("HSET", userThumbKey, blogId, thumbCacheData)
+            if fieldTtl == '1' then
+                redis.call('HPEXPIREAT', userThumbKey, expireAt, 'FIELDS', 1, blogId)
+            end
             
             return 1  -- 返回 1 表示成功  
             """, Long.class);
 
     /**
-     * 点赞脚本,MQ版,直接添加点赞记录
+     * MQ 版点赞/取消点赞脚本共用的状态判断,与 hasThumb 的顺序相同: 删除/新增标记 -> 本地缓存 -> 点赞缓存 -> 过滤器
+     * 返回 true/false,无法判断时返回 nil,由调用方查询数据库后把结果作为 localState 重试
+     */
+    private static final String MQ_THUMB_STATE_FUNCTION = """
+            local function thumbState(userThumbKey, deletedKey, addedKey, blogId, localState, filterAbsent, fieldTtl, now)
+                if redis.call('HEXISTS', deletedKey, blogId) == 1 then
+                    return false
+                end
+                if redis.call('HEXISTS', addedKey, blogId) == 1 then
+                    return true
+                end
+                if localState ~= '' then
+                    return localState == '1'
+                end
+                local current = redis.call('HGET', userThumbKey, blogId)
+                if current then
+                    if fieldTtl == '1' then
+                        return not isNegativeThumbCache(current)
+                    end
+                    local negative, expireTime = decodeThumbCache(current)
+                    if expireTime and now <= expireTime then
+                        return not negative
+                    end
+                end
+                if filterAbsent == '1' then
+                    return false
+                end
+                return nil
+            end
+
+            """;
+
+    /**
+     * 点赞脚本,MQ版,一次调用完成: 判断是否已点赞、按博客创建时间选择冷热缓存时间、添加点赞记录、清除删除标记、设置新增标记,
+     * 并把点赞事件写入发件箱、把过滤器变更写入变更流(与状态修改原子完成,由 ThumbOutboxRelay 转发到消息队列)
+     * 返回值见 LuaStatusEnum: 1 成功, -1 已点赞, 0 需要查询数据库, 2 需要查询博客创建时间
      */
-    public static final RedisScript<Long> MQ_THUMB_SCRIPT = new DefaultRedisScript<>("""  
-            local userThumbKey = KEYS[1]       -- 用户点赞状态键（如 thumb:{userId}）  
-            local blogId = ARGV[1]             -- 博客 ID  
-            local thumbCacheData = ARGV[2]      -- 点赞缓存数据
+    public static final RedisScript<Long> MQ_THUMB_SCRIPT = new DefaultRedisScript<>(THUMB_CACHE_FUNCTIONS + MQ_THUMB_STATE_FUNCTION + """
+            local userThumbKey = KEYS[1]      -- 用户点赞状态键（如 thumb:{userId}）
+            local deletedKey = KEYS[2]        -- 删除标记键（如 thumb:deleted:{userId}）
+            local addedKey = KEYS[3]          -- 新增标记键（如 thumb:added:{userId}）
+            local outboxKey = KEYS[4]         -- 点赞事件发件箱（Stream）
+            local createTimeKey = KEYS[5]     -- 博客创建时间键（如 blog:createTime:{blogId}）
+            local feedKey = KEYS[6]           -- 点赞过滤器变更流（Stream）
+            local blogId = ARGV[1]            -- 博客 ID
+            local userId = ARGV[2]            -- 用户 ID
+            local now = tonumber(ARGV[3])     -- 当前时间（毫秒）,也是事件时间
+            local localState = ARGV[4]        -- 本地缓存或数据库中的点赞状态（1/0,空表示未知）
+            local filterAbsent = ARGV[5]      -- 过滤器判断一定未点赞（1/0）
+            local fieldTtl = ARGV[6]          -- 是否使用字段过期（1/0）
+            local hotHint = ARGV[7]           -- 调用方查询到的冷热（1/0,空表示读取博客创建时间）
+            local hotThreshold = tonumber(ARGV[8])  -- 热数据时间阈值（毫秒）
+            local hotCacheData = ARGV[9]      -- 热数据的点赞缓存数据
+            local hotExpireAt = ARGV[10]      -- 热数据的点赞缓存过期时间（毫秒）
+            local coldCacheData = ARGV[11]    -- 冷数据的点赞缓存数据
+            local coldExpireAt = ARGV[12]     -- 冷数据的点赞缓存过期时间（毫秒）
+            local marker = ARGV[13]           -- 新增标记
+            local markerTtl = ARGV[14]        -- 标记过期时间(秒)
+            local nodeId = ARGV[15]           -- 写入变更流的节点 ID,为空时不写（非 Redis 变更流由调用方追加）
+            local feedMaxLength = ARGV[16]    -- 变更流保留的最大条目数（近似）
 
-            -- 1. 判断用户是否已点赞
-            if redis.call('HEXISTS', userThumbKey, blogId) == 1 then
+            -- 1. 判断用户是否已点赞（未点赞缓存不算）
+            local thumbed = thumbState(userThumbKey, deletedKey, addedKey, blogId, localState, filterAbsent, fieldTtl, now)
+            if thumbed == nil then
+                return 0  -- 需要查询数据库
+            end
+            if thumbed then
                 return -1  -- 已点赞，返回 -1 表示失败
             end
-              
-            -- 2. 添加点赞记录
-            redis.call("HSET", userThumbKey, blogId, thumbCacheData)
-            
-            return 1  -- 返回 1 表示成功  
+
+            -- 2. 根据博客创建时间区分冷热
+            local hot
+            if hotHint ~= '' then
+                hot = hotHint == '1'
+            else
+                local createTime = tonumber(redis.call('GET', createTimeKey))
+                if not createTime then
+                    return 2  -- 需要查询博客创建时间
+                end
+                hot = createTime > 0 and now - createTime <= hotThreshold
+            end
+
+            -- 3. 添加点赞记录（覆盖未点赞缓存）
+            redis.call('HSET', userThumbKey, blogId, hot and hotCacheData or coldCacheData)
+            if fieldTtl == '1' then
+                redis.call('HPEXPIREAT', userThumbKey, hot and hotExpireAt or coldExpireAt, 'FIELDS', 1, blogId)
+            end
+
+            -- 4. 清除删除标记，设置新增标记（防止消息消费前查询数据库导致重复点赞）
+            redis.call('HDEL', deletedKey, blogId)
+            redis.call('HSET', addedKey, blogId, marker)
+            redis.call('EXPIRE', addedKey, markerTtl)
+
+            -- 5. 写入发件箱和过滤器变更流
+            redis.call('XADD', outboxKey, '*', 'u', userId, 'b', blogId, 'e', 'INCR', 't', ARGV[3])
+            if nodeId ~= '' then
+                redis.call('XADD', feedKey, 'MAXLEN', '~', feedMaxLength, '*',
+                        'n', nodeId, 'u', userId, 'b', blogId, 'a', '1', 't', ARGV[3])
+            end
+
+            return 1  -- 返回 1 表示成功
             """, Long.class);
 
     /**
      * 取消点赞脚本,定时任务版本,添加临时点赞记录
      */
-    public static final RedisScript<Long> SCHEDULED_UNTHUMB_SCRIPT = new DefaultRedisScript<>("""  
+    public static final RedisScript<Long> SCHEDULED_UNTHUMB_SCRIPT = new DefaultRedisScript<>(THUMB_CACHE_FUNCTIONS + """  
             local tempThumbKey = KEYS[1]      -- 临时计数键（如 thumb:temp:{timeSlice}）  
             local userThumbKey = KEYS[2]      -- 用户点赞状态键（如 thumb:{userId}）  
             local userId = ARGV[1]            -- 用户 ID  
             local blogId = ARGV[2]            -- 博客 ID  
+            local negativeCacheData = ARGV[3] -- 未点赞缓存数据
+            local expireAt = ARGV[4]          -- 未点赞缓存过期时间（毫秒）
+            local fieldTtl = ARGV[5]          -- 是否使用字段过期（1/0）
               
             -- 1. 获取当前临时计数（若不存在则默认为 0）  
             local hashKey = userId .. ':' .. blogId  
@@ -71,34 +215,288 @@ public class RedisLuaScriptConstant {
             -- 2. 计算新值  
             local newNumber = oldNumber - 1  
               
-            -- 3. 原子性操作：先尝试删除用户点赞标记，失败则说明未点赞
-            if redis.call('HEXISTS', userThumbKey, blogId) == 0 then
+            -- 3. 判断是否已点赞（未点赞缓存不算）
+            local current = redis.call('HGET', userThumbKey, blogId)
+            if not current or isNegativeThumbCache(current) then
                 return -1  -- 未点赞，返回 -1 表示失败
             end
             
-            -- 4.添加临时点赞记录并删除用户点赞标记
+            -- 4.添加临时点赞记录，用未点赞缓存覆盖用户点赞标记
             redis.call('HSET', tempThumbKey, hashKey, newNumber)
               
-            redis.call("HDEL", userThumbKey, blogId)
+            redis.call("HSET", userThumbKey, blogId, negativeCacheData)
+            if fieldTtl == '1' then
+                redis.call('HPEXPIREAT', userThumbKey, expireAt, 'FIELDS', 1, blogId)
+            end
             
             return 1  -- 返回 1 表示成功  
             """, Long.class);
 
     /**
-     * 取消点赞脚本,MQ版,直接删除点赞记录
+     * 取消点赞脚本,MQ版,一次调用完成: 判断是否已点赞、用未点赞缓存覆盖点赞记录、清除新增标记、设置删除标记,
+     * 并把取消点赞事件写入发件箱、把过滤器变更写入变更流(与状态修改原子完成,由 ThumbOutboxRelay 转发到消息队列)
+     * 返回值见 LuaStatusEnum: 1 成功, -1 未点赞, 0 需要查询数据库
      */
-    public static final RedisScript<Long> MQ_UNTHUMB_SCRIPT = new DefaultRedisScript<>("""
+    public static final RedisScript<Long> MQ_UNTHUMB_SCRIPT = new DefaultRedisScript<>(THUMB_CACHE_FUNCTIONS + MQ_THUMB_STATE_FUNCTION + """
             local userThumbKey = KEYS[1]      -- 用户点赞状态键（如 thumb:{userId}）
+            local deletedKey = KEYS[2]        -- 删除标记键（如 thumb:deleted:{userId}）
+            local addedKey = KEYS[3]          -- 新增标记键（如 thumb:added:{userId}）
+            local outboxKey = KEYS[4]         -- 点赞事件发件箱（Stream）
+            local feedKey = KEYS[5]           -- 点赞过滤器变更流（Stream）
             local blogId = ARGV[1]            -- 博客 ID
-            
-            -- 1. 判断用户是否已点赞
-            if redis.call('HEXISTS', userThumbKey, blogId) == 0 then
+            local userId = ARGV[2]            -- 用户 ID
+            local now = tonumber(ARGV[3])     -- 当前时间（毫秒）,也是事件时间
+            local localState = ARGV[4]        -- 本地缓存或数据库中的点赞状态（1/0,空表示未知）
+            local filterAbsent = ARGV[5]      -- 过滤器判断一定未点赞（1/0）
+            local fieldTtl = ARGV[6]          -- 是否使用字段过期（1/0）
+            local negativeCacheData = ARGV[7] -- 未点赞缓存数据
+            local expireAt = ARGV[8]          -- 未点赞缓存过期时间（毫秒）
+            local marker = ARGV[9]            -- 删除标记
+            local markerTtl = ARGV[10]        -- 标记过期时间(秒)
+            local nodeId = ARGV[11]           -- 写入变更流的节点 ID,为空时不写（非 Redis 变更流由调用方追加）
+            local feedMaxLength = ARGV[12]    -- 变更流保留的最大条目数（近似）
+
+            -- 1. 判断用户是否已点赞（未点赞缓存不算）
+            local thumbed = thumbState(userThumbKey, deletedKey, addedKey, blogId, localState, filterAbsent, fieldTtl, now)
+            if thumbed == nil then
+                return 0  -- 需要查询数据库
+            end
+            if not thumbed then
                 return -1  -- 未点赞，返回 -1 表示失败
             end
-            
-            -- 2. 删除点赞记录
-            redis.call("HDEL", userThumbKey, blogId)
-            
+
+            -- 2. 用未点赞缓存覆盖点赞记录,之后的查询不需要访问数据库
+            redis.call('HSET', userThumbKey, blogId, negativeCacheData)
+            if fieldTtl == '1' then
+                redis.call('HPEXPIREAT', userThumbKey, expireAt, 'FIELDS', 1, blogId)
+            end
+
+            -- 3. 清除新增标记，设置删除标记（防止消息消费前重复取消点赞）
+            redis.call('HDEL', addedKey, blogId)
+            redis.call('HSET', deletedKey, blogId, marker)
+            redis.call('EXPIRE', deletedKey, markerTtl)
+
+            -- 4. 写入发件箱和过滤器变更流
+            redis.call('XADD', outboxKey, '*', 'u', userId, 'b', blogId, 'e', 'DECR', 't', ARGV[3])
+            if nodeId ~= '' then
+                redis.call('XADD', feedKey, 'MAXLEN', '~', feedMaxLength, '*',
+                        'n', nodeId, 'u', userId, 'b', blogId, 'a', '0', 't', ARGV[3])
+            end
+
             return 1  -- 返回 1 表示成功
             """, Long.class);
+
+    /**
+     * 点赞状态探测脚本,一次往返判断一批博客的删除标记、新增标记、点赞缓存(含过期时间)和冷热
+     * 每个用户维度的键只执行一次 HMGET,博客创建时间用一次 MGET
+     * 返回与 blogId 顺序一致的状态列表,取值见 ThumbProbeStatusEnum,过期或无法解析的点赞缓存在脚本内直接删除
+     * 使用字段过期时过期的字段已由 Redis 删除,只需判断是否为未点赞缓存,不解析 JSON
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> THUMB_PROBE_SCRIPT = new DefaultRedisScript<>(THUMB_CACHE_FUNCTIONS + """
+            local deletedKey = KEYS[1]        -- 删除标记键（如 thumb:deleted:{userId}）
+            local addedKey = KEYS[2]          -- 新增标记键（如 thumb:added:{userId}）
+            local userThumbKey = KEYS[3]      -- 用户点赞状态键（如 thumb:{userId}）
+                                              -- KEYS[4..] 博客创建时间键（如 blog:createTime:{blogId}）,与 blogId 一一对应
+            local now = tonumber(ARGV[1])     -- 当前时间（毫秒）
+            local hotThreshold = tonumber(ARGV[2])  -- 热数据时间阈值（毫秒）
+            local fieldTtl = ARGV[3]          -- 是否使用字段过期（1/0）
+            local blogIds = {unpack(ARGV, 4)} -- 博客 ID 列表
+
+            local n = #blogIds
+            local deleted = redis.call('HMGET', deletedKey, unpack(blogIds))
+            local added = redis.call('HMGET', addedKey, unpack(blogIds))
+            local cached = redis.call('HMGET', userThumbKey, unpack(blogIds))
+            local createTimes = redis.call('MGET', unpack(KEYS, 4, 3 + n))
+
+            local result = {}
+            local expired = {}
+            for i = 1, n do
+                local status
+                -- 1. 删除/新增标记: 已变更但还未同步到数据库
+                if deleted[i] then
+                    status = 0
+                elseif added[i] then
+                    status = 1
+                else
+                    -- 2. 点赞缓存未过期则已点赞(未点赞缓存则未点赞),过期或无法解析时删除
+                    if cached[i] and fieldTtl == '1' then
+                        status = isNegativeThumbCache(cached[i]) and 6 or 2
+                    elseif cached[i] then
+                        local negative, expireTime = decodeThumbCache(cached[i])
+                        if expireTime and now <= expireTime then
+                            status = negative and 6 or 2
+                        else
+                            expired[#expired + 1] = blogIds[i]
+                        end
+                    end
+                    -- 3. 未命中: 根据博客创建时间区分冷热,没有缓存创建时间时由调用方查询
+                    if not status then
+                        local createTime = tonumber(createTimes[i])
+                        if not createTime then
+                            status = 5
+                        elseif createTime > 0 and now - createTime <= hotThreshold then
+                            status = 3
+                        else
+                            status = 4
+                        end
+                    end
+                end
+                result[i] = status
+            end
+            if #expired > 0 then
+                redis.call('HDEL', userThumbKey, unpack(expired))
+            end
+            return result
+            """, List.class);
+
+    /**
+     * 点赞缓存回写脚本,查询数据库后异步执行,同时回写点赞缓存和未点赞缓存
+     * 回写期间可能已经取消点赞(删除标记)、点赞(新增标记)或已有缓存,这些情况都不覆盖
+     * 用户的缓存字段数达到上限后不再写入未点赞缓存,限制负缓存占用的内存
+     * 使用字段过期时,写入的字段同时设置过期时间
+     */
+    public static final RedisScript<Long> THUMB_WRITE_BACK_SCRIPT = new DefaultRedisScript<>("""
+            local userThumbKey = KEYS[1]      -- 用户点赞状态键（如 thumb:{userId}）
+            local deletedKey = KEYS[2]        -- 删除标记键（如 thumb:deleted:{userId}）
+            local addedKey = KEYS[3]          -- 新增标记键（如 thumb:added:{userId}）
+            local maxFields = tonumber(ARGV[1])  -- 写入未点赞缓存时用户点赞状态键的字段数上限
+            local fieldTtl = ARGV[2]          -- 是否使用字段过期（1/0）
+                                              -- ARGV[3..]: 博客 ID、缓存数据、是否点赞(1/0)、过期时间（毫秒） 依次排列
+
+            local written = 0
+            for i = 3, #ARGV, 4 do
+                local blogId = ARGV[i]
+                local set = 0
+                if ARGV[i + 2] == '1' then
+                    if redis.call('HEXISTS', deletedKey, blogId) == 0 then
+                        set = redis.call('HSETNX', userThumbKey, blogId, ARGV[i + 1])
+                    end
+                elseif redis.call('HEXISTS', addedKey, blogId) == 0
+                        and redis.call('HLEN', userThumbKey) < maxFields then
+                    set = redis.call('HSETNX', userThumbKey, blogId, ARGV[i + 1])
+                end
+                if set == 1 and fieldTtl == '1' then
+                    redis.call('HPEXPIREAT', userThumbKey, ARGV[i + 3], 'FIELDS', 1, blogId)
+                end
+                written = written + set
+            end
+            return written
+            """, Long.class);
+
+    /**
+     * 探测 Redis 是否支持字段过期,不支持时 redis.call 报错
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> FIELD_TTL_PROBE_SCRIPT = new DefaultRedisScript<>("""
+            return redis.call('HPEXPIRE', KEYS[1], 1000, 'FIELDS', 1, 'probe')
+            """, List.class);
+
+    /**
+     * 字段过期迁移脚本,把一个用户点赞状态键中没有字段过期时间的旧数据按 JSON 中的过期时间设置字段过期
+     * 已过期或无法解析的字段直接删除,返回处理的字段数
+     */
+    public static final RedisScript<Long> FIELD_TTL_MIGRATE_SCRIPT = new DefaultRedisScript<>(THUMB_CACHE_FUNCTIONS + """
+            local userThumbKey = KEYS[1]      -- 用户点赞状态键（如 thumb:{userId}）
+            local now = tonumber(ARGV[1])     -- 当前时间（毫秒）
+
+            local entries = redis.call('HGETALL', userThumbKey)
+            local migrated = 0
+            for i = 1, #entries, 2 do
+                local blogId = entries[i]
+                if redis.call('HPTTL', userThumbKey, 'FIELDS', 1, blogId)[1] == -1 then
+                    local _, expireTime = decodeThumbCache(entries[i + 1])
+                    if expireTime and expireTime > now then
+                        redis.call('HPEXPIREAT', userThumbKey, expireTime, 'FIELDS', 1, blogId)
+                    else
+                        redis.call('HDEL', userThumbKey, blogId)
+                    end
+                    migrated = migrated + 1
+                end
+            end
+            return migrated
+            """, Long.class);
+
+    /**
+     * 记录已写入数据库的最新点赞事件ID,只在比已记录的ID更新时覆盖
+     * KEYS[i] 为用户的记录键,ARGV[1] 为记录键过期时间(秒),之后每两个参数(博客ID、事件ID)对应一个键
+     */
+    public static final RedisScript<Long> OUTBOX_APPLIED_SCRIPT = new DefaultRedisScript<>("""
+            local ttl = ARGV[1]
+
+            -- 发件箱条目ID格式为 毫秒时间戳-序号
+            local function isNewer(id, current)
+                local ms, seq = string.match(id, '^(%d+)-(%d+)$')
+                local currentMs, currentSeq = string.match(current, '^(%d+)-(%d+)$')
+                if not currentMs then
+                    return true
+                end
+                ms, currentMs = tonumber(ms), tonumber(currentMs)
+                return ms > currentMs or (ms == currentMs and tonumber(seq) > tonumber(currentSeq))
+            end
+
+            local updated = 0
+            for i = 1, #KEYS do
+                local blogId = ARGV[i * 2]
+                local eventId = ARGV[i * 2 + 1]
+                local current = redis.call('HGET', KEYS[i], blogId)
+                if not current or isNewer(eventId, current) then
+                    redis.call('HSET', KEYS[i], blogId, eventId)
+                    updated = updated + 1
+                end
+                redis.call('EXPIRE', KEYS[i], ttl)
+            end
+            return updated
+            """, Long.class);
+
+    /**
+     * 原子替换热点key快照(ZSET),避免其他节点读到替换过程中的空快照
+     * KEYS[1] 为快照键,KEYS[2](可选) 为节点注册表;ARGV[1] 为过期时间(毫秒),ARGV[2]、ARGV[3] 为注册的节点ID和上报时间,
+     * 之后每两个参数(访问次数、key)对应快照中的一项
+     */
+    public static final RedisScript<Long> HOT_KEY_SNAPSHOT_REPLACE_SCRIPT = new DefaultRedisScript<>("""
+            local snapshotKey = KEYS[1]
+            local ttl = ARGV[1]
+
+            redis.call('DEL', snapshotKey)
+            -- 分批 ZADD,避免 unpack 参数过多
+            for i = 4, #ARGV, 2000 do
+                redis.call('ZADD', snapshotKey, unpack(ARGV, i, math.min(i + 1999, #ARGV)))
+            end
+            if #ARGV >= 4 then
+                redis.call('PEXPIRE', snapshotKey, ttl)
+            end
+            -- 注册表记录最近一次上报时间,用于剔除下线节点
+            if KEYS[2] then
+                redis.call('ZADD', KEYS[2], ARGV[3], ARGV[2])
+                redis.call('PEXPIRE', KEYS[2], ttl)
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * 快照已过期的节点从注册表中移除,移除前再确认快照不存在,避免误删刚刚重新上报的节点
+     * KEYS[1] 为节点注册表,KEYS[2] 为节点快照键,ARGV[1] 为节点ID
+     */
+    public static final RedisScript<Long> HOT_KEY_NODE_REMOVE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[2]) == 1 then
+                return 0
+            end
+            return redis.call('ZREM', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    /**
+     * 获取或续期热点key合并租约,只有持有者才能续期
+     * KEYS[1] 为租约键,ARGV[1] 为节点ID,ARGV[2] 为租约时长(毫秒);返回 1 表示持有租约
+     */
+    public static final RedisScript<Long> HOT_KEY_LEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+                return 1
+            end
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
 }
@@ -10,10 +10,11 @@ public interface ThumbConstant {
     long THUMB_CACHE_EXPIRE_TIME = 30L * 24 * 60 * 60 * 1000;
     
     /**
-     * 布隆过滤器key前缀
+     * 未点赞缓存(负缓存)的 thumbId,与点赞缓存存放在同一个 thumb:{userId} 哈希中
+     * 点赞/取消点赞脚本直接覆盖该字段,Lua 脚本中按同样的值判断
      */
-    String BLOOM_FILTER_KEY_SEPARATOR = ":";
-    
+    String NEGATIVE_THUMB_ID = "none";
+
     /**
      * 热数据时间阈值（毫秒）- 1个月
      * 博客发布时间在1个月内的认为是热数据
@@ -61,4 +62,66 @@ public interface ThumbConstant {
      * 用户点赞,如果本地缓存存在热点key,修改为此值
      */
     Long THUMB_CONSTANT = 1L;
+
+    /**
+     * 节点热点key快照key前缀(ZSET)
+     * 不使用 thumb: 前缀,避免被点赞缓存的扫描任务误处理
+     */
+    String HOT_KEY_NODE_KEY_PREFIX = "hotkey:node:";
+
+    /**
+     * 存活节点注册表key(ZSET,score为最近一次上报时间)
+     */
+    String HOT_KEY_NODES_KEY = "hotkey:nodes";
+
+    /**
+     * 全局热点key(ZSET)
+     */
+    String HOT_KEY_GLOBAL_KEY = "hotkey:global";
+
+    /**
+     * 热点key合并任务租约key
+     */
+    String HOT_KEY_MERGE_LEASE_KEY = "hotkey:merge:lease";
+
+    /**
+     * 本地点赞缓存失效广播频道(pub/sub)
+     */
+    String THUMB_INVALIDATION_CHANNEL = "cache:thumb:invalidation";
+
+    /**
+     * 点赞过滤器变更流(Redis Stream),各节点跟随该流同步本地过滤器
+     */
+    String THUMB_FILTER_CHANGE_STREAM_KEY = "bloom:thumb:changes";
+
+    /**
+     * 探测 Redis 是否支持字段过期(HPEXPIRE)时使用的键,不会被写入
+     */
+    String FIELD_TTL_PROBE_KEY = "cache:field-ttl:probe";
+
+    /**
+     * 用户点赞状态键中没有字段过期时间的旧数据已全部迁移的标记(不使用 thumb: 前缀,避免被清理任务扫描)
+     */
+    String FIELD_TTL_MIGRATED_KEY = "cache:thumb:field-ttl:migrated";
+
+    /**
+     * 点赞事件发件箱(Redis Stream),点赞/取消点赞脚本与状态修改一起写入,由转发任务发送到消息队列
+     * 不使用 thumb: 前缀,避免被点赞缓存的扫描任务误处理
+     */
+    String THUMB_OUTBOX_STREAM_KEY = "outbox:thumb";
+
+    /**
+     * 点赞事件发件箱的消费组,记录已转发到消息队列的位置
+     */
+    String THUMB_OUTBOX_GROUP = "thumb-outbox-relay";
+
+    /**
+     * 每个用户已写入数据库的最新点赞事件ID(HASH,field 为博客ID),消费者据此跳过重复和过时的事件
+     */
+    String THUMB_OUTBOX_APPLIED_KEY_PREFIX = "outbox:thumb:applied:";
+
+    /**
+     * 已写入数据库的最新点赞事件ID的保留时间(秒),需要远大于事件在发件箱和消息队列中的最长重试时间
+     */
+    long THUMB_OUTBOX_APPLIED_EXPIRE_SECONDS = 24L * 60 * 60;
 }
@@ -2,10 +2,10 @@ package com.yxc.thumbbackend.controller;
 
 import com.yxc.thumbbackend.common.BaseResponse;
 import com.yxc.thumbbackend.common.ResultUtils;
-import com.yxc.thumbbackend.exception.BusinessException;
-import com.yxc.thumbbackend.exception.ErrorCode;
 import com.yxc.thumbbackend.model.dto.DoThumbRequest;
+import com.yxc.thumbbackend.model.entity.User;
 import com.yxc.thumbbackend.service.ThumbService;
+import com.yxc.thumbbackend.service.UserService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
@@ -15,12 +15,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("thumb")
 public class ThumbController {  
     @Resource
     private ThumbService thumbService;
 
+    @Resource
+    private UserService userService;
+
     // 统计业务关键指标
     private final Counter successCounter;
     private final Counter failureCounter;
@@ -37,28 +42,24 @@ public class ThumbController {
 
     /**
      * 点赞
+     * 异步返回,等待 Redis 期间不占用 Tomcat 线程; 点赞事件已与状态修改一起写入发件箱,不等待消息队列
      *
      * @param doThumbRequest
      * @param request
      * @return
      */
     @PostMapping("/do")
-    public BaseResponse<Boolean> doThumb(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
-        try {
-            Boolean success = thumbService.doThumb(doThumbRequest, request);
-
-            if (success) {
-                successCounter.increment();
-            } else {
-                failureCounter.increment();
-            }
-
-            return ResultUtils.success(success);
-        } catch (Exception e) {
-            failureCounter.increment();
-
-            throw e;
-        }
+    public CompletableFuture<BaseResponse<Boolean>> doThumb(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return thumbService.doThumbAsync(doThumbRequest, loginUser)
+                .whenComplete((success, e) -> {
+                    if (e == null && success) {
+                        successCounter.increment();
+                    } else {
+                        failureCounter.increment();
+                    }
+                })
+                .thenApply(ResultUtils::success);
     }
 
     /**
@@ -69,8 +70,9 @@ public class ThumbController {
      * @return
      */
     @PostMapping("/undo")
-    public BaseResponse<Boolean> undoThumb(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
-        Boolean success = thumbService.undoThumb(doThumbRequest, request);
-        return ResultUtils.success(success);
+    public CompletableFuture<BaseResponse<Boolean>> undoThumb(@RequestBody DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return thumbService.undoThumbAsync(doThumbRequest, loginUser)
+                .thenApply(ResultUtils::success);
     }
 }
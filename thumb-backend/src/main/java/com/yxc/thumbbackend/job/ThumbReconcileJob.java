@@ -1,9 +1,10 @@
 package com.yxc.thumbbackend.job;
 
-import cn.hutool.json.JSONUtil;
 import com.google.common.collect.Sets;
 import com.yxc.thumbbackend.constant.ThumbConstant;
 import com.yxc.thumbbackend.listener.thumb.msg.ThumbEvent;
+import com.yxc.thumbbackend.manager.cache.MirroredMembershipFilter;
+import com.yxc.thumbbackend.manager.cache.ThumbCacheCodec;
 import com.yxc.thumbbackend.model.dto.ThumbCacheData;
 import com.yxc.thumbbackend.model.entity.Thumb;
 import com.yxc.thumbbackend.service.ThumbService;
@@ -12,6 +13,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.pulsar.core.PulsarTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -19,6 +21,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -29,11 +32,20 @@ public class ThumbReconcileJob {
     @Resource  
     private RedisTemplate<String, Object> redisTemplate;  
   
+    @Resource(name = "stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ThumbCacheCodec thumbCacheCodec;
+
     @Resource  
     private ThumbService thumbService;  
   
     @Resource  
     private PulsarTemplate<ThumbEvent> pulsarTemplate;  
+
+    @Resource
+    private MirroredMembershipFilter thumbFilterMirror;
   
     /**  
      * 定时任务入口（每天凌晨2点执行）  
@@ -79,6 +91,9 @@ public class ThumbReconcileJob {
                         userId, redisBlogIds.size(), mysqlBlogIds.size(), diffBlogIds.size());
                 sendCompensationEvents(userId, diffBlogIds);  
             }
+
+            // 5. 布隆过滤器补齐: 有效的点赞记录都应该在过滤器中,只补本节点缺少的,不写变更流(每个节点都会执行对账)
+            Sets.union(redisBlogIds, mysqlBlogIds).forEach(blogId -> thumbFilterMirror.addLocalIfAbsent(userId, blogId));
         });  
   
         log.info("对账任务完成，耗时 {}ms", System.currentTimeMillis() - startTime);  
@@ -89,16 +104,17 @@ public class ThumbReconcileJob {
      */
     private Set<Long> getValidRedisBlogIds(Long userId, long timeThreshold) {
         Set<Long> validBlogIds = new HashSet<>();
-        Set<Object> allBlogIds = redisTemplate.opsForHash().keys(ThumbConstant.USER_THUMB_KEY_PREFIX + userId);
+        // 一次 HGETALL 读取用户的全部点赞缓存
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(ThumbConstant.USER_THUMB_KEY_PREFIX + userId);
         
-        for (Object blogIdObj : allBlogIds) {
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            Object blogIdObj = entry.getKey();
             try {
                 Long blogId = Long.valueOf(blogIdObj.toString());
-                Object cacheValueObj = redisTemplate.opsForHash().get(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, blogId.toString());
+                // 解析缓存数据(兼容 JSON 和紧凑格式)
+                ThumbCacheData cacheData = thumbCacheCodec.decode(entry.getValue().toString());
                 
-                if (cacheValueObj != null) {
-                    // 解析缓存数据
-                    ThumbCacheData cacheData = JSONUtil.toBean(cacheValueObj.toString(), ThumbCacheData.class);
+                if (cacheData != null) {
                     
                     // 检查创建时间是否在1点之前
                     if (cacheData.getCreateTime() != null && cacheData.getCreateTime() <= timeThreshold) {
@@ -126,7 +142,12 @@ public class ThumbReconcileJob {
      */  
     private void sendCompensationEvents(Long userId, Set<Long> blogIds) {  
         blogIds.forEach(blogId -> {  
-            ThumbEvent thumbEvent = new ThumbEvent(userId, blogId, ThumbEvent.EventType.INCR, LocalDateTime.now());  
+            ThumbEvent thumbEvent = ThumbEvent.builder()
+                    .userId(userId)
+                    .blogId(blogId)
+                    .type(ThumbEvent.EventType.INCR)
+                    .eventTime(LocalDateTime.now())
+                    .build();
             pulsarTemplate.sendAsync("thumb-topic", thumbEvent)  
                     .exceptionally(ex -> {  
                         log.error("补偿事件发送失败: userId={}, blogId={}", userId, blogId, ex);  
@@ -1,24 +1,27 @@
 package com.yxc.thumbbackend.listener.thumb.consumer;
 
 import cn.hutool.core.lang.Pair;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.yxc.thumbbackend.constant.RedisLuaScriptConstant;
+import com.yxc.thumbbackend.constant.ThumbConstant;
 import com.yxc.thumbbackend.listener.thumb.msg.ThumbEvent;
 import com.yxc.thumbbackend.mapper.BlogMapper;
-import com.yxc.thumbbackend.model.entity.Thumb;
-import com.yxc.thumbbackend.service.ThumbService;
+import com.yxc.thumbbackend.mapper.ThumbMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.pulsar.annotation.PulsarListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,7 +29,8 @@ import java.util.stream.Collectors;
 public class ThumbConsumer {
 
     private final BlogMapper blogMapper;
-    private final ThumbService thumbService;
+    private final ThumbMapper thumbMapper;
+    private final StringRedisTemplate stringRedisTemplate;
 
     // 批量处理配置
     @PulsarListener(subscriptionName = "thumb-subscription", topics = "thumb-topic", schemaType = SchemaType.JSON, batch = true, consumerCustomizer = "thumbConsumerConfig",
@@ -39,72 +43,138 @@ public class ThumbConsumer {
     @Transactional(rollbackFor = Exception.class)
     public void processBatch(List<Message<ThumbEvent>> messages) {
         log.info("ThumbConsumer processBatch: {}", messages.size());
-        Map<Long, Long> countMap = new ConcurrentHashMap<>();
-        List<Thumb> thumbs = new ArrayList<>();
 
-        // 并行处理消息
-        LambdaQueryWrapper<Thumb> wrapper = new LambdaQueryWrapper<>();
-        AtomicReference<Boolean> needRemove = new AtomicReference<>(false);
+        // 按(userId, blogId)分组; 发件箱至少投递一次,同一事件ID只保留一条
+        Map<Pair<Long, Long>, List<ThumbEvent>> eventsByPair = new LinkedHashMap<>();
+        Set<String> eventIds = new HashSet<>();
+        for (Message<ThumbEvent> message : messages) {
+            ThumbEvent event = message.getValue();
+            if (event == null || (event.getEventId() != null && !eventIds.add(event.getEventId()))) {
+                continue;
+            }
+            eventsByPair.computeIfAbsent(Pair.of(event.getUserId(), event.getBlogId()), k -> new ArrayList<>()).add(event);
+        }
 
-        // 提取事件并过滤无效消息
-        List<ThumbEvent> events = messages.stream()
-                .map(Message::getValue)
-                .filter(Objects::nonNull)
-                .toList();
+        // 每个组合只处理最新事件: 脚本保证点赞/取消点赞交替出现,最新事件的类型就是当前状态
+        Map<Pair<Long, Long>, ThumbEvent> latestEvents = new LinkedHashMap<>();
+        eventsByPair.forEach((pair, events) -> latestEvents.put(pair, latestEvent(events)));
+
+        // 已写入过更新事件的组合跳过(重复投递、失败重发或接管导致的乱序)
+        Map<Pair<Long, Long>, String> appliedIds = loadAppliedEventIds(latestEvents);
 
-        // 按(userId, blogId)分组，并获取每个分组的最新事件
-        Map<Pair<Long, Long>, ThumbEvent> latestEvents = events.stream()
-                .collect(Collectors.groupingBy(
-                        e -> Pair.of(e.getUserId(), e.getBlogId()),
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                list -> {
-                                    // 按时间升序排序，取最后一个作为最新事件
-                                    list.sort(Comparator.comparing(ThumbEvent::getEventTime));
-                                    // 多次点赞\取消点赞只会触发一次消息，所以如果事件数量为偶数，则返回null
-                                    if (list.size() % 2 == 0) {
-                                        return null;
-                                    }
-                                    return list.get(list.size() - 1);
-                                })));
-
-        latestEvents.forEach((userBlogPair, event) -> {
-            if (event == null) {
+        Map<Long, Long> countMap = new HashMap<>();
+        List<ThumbEvent> appliedEvents = new ArrayList<>();
+        latestEvents.forEach((pair, event) -> {
+            String appliedId = appliedIds.get(pair);
+            if (event.getEventId() != null && appliedId != null && compareEventId(event.getEventId(), appliedId) <= 0) {
+                log.info("跳过已处理的点赞事件: eventId={}, appliedId={}", event.getEventId(), appliedId);
                 return;
             }
-            ThumbEvent.EventType finalAction = event.getType();
-
-            if (finalAction == ThumbEvent.EventType.INCR) {
-                countMap.merge(event.getBlogId(), 1L, Long::sum);
-                Thumb thumb = new Thumb();
-                thumb.setBlogid(event.getBlogId());
-                thumb.setUserid(event.getUserId());
-                thumbs.add(thumb);
-            } else {
-                needRemove.set(true);
-                wrapper.or().eq(Thumb::getUserid, event.getUserId()).eq(Thumb::getBlogid, event.getBlogId());
+            // 按影响行数计算点赞数变化,记录已存在/不存在时不重复计数
+            if (event.getType() == ThumbEvent.EventType.INCR) {
+                if (thumbMapper.insertIgnore(event.getUserId(), event.getBlogId()) > 0) {
+                    countMap.merge(event.getBlogId(), 1L, Long::sum);
+                }
+            } else if (thumbMapper.deleteByUserIdAndBlogId(event.getUserId(), event.getBlogId()) > 0) {
                 countMap.merge(event.getBlogId(), -1L, Long::sum);
             }
+            if (event.getEventId() != null) {
+                appliedEvents.add(event);
+            }
         });
 
         // 批量更新数据库
-        if (needRemove.get()) {
-            thumbService.remove(wrapper);
-        }
         batchUpdateBlogs(countMap);
-        batchInsertThumbs(thumbs);
+        recordAppliedEventsAfterCommit(appliedEvents);
     }
 
-    public void batchUpdateBlogs(Map<Long, Long> countMap) {
-        if (!countMap.isEmpty()) {
-            blogMapper.batchUpdateThumbCount(countMap);
+    /**
+     * 同一组合的最新事件: 发件箱事件按事件ID排序; 只有对账任务的补偿事件(没有事件ID)时按事件时间
+     */
+    private static ThumbEvent latestEvent(List<ThumbEvent> events) {
+        return events.stream()
+                .filter(event -> event.getEventId() != null)
+                .max((a, b) -> compareEventId(a.getEventId(), b.getEventId()))
+                .orElseGet(() -> events.stream()
+                        .max(Comparator.comparing(ThumbEvent::getEventTime, Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .orElseThrow());
+    }
+
+    /**
+     * 比较发件箱条目ID(毫秒时间戳-序号)的先后
+     */
+    static int compareEventId(String a, String b) {
+        RecordId left = RecordId.of(a);
+        RecordId right = RecordId.of(b);
+        int result = Long.compare(left.getTimestamp(), right.getTimestamp());
+        return result != 0 ? result : Long.compare(left.getSequence(), right.getSequence());
+    }
+
+    /**
+     * 一次管道读取各组合已写入数据库的最新事件ID
+     */
+    private Map<Pair<Long, Long>, String> loadAppliedEventIds(Map<Pair<Long, Long>, ThumbEvent> latestEvents) {
+        List<Pair<Long, Long>> pairs = latestEvents.entrySet().stream()
+                .filter(entry -> entry.getValue().getEventId() != null)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (pairs.isEmpty()) {
+            return Map.of();
+        }
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            pairs.forEach(pair -> stringConnection.hGet(
+                    ThumbConstant.THUMB_OUTBOX_APPLIED_KEY_PREFIX + pair.getKey(), pair.getValue().toString()));
+            return null;
+        });
+        Map<Pair<Long, Long>, String> appliedIds = new HashMap<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            if (results.get(i) instanceof String appliedId) {
+                appliedIds.put(pairs.get(i), appliedId);
+            }
+        }
+        return appliedIds;
+    }
+
+    /**
+     * 事务提交后记录已处理的事件ID,回滚时数据库没有变化,不能记录
+     * 记录失败时重复投递的事件按影响行数处理,不会重复计数
+     * 布隆过滤器在取消点赞时已经删除并通知其他节点,这里不再删除: 事件写入数据库时用户可能已经重新点赞
+     */
+    private void recordAppliedEventsAfterCommit(List<ThumbEvent> appliedEvents) {
+        if (appliedEvents.isEmpty()) {
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordAppliedEvents(appliedEvents);
+            }
+        });
     }
 
-    public void batchInsertThumbs(List<Thumb> thumbs) {
-        if (!thumbs.isEmpty()) {
-            // 分批次插入
-            thumbService.saveBatch(thumbs, 500);
+    private void recordAppliedEvents(List<ThumbEvent> appliedEvents) {
+        if (appliedEvents.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(appliedEvents.size());
+        List<String> args = new ArrayList<>(appliedEvents.size() * 2 + 1);
+        args.add(String.valueOf(ThumbConstant.THUMB_OUTBOX_APPLIED_EXPIRE_SECONDS));
+        for (ThumbEvent event : appliedEvents) {
+            keys.add(ThumbConstant.THUMB_OUTBOX_APPLIED_KEY_PREFIX + event.getUserId());
+            args.add(event.getBlogId().toString());
+            args.add(event.getEventId());
+        }
+        try {
+            stringRedisTemplate.execute(RedisLuaScriptConstant.OUTBOX_APPLIED_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            log.error("记录已处理的点赞事件失败: {} 条", appliedEvents.size(), e);
+        }
+    }
+
+    public void batchUpdateBlogs(Map<Long, Long> countMap) {
+        if (!countMap.isEmpty()) {
+            blogMapper.batchUpdateThumbCount(countMap);
         }
     }
 
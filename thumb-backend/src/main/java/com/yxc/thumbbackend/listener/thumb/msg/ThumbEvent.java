@@ -33,6 +33,12 @@ public class ThumbEvent implements Serializable {
      * 事件发生时间  
      */  
     private LocalDateTime eventTime;
+
+    /**
+     * 事件ID: 发件箱(Redis Stream)中的条目ID,同一发件箱中按产生顺序递增,消费者用来去重和判断先后
+     * 对账任务发送的补偿事件没有ID
+     */
+    private String eventId;
       
     /**  
      * 事件类型枚举  
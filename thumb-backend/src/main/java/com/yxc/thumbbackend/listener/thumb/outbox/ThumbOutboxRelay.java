@@ -0,0 +1,297 @@
+package com.yxc.thumbbackend.listener.thumb.outbox;
+
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import com.yxc.thumbbackend.listener.thumb.msg.ThumbEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.pulsar.core.PulsarTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 点赞事件发件箱转发任务
+ * 点赞/取消点赞脚本把事件与状态修改一起写入发件箱(Redis Stream),本任务在后台虚拟线程中按批读取并发送到消息队列,
+ * 消息队列确认后才在消费组中确认并删除,未确认的事件重启后重新发送(至少一次)
+ * 各节点共用一个消费组,节点宕机后其读取但未确认的事件超过 claim-idle 由其他节点接管
+ */
+@Component
+@Slf4j
+public class ThumbOutboxRelay implements ApplicationRunner {
+
+    private static final String TOPIC = "thumb-topic";
+
+    // 读取位置直接传数组,避免 read 的泛型可变参数在调用处创建泛型数组
+    // 本节点已读取但未确认的事件
+    private static final StreamOffset<String>[] PENDING_OFFSETS = offsets(ReadOffset.from("0"));
+    // 消费组中尚未分配的新事件
+    private static final StreamOffset<String>[] NEW_OFFSETS = offsets(ReadOffset.lastConsumed());
+
+    @Resource(name = "stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PulsarTemplate<ThumbEvent> pulsarTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 每次转发的最大事件数量
+     */
+    @Value("${thumb.outbox.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 没有新事件时每次读取的最长等待时间(毫秒),也是转发延迟的上限
+     */
+    @Value("${thumb.outbox.block:1000}")
+    private long blockMillis;
+
+    /**
+     * 其他节点读取后超过该时间(毫秒)仍未确认的事件由本节点接管
+     */
+    @Value("${thumb.outbox.claim-idle:60000}")
+    private long claimIdleMillis;
+
+    @Value("${thumb.hot-key.cluster.node-id:}")
+    private String nodeId;
+
+    private Counter relayedCounter;
+
+    private Counter failedCounter;
+
+    private volatile boolean running;
+
+    private Thread relayThread;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        relayedCounter = Counter.builder("thumb.outbox.relayed")
+                .description("Thumb events relayed from the outbox to the broker")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("thumb.outbox.failed")
+                .description("Thumb outbox batches stopped by a failed broker send")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void run(ApplicationArguments args) {
+        if (running) {
+            return;
+        }
+        running = true;
+        relayThread = Thread.ofVirtual().name("thumb-outbox-relay").start(this::relay);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+
+    private void relay() {
+        Consumer consumer = Consumer.from(ThumbConstant.THUMB_OUTBOX_GROUP, nodeId);
+        Duration block = Duration.ofMillis(blockMillis);
+        // 启动时先重发本节点上次读取但未确认的事件
+        boolean recovering = true;
+        long nextClaimAt = 0;
+        boolean groupReady = false;
+        while (running) {
+            try {
+                if (!groupReady) {
+                    createGroup();
+                    groupReady = true;
+                }
+                List<MapRecord<String, Object, Object>> records;
+                if (recovering) {
+                    records = stringRedisTemplate.opsForStream().read(consumer,
+                            StreamReadOptions.empty().count(batchSize), PENDING_OFFSETS);
+                    if (records == null || records.isEmpty()) {
+                        recovering = false;
+                        continue;
+                    }
+                } else if (System.currentTimeMillis() >= nextClaimAt) {
+                    nextClaimAt = System.currentTimeMillis() + claimIdleMillis;
+                    records = claimIdle(consumer);
+                    if (records.isEmpty()) {
+                        continue;
+                    }
+                } else {
+                    records = stringRedisTemplate.opsForStream().read(consumer,
+                            StreamReadOptions.empty().count(batchSize).block(block), NEW_OFFSETS);
+                    if (records == null || records.isEmpty()) {
+                        continue;
+                    }
+                }
+                if (!forward(records)) {
+                    // 未转发的事件留在待确认列表中,下一轮按原顺序重发
+                    recovering = true;
+                    failedCounter.increment();
+                    Thread.sleep(block);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("转发点赞事件发件箱失败", e);
+                recovering = true;
+                try {
+                    Thread.sleep(block);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建消费组(同时创建发件箱),已存在时忽略
+     */
+    private void createGroup() {
+        try {
+            stringRedisTemplate.opsForStream().createGroup(ThumbConstant.THUMB_OUTBOX_STREAM_KEY,
+                    ReadOffset.from("0-0"), ThumbConstant.THUMB_OUTBOX_GROUP);
+        } catch (Exception e) {
+            if (!String.valueOf(e.getMessage()).contains("BUSYGROUP")
+                    && (e.getCause() == null || !String.valueOf(e.getCause().getMessage()).contains("BUSYGROUP"))) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 接管其他节点读取后长时间未确认的事件,每次最多接管 batchSize 条
+     * 待确认列表按ID分页查询,前面是其他节点正在处理的事件时继续往后找
+     */
+    List<MapRecord<String, Object, Object>> claimIdle(Consumer consumer) {
+        Duration minIdle = Duration.ofMillis(claimIdleMillis);
+        List<RecordId> idle = new ArrayList<>();
+        Range<String> range = Range.unbounded();
+        while (idle.size() < batchSize) {
+            PendingMessages pending = stringRedisTemplate.opsForStream().pending(ThumbConstant.THUMB_OUTBOX_STREAM_KEY,
+                    ThumbConstant.THUMB_OUTBOX_GROUP, range, batchSize);
+            for (PendingMessage message : pending) {
+                if (!consumer.getName().equals(message.getConsumerName())
+                        && message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0
+                        && idle.size() < batchSize) {
+                    idle.add(message.getId());
+                }
+            }
+            if (pending.size() < batchSize) {
+                break;
+            }
+            // 下一页从本页最后一条之后开始
+            range = Range.rightUnbounded(Range.Bound.exclusive(pending.get(pending.size() - 1).getIdAsString()));
+        }
+        if (idle.isEmpty()) {
+            return List.of();
+        }
+        List<MapRecord<String, Object, Object>> claimed = stringRedisTemplate.opsForStream().claim(
+                ThumbConstant.THUMB_OUTBOX_STREAM_KEY, ThumbConstant.THUMB_OUTBOX_GROUP, consumer.getName(),
+                minIdle, idle.toArray(RecordId[]::new));
+        if (!claimed.isEmpty()) {
+            log.warn("接管其他节点未确认的点赞事件: {} 条", claimed.size());
+        }
+        return claimed;
+    }
+
+    /**
+     * 按顺序发送一批事件,只确认并删除从头开始连续发送成功的部分
+     * @return 是否全部发送成功
+     */
+    private boolean forward(List<MapRecord<String, Object, Object>> records) throws InterruptedException {
+        List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            try {
+                sends.add(pulsarTemplate.sendAsync(TOPIC, toEvent(record.getId(), record.getValue())));
+            } catch (Exception e) {
+                sends.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return acknowledgeSent(records, sends);
+    }
+
+    /**
+     * 等待发送结果,确认并删除从头开始连续发送成功的事件
+     * 第一个失败之后的事件即使发送成功也不确认,留在待确认列表中下一轮按原顺序重发,保证同一组合的事件不乱序
+     * @param sends 与 records 一一对应的发送结果
+     * @return 是否全部发送成功
+     */
+    boolean acknowledgeSent(List<MapRecord<String, Object, Object>> records, List<? extends Future<?>> sends)
+            throws InterruptedException {
+        List<RecordId> sent = new ArrayList<>(records.size());
+        boolean success = true;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                sends.get(i).get();
+                sent.add(records.get(i).getId());
+            } catch (ExecutionException e) {
+                log.error("点赞事件发送失败, id={}", records.get(i).getId(), e.getCause());
+                success = false;
+                break;
+            }
+        }
+        if (!sent.isEmpty()) {
+            RecordId[] ids = sent.toArray(RecordId[]::new);
+            stringRedisTemplate.opsForStream().acknowledge(ThumbConstant.THUMB_OUTBOX_STREAM_KEY,
+                    ThumbConstant.THUMB_OUTBOX_GROUP, ids);
+            stringRedisTemplate.opsForStream().delete(ThumbConstant.THUMB_OUTBOX_STREAM_KEY, ids);
+            relayedCounter.increment(ids.length);
+        }
+        return success;
+    }
+
+    /**
+     * 发件箱条目(u: 用户ID, b: 博客ID, e: 事件类型, t: 事件时间毫秒)转换为点赞事件,条目ID作为事件ID
+     */
+    private static ThumbEvent toEvent(RecordId id, Map<Object, Object> value) {
+        return ThumbEvent.builder()
+                .eventId(id.getValue())
+                .userId(Long.parseLong((String) value.get("u")))
+                .blogId(Long.parseLong((String) value.get("b")))
+                .type(ThumbEvent.EventType.valueOf((String) value.get("e")))
+                .eventTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong((String) value.get("t"))),
+                        ZoneId.systemDefault()))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StreamOffset<String>[] offsets(ReadOffset readOffset) {
+        return (StreamOffset<String>[]) new StreamOffset<?>[]{
+                StreamOffset.create(ThumbConstant.THUMB_OUTBOX_STREAM_KEY, readOffset)};
+    }
+}
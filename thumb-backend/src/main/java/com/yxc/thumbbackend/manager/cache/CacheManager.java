@@ -2,81 +2,404 @@ package com.yxc.thumbbackend.manager.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yxc.thumbbackend.mapper.ThumbMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
-public class CacheManager {  
-    private TopK hotKeyDetector;  
-    private Cache<String, Object> localCache;
+public class CacheManager {
+    @Resource
+    private HotKeyProperties hotKeyProperties;
 
-    // 初始化 TopK 检测器
+    @Resource
+    private ThumbMapper thumbMapper;
+
+    @Resource
+    private ThumbInvalidationPublisher thumbInvalidationPublisher;
+
+    private MultiDimensionHotKeyDetector hotKeyDetectors;
+    private TopK hotKeyDetector;
+    // (用户, 博客) -> 点赞状态
+    private ThumbStateStore localCache;
+    // 热点博客 -> 点赞用户集合
+    private Cache<Long, LongHashSet> blogLikerCache;
+    // 热点用户 -> 点赞博客集合
+    private Cache<Long, LongHashSet> userThumbCache;
+    // 点赞数过多、不适合缓存集合的博客和用户
+    private Cache<Long, Boolean> oversizedBlogs;
+    private Cache<Long, Boolean> oversizedUsers;
+    // 正在加载集合的博客和用户,避免重复加载;value 为加载期间发生的变更(成员ID -> 是否点赞),
+    // 数据库由消息队列异步写入,加载结果可能缺少这些变更,放入缓存前重放
+    private final ConcurrentHashMap<Long, Map<Long, Boolean>> loadingBlogs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Map<Long, Boolean>> loadingUsers = new ConcurrentHashMap<>();
+    // 集群维度的热点key,由 HotKeyAggregator 定时刷新
+    private volatile Set<String> globalHotKeys = Set.of();
+    // 集群维度的热点博客ID,用于 hasThumb 中不分配对象的判断
+    private volatile LongHashSet globalHotBlogIds = new LongHashSet(0);
+
+    // 初始化各维度的 TopK 检测器
+    @Bean
+    public MultiDimensionHotKeyDetector multiDimensionHotKeyDetector() {
+        Map<HotKeyDimension, TopK> detectors = new EnumMap<>(HotKeyDimension.class);
+        hotKeyProperties.getDimensions().forEach((dimension, sketch) -> detectors.put(dimension, new HeavyKeeper(
+                sketch.getK(),
+                sketch.getWidth(),
+                sketch.getDepth(),
+                sketch.getDecay(),
+                sketch.getMinCount()
+        )));
+        return hotKeyDetectors = new MultiDimensionHotKeyDetector(detectors);
+    }
+
+    // 博客维度的 TopK 检测器
+    @Bean
+    public TopK getHotKeyDetector(MultiDimensionHotKeyDetector multiDimensionHotKeyDetector) {
+        hotKeyDetector = multiDimensionHotKeyDetector.get(HotKeyDimension.BLOG);
+        return hotKeyDetector;
+    }
+
+    // 初始化本地缓存,开启统计并注册到 Micrometer(命中率、淘汰次数等)
+    @Bean
+    public ThumbStateStore localCache(MeterRegistry meterRegistry) {
+        long thumbSetExpireSeconds = hotKeyProperties.getThumbSetExpireSeconds();
+        blogLikerCache = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(thumbSetExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        userThumbCache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(thumbSetExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        oversizedBlogs = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
+        oversizedUsers = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
+        localCache = new ThumbStateStore(hotKeyProperties.getLocalStateMaxEntries(),
+                hotKeyProperties.getLocalStateExpireSeconds());
+
+        bindThumbStateMetrics(meterRegistry, localCache, "thumb.local");
+        bindCacheMetrics(meterRegistry, blogLikerCache, "thumb.blog.likers");
+        bindCacheMetrics(meterRegistry, userThumbCache, "thumb.user.thumbs");
+        return localCache;
+    }
+
+    private static void bindCacheMetrics(MeterRegistry meterRegistry, Cache<?, ?> cache, String cacheName) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+        Gauge.builder("thumb.local.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Local cache hit ratio")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    private static void bindThumbStateMetrics(MeterRegistry meterRegistry, ThumbStateStore store, String cacheName) {
+        FunctionCounter.builder("cache.gets", store, ThumbStateStore::hits)
+                .tags("cache", cacheName, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", store, ThumbStateStore::misses)
+                .tags("cache", cacheName, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", store, ThumbStateStore::evictions)
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", store, ThumbStateStore::size)
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("thumb.local.cache.memory.bytes", store, ThumbStateStore::memoryBytes)
+                .description("Local thumb state table size in bytes")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("thumb.local.cache.hit.ratio", store, s -> {
+                    long hits = s.hits();
+                    long total = hits + s.misses();
+                    return total == 0 ? 1.0 : (double) hits / total;
+                })
+                .description("Local cache hit ratio")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    // 单机或测试环境使用内存版热点key快照存储,集群环境默认使用 Redis
+    @Bean
+    @ConditionalOnProperty(name = "thumb.hot-key.cluster.store", havingValue = "memory")
+    public HotKeySnapshotStore inMemoryHotKeySnapshotStore() {
+        return new InMemoryHotKeySnapshotStore();
+    }
+
+    // 单机或测试环境使用内存版失效消息总线;static 方法不依赖 CacheManager 实例,避免循环依赖
     @Bean
-    public TopK getHotKeyDetector() {  
-        hotKeyDetector = new HeavyKeeper(  
-                // 监控 Top 100 Key  
-                100,  
-                // 宽度  
-                100000,  
-                // 深度  
-                5,  
-                // 衰减系数  
-                0.92,  
-                // 最小出现 10 次才记录  
-                3
-        );  
-        return hotKeyDetector;  
-    }  
-
-    // 初始化本地缓存
-    @Bean  
-    public Cache<String, Object> localCache() {  
-        return localCache = Caffeine.newBuilder()
-                .maximumSize(1000)  
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .build();  
-    }
-
-    // 辅助方法:获取本地缓存的key
-    public String getLocalCacheKey(String hashKey, String key) {
-        return hashKey + ":" + key;
-    }
-
-    // 从本地缓存中判断是否点赞
-    public Object get(String hashKey, String key) {
-        String localCacheKey = getLocalCacheKey(hashKey, key);
-
-        // 1. 从本地缓存中获取数据,若不存在,直接返回null,要去redis中找
-        Object value = localCache.getIfPresent(localCacheKey);
-
-        if (value == null) {
+    @ConditionalOnProperty(name = "thumb.invalidation.bus", havingValue = "memory")
+    public static ThumbInvalidationBus inMemoryThumbInvalidationBus() {
+        return new InMemoryThumbInvalidationBus();
+    }
+
+    // 从本地缓存中判断是否点赞,返回 ThumbStateStore.UNKNOWN 说明要去redis中找;访问次数由 getThumbState 记录
+    public byte get(Long userId, Long blogId) {
+        return localCache.get(userId, blogId);
+    }
+
+    // 添加数据到本地缓存
+    public void put(Long userId, Long blogId, boolean thumbed) {
+        localCache.put(userId, blogId, thumbed);
+    }
+
+    // 修改本地缓存中的值(前提存在,不然就是是手动添加了一个热点key)
+    public void putIfPresent(Long userId, Long blogId, boolean thumbed) {
+        localCache.putIfPresent(userId, blogId, thumbed);
+    }
+
+    /**
+     * 按维度从本地缓存中判断是否点赞
+     * 依次查询: 热点用户的点赞博客集合 -> 热点博客的点赞用户集合 -> (用户, 博客)组合
+     * @return true-已点赞, false-未点赞, null-本地缓存未命中
+     */
+    public Boolean getThumbState(Long userId, Long blogId) {
+        LongHashSet userThumbs = userThumbCache.getIfPresent(userId);
+        if (userThumbs != null) {
+            hotKeyDetectors.add(HotKeyDimension.USER, userId.longValue(), 1);
+            return userThumbs.contains(blogId);
+        }
+
+        LongHashSet blogLikers = blogLikerCache.getIfPresent(blogId);
+        if (blogLikers != null) {
+            hotKeyDetector.add(blogId.longValue(), 1);
+            return blogLikers.contains(userId);
+        }
+
+        byte state = get(userId, blogId);
+        if (state == ThumbStateStore.UNKNOWN) {
             return null;
         }
+        hotKeyDetector.add(blogId.longValue(), 1);
+        addPair(userId, blogId);
+        return state == ThumbStateStore.THUMBED;
+    }
+
+    /**
+     * 本地缓存未命中时记录各维度的访问次数,并按维度选择缓存策略
+     * 1. 热点博客/热点组合: 缓存(用户, 博客)组合;热点博客额外异步加载点赞用户集合
+     * 2. 热点用户: 异步加载该用户的点赞博客集合
+     */
+    public void recordAccess(Long userId, Long blogId, boolean thumbed) {
+        boolean hotBlog = hotKeyDetector.add(blogId.longValue(), 1) || isGlobalHotBlog(blogId);
+        boolean hotUser = hotKeyDetectors.add(HotKeyDimension.USER, userId.longValue(), 1);
+        boolean hotPair = addPair(userId, blogId);
 
-        // 2. 添加访问次数
-        hotKeyDetector.add(key, 1);
-        return value;
+        if (hotBlog || hotPair) {
+            put(userId, blogId, thumbed);
+        }
+        if (hotBlog) {
+            loadBlogLikers(blogId);
+        }
+        if (hotUser) {
+            loadUserThumbs(userId);
+        }
     }
 
-    // 添加数据到本地缓存
-    public void put(String hashKey, String key, Object value) {
-        String localCacheKey = getLocalCacheKey(hashKey, key);
+    /**
+     * 本节点点赞/取消点赞后更新本地缓存,并广播给其他节点
+     */
+    public void onThumbChanged(Long userId, Long blogId, boolean thumbed) {
+        putIfPresent(userId, blogId, thumbed);
+        updateThumbSets(userId, blogId, thumbed);
+        thumbInvalidationPublisher.invalidate(userId, blogId, thumbed);
+    }
 
-        localCache.put(localCacheKey, value);
+    /**
+     * 其他节点点赞/取消点赞后清理本地缓存
+     * (用户, 博客)组合直接删除,下次访问重新从 redis 加载;已缓存的集合按变更修改,避免频繁重新加载
+     */
+    public void invalidate(long userId, long blogId, boolean thumbed) {
+        localCache.remove(userId, blogId);
+        updateThumbSets(userId, blogId, thumbed);
     }
 
-    // 修改本地缓存中的值(前提存在,不然就是是手动添加了一个热点key)
-    public void putIfPresent(String hashKey, String key, Object value) {
-        String localCacheKey = getLocalCacheKey(hashKey, key);
+    // 记录(用户, 博客)组合的访问次数,ID 超过 int 范围时使用两个ID的哈希(负数),与压缩的 key 不会重叠
+    private boolean addPair(Long userId, Long blogId) {
+        long pairKey = MultiDimensionHotKeyDetector.packPairKey(userId, blogId);
+        if (pairKey <= 0) {
+            pairKey = MultiDimensionHotKeyDetector.pairKeyHash(userId, blogId);
+        }
+        return hotKeyDetectors.add(HotKeyDimension.PAIR, pairKey, 1);
+    }
+
+    /**
+     * 点赞/取消点赞后同步修改已缓存的集合,集合正在加载时记录下来,加载完成后重放
+     */
+    public void updateThumbSets(Long userId, Long blogId, boolean thumbed) {
+        LongHashSet userThumbs = recordLoadingChange(loadingUsers, userId, blogId, thumbed)
+                ? null : userThumbCache.getIfPresent(userId);
+        if (userThumbs != null) {
+            if (thumbed) {
+                userThumbs.add(blogId);
+            } else {
+                userThumbs.remove(blogId);
+            }
+        }
+        LongHashSet blogLikers = recordLoadingChange(loadingBlogs, blogId, userId, thumbed)
+                ? null : blogLikerCache.getIfPresent(blogId);
+        if (blogLikers != null) {
+            if (thumbed) {
+                blogLikers.add(userId);
+            } else {
+                blogLikers.remove(userId);
+            }
+        }
+    }
 
-        Object cacheValue = localCache.getIfPresent(localCacheKey);
+    // 集合正在加载时记录变更,与加载完成时的重放在同一个 key 上互斥
+    private static boolean recordLoadingChange(ConcurrentHashMap<Long, Map<Long, Boolean>> loading,
+                                               Long key, Long member, boolean thumbed) {
+        return loading.computeIfPresent(key, (k, changes) -> {
+            changes.put(member, thumbed);
+            return changes;
+        }) != null;
+    }
 
-        if (cacheValue != null) {
-            localCache.put(localCacheKey, value);
+    // 重放加载期间的变更后放入缓存,并结束加载
+    private static void completeLoading(ConcurrentHashMap<Long, Map<Long, Boolean>> loading, Long key,
+                                        LongHashSet loaded, Cache<Long, LongHashSet> cache) {
+        loading.compute(key, (k, changes) -> {
+            if (changes != null) {
+                changes.forEach((member, thumbed) -> {
+                    if (thumbed) {
+                        loaded.add(member);
+                    } else {
+                        loaded.remove(member);
+                    }
+                });
+            }
+            cache.put(key, loaded);
+            return null;
+        });
+    }
+
+    // 异步加载热点博客的点赞用户集合
+    private void loadBlogLikers(Long blogId) {
+        if (blogLikerCache.getIfPresent(blogId) != null || oversizedBlogs.getIfPresent(blogId) != null
+                || loadingBlogs.putIfAbsent(blogId, new HashMap<>()) != null) {
+            return;
         }
+        int maxBlogLikers = hotKeyProperties.getMaxBlogLikers();
+        Thread.startVirtualThread(() -> {
+            try {
+                List<Long> userIds = thumbMapper.selectUserIdsByBlogId(blogId, maxBlogLikers + 1);
+                if (userIds.size() > maxBlogLikers) {
+                    oversizedBlogs.put(blogId, Boolean.TRUE);
+                    return;
+                }
+                completeLoading(loadingBlogs, blogId, LongHashSet.of(userIds, userIds.size()), blogLikerCache);
+                log.info("缓存热点博客的点赞用户集合: blogId={}, size={}", blogId, userIds.size());
+            } catch (Exception e) {
+                log.error("加载热点博客的点赞用户集合失败: blogId={}", blogId, e);
+            } finally {
+                loadingBlogs.remove(blogId);
+            }
+        });
+    }
+
+    // 异步加载热点用户的点赞博客集合
+    private void loadUserThumbs(Long userId) {
+        if (userThumbCache.getIfPresent(userId) != null || oversizedUsers.getIfPresent(userId) != null
+                || loadingUsers.putIfAbsent(userId, new HashMap<>()) != null) {
+            return;
+        }
+        int maxUserThumbs = hotKeyProperties.getMaxUserThumbs();
+        Thread.startVirtualThread(() -> {
+            try {
+                List<Long> blogIds = thumbMapper.selectBlogIdsByUserId(userId, maxUserThumbs + 1);
+                if (blogIds.size() > maxUserThumbs) {
+                    oversizedUsers.put(userId, Boolean.TRUE);
+                    return;
+                }
+                completeLoading(loadingUsers, userId, LongHashSet.of(blogIds, blogIds.size()), userThumbCache);
+                log.info("缓存热点用户的点赞博客集合: userId={}, size={}", userId, blogIds.size());
+            } catch (Exception e) {
+                log.error("加载热点用户的点赞博客集合失败: userId={}", userId, e);
+            } finally {
+                loadingUsers.remove(userId);
+            }
+        });
+    }
+
+    // 清理本地缓存中指定热点key(blogId)对应的点赞用户集合,用于热点key被挤出TopK之后
+    public void evictHotKeys(Set<String> keys) {
+        evictHotKeys(HotKeyDimension.BLOG, keys);
+    }
+
+    // 按维度清理被挤出 TopK 的热点key对应的本地缓存
+    public void evictHotKeys(HotKeyDimension dimension, Set<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        switch (dimension) {
+            // 点赞状态表按(用户, 博客)存储,按博客清理需要扫描整张表; 这些条目仍由失效广播保持正确,过期或被 CLOCK 淘汰即可
+            case BLOG -> keys.forEach(key -> blogLikerCache.invalidate(Long.valueOf(key)));
+            case USER -> keys.forEach(key -> userThumbCache.invalidate(Long.valueOf(key)));
+            case PAIR -> keys.forEach(key -> {
+                // 哈希得到的组合 key(负数)对应的ID超过 int 范围,本地缓存本来就不保存
+                long packed = Long.parseLong(key);
+                if (packed > 0) {
+                    localCache.remove(ThumbStateStore.userIdOf(packed), ThumbStateStore.blogIdOf(packed));
+                }
+            });
+        }
+    }
+
+    // 清理用户在这些博客上的全部本地缓存: (用户, 博客)点赞状态、用户的点赞博客集合、博客的点赞用户集合,用于压测模拟缓存失效
+    public void evictUser(Long userId, Collection<Long> blogIds) {
+        userThumbCache.invalidate(userId);
+        blogIds.forEach(blogId -> {
+            localCache.remove(userId, blogId);
+            blogLikerCache.invalidate(blogId);
+        });
+    }
+
+    // 是否为集群维度的热点key
+    public boolean isGlobalHotKey(String key) {
+        return globalHotKeys.contains(key);
+    }
+
+    public Set<String> getGlobalHotKeys() {
+        return globalHotKeys;
+    }
+
+    // 是否为集群维度的热点博客
+    public boolean isGlobalHotBlog(long blogId) {
+        return globalHotBlogIds.contains(blogId);
+    }
+
+    // 刷新集群维度的热点key,返回不再是全局热点的key
+    public Set<String> refreshGlobalHotKeys(Set<String> keys) {
+        Set<String> removed = new HashSet<>(globalHotKeys);
+        removed.removeAll(keys);
+        LongHashSet blogIds = new LongHashSet(keys.size());
+        keys.forEach(key -> blogIds.add(Long.parseLong(key)));
+        globalHotBlogIds = blogIds;
+        globalHotKeys = Set.copyOf(keys);
+        return removed;
     }
 }
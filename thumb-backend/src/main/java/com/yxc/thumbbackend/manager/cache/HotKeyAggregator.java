@@ -0,0 +1,96 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 集群热点key聚合
+ * 负载均衡下每个节点只能看到一部分流量,全局热点在单个节点上可能达不到 TopK 门槛
+ * 1. 每个节点定时上报本地 TopK 列表
+ * 2. 获得租约的节点合并所有快照,生成全局 TopK 并回写
+ * 3. 每个节点拉取全局 TopK,将全局热点key提升到本地缓存
+ */
+@Component
+@Slf4j
+public class HotKeyAggregator {
+
+    @Resource
+    private TopK hotKeyDetector;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private HotKeySnapshotStore hotKeySnapshotStore;
+
+    /**
+     * 节点ID,默认使用 JVM 名称(pid@hostname)
+     */
+    @Value("${thumb.hot-key.cluster.node-id:}")
+    private String nodeId;
+
+    /**
+     * 全局 TopK 数量
+     */
+    @Value("${thumb.hot-key.cluster.global-k:100}")
+    private int globalK;
+
+    /**
+     * 同步间隔(毫秒)
+     */
+    @Value("${thumb.hot-key.cluster.sync-interval:10000}")
+    private long syncInterval;
+
+    @Scheduled(initialDelayString = "${thumb.hot-key.cluster.sync-interval:10000}",
+            fixedDelayString = "${thumb.hot-key.cluster.sync-interval:10000}")
+    public void sync() {
+        try {
+            // 快照有效期为3个同步周期,节点下线后自动失效
+            Duration ttl = Duration.ofMillis(syncInterval * 3);
+            String currentNodeId = getNodeId();
+
+            // 1. 上报本地 TopK
+            hotKeySnapshotStore.publish(currentNodeId, hotKeyDetector.list(), ttl);
+
+            // 2. 获得租约的节点负责合并
+            if (hotKeySnapshotStore.tryAcquireMergeLease(currentNodeId, ttl)) {
+                Map<String, List<Item>> snapshots = hotKeySnapshotStore.snapshots();
+                List<Item> merged = HotKeyMerger.merge(snapshots.values(), globalK);
+                hotKeySnapshotStore.publishGlobal(merged, ttl);
+                log.debug("合并{}个节点的热点key快照，全局热点key数量: {}", snapshots.size(), merged.size());
+            }
+
+            // 3. 拉取全局 TopK,刷新本地的全局热点key
+            Set<String> globalHotKeys = new HashSet<>();
+            for (Item item : hotKeySnapshotStore.global()) {
+                globalHotKeys.add(item.key());
+            }
+            Set<String> removed = cacheManager.refreshGlobalHotKeys(globalHotKeys);
+
+            // 4. 不再是全局热点,并且也不是本地热点的key,清理本地缓存
+            for (Item item : hotKeyDetector.list()) {
+                removed.remove(item.key());
+            }
+            cacheManager.evictHotKeys(removed);
+        } catch (Exception e) {
+            log.error("同步集群热点key失败", e);
+        }
+    }
+
+    private String getNodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        return nodeId;
+    }
+}
@@ -0,0 +1,62 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import jakarta.annotation.Resource;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点key监控端点: /actuator/hotkeys
+ * 返回各维度当前的 TopK、总计数、待清理的被挤出key数量和 sketch 参数,用于根据线上数据调整参数
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    @Resource
+    private MultiDimensionHotKeyDetector hotKeyDetectors;
+
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (HotKeyDimension dimension : HotKeyDimension.values()) {
+            result.put(dimension.name(), describe(dimension));
+        }
+        result.put("globalHotKeys", cacheManager.getGlobalHotKeys());
+        return result;
+    }
+
+    @ReadOperation
+    public DimensionReport hotKeys(@Selector HotKeyDimension dimension) {
+        return describe(dimension);
+    }
+
+    private DimensionReport describe(HotKeyDimension dimension) {
+        TopK topK = hotKeyDetectors.get(dimension);
+        return new DimensionReport(
+                hotKeyProperties.getDimensions().get(dimension),
+                topK.total(),
+                topK.expelled().size(),
+                topK.promotions(),
+                topK.list()
+        );
+    }
+
+    public record DimensionReport(HotKeyProperties.Sketch sketch,
+                                  long total,
+                                  int expelledQueueSize,
+                                  long promotions,
+                                  List<Item> topK) {
+    }
+}
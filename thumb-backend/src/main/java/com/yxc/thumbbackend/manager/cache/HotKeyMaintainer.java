@@ -0,0 +1,114 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点key检测器的生命周期管理
+ * 1. 定时对各维度的 TopK 做衰减,避免过去的热点一直占据 TopK
+ * 2. 每个维度持续消费被挤出 TopK 的 key,并清理其本地缓存,保证本地缓存只保存当前的热点数据
+ */
+@Component
+@Slf4j
+public class HotKeyMaintainer {
+
+    @Resource
+    private MultiDimensionHotKeyDetector hotKeyDetectors;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    /**
+     * 每批最多处理的被挤出key数量
+     */
+    @Value("${thumb.hot-key.expelled-batch-size:256}")
+    private int expelledBatchSize;
+
+    private volatile boolean running;
+
+    private final Map<HotKeyDimension, Thread> drainThreads = new EnumMap<>(HotKeyDimension.class);
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (HotKeyDimension dimension : HotKeyDimension.values()) {
+            drainThreads.put(dimension, Thread.ofVirtual()
+                    .name("hot-key-expelled-drainer-" + dimension.name().toLowerCase())
+                    .start(() -> drainExpelled(dimension)));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        drainThreads.values().forEach(Thread::interrupt);
+    }
+
+    /**
+     * 定时衰减(默认每5分钟一次),衰减基于 CAS,不会阻塞并发的 add
+     */
+    @Scheduled(initialDelayString = "${thumb.hot-key.fading-interval:300000}",
+            fixedDelayString = "${thumb.hot-key.fading-interval:300000}")
+    public void fading() {
+        long startTime = System.currentTimeMillis();
+        hotKeyDetectors.fading();
+        log.info("热点key衰减完成，耗时 {}ms, 博客维度当前总数: {}", System.currentTimeMillis() - startTime,
+                hotKeyDetectors.get(HotKeyDimension.BLOG).total());
+    }
+
+    /**
+     * 持续消费被挤出的key
+     */
+    private void drainExpelled(HotKeyDimension dimension) {
+        TopK hotKeyDetector = hotKeyDetectors.get(dimension);
+        List<Item> batch = new ArrayList<>(expelledBatchSize);
+        while (running) {
+            try {
+                // 1. 阻塞等待第一个被挤出的key,再顺带取走已经堆积的key,批量处理
+                Item first = hotKeyDetector.expelled().poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                hotKeyDetector.expelled().drainTo(batch, expelledBatchSize - 1);
+
+                // 2. 被挤出后又重新进入 TopK 的key,以及集群维度的热点博客不清理
+                Set<String> hotKeys = new HashSet<>();
+                for (Item item : hotKeyDetector.list()) {
+                    hotKeys.add(item.key());
+                }
+                Set<String> expelledKeys = new HashSet<>();
+                for (Item item : batch) {
+                    if (!hotKeys.contains(item.key())
+                            && (dimension != HotKeyDimension.BLOG || !cacheManager.isGlobalHotKey(item.key()))) {
+                        expelledKeys.add(item.key());
+                    }
+                }
+
+                // 3. 清理本地缓存
+                cacheManager.evictHotKeys(dimension, expelledKeys);
+                log.debug("清理被挤出TopK的热点key本地缓存: dimension={}, keys={}", dimension, expelledKeys);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("清理被挤出TopK的热点key失败: dimension={}", dimension, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
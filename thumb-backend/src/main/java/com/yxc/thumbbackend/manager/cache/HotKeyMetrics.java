@@ -0,0 +1,39 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 各维度热点key检测器的监控指标
+ */
+@Component
+public class HotKeyMetrics implements MeterBinder {
+
+    @Resource
+    private MultiDimensionHotKeyDetector hotKeyDetectors;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (HotKeyDimension dimension : HotKeyDimension.values()) {
+            TopK topK = hotKeyDetectors.get(dimension);
+            String tag = dimension.name().toLowerCase();
+
+            FunctionCounter.builder("thumb.hot.key.promotions", topK, TopK::promotions)
+                    .description("Total keys promoted into the TopK")
+                    .tag("dimension", tag)
+                    .register(registry);
+            Gauge.builder("thumb.hot.key.total", topK, TopK::total)
+                    .description("Total accesses counted by the sketch")
+                    .tag("dimension", tag)
+                    .register(registry);
+            Gauge.builder("thumb.hot.key.expelled.queue.size", topK, t -> t.expelled().size())
+                    .description("Expelled keys waiting to be drained")
+                    .tag("dimension", tag)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 热点key检测配置,每个维度可以单独配置 sketch 参数和缓存策略
+ */
+@Component
+@ConfigurationProperties(prefix = "thumb.hot-key")
+@Data
+public class HotKeyProperties {
+
+    private Map<HotKeyDimension, Sketch> dimensions = defaultDimensions();
+
+    /**
+     * 热点博客缓存点赞用户集合的最大点赞数,超过后只缓存(用户, 博客)组合
+     */
+    private int maxBlogLikers = 200000;
+
+    /**
+     * 热点用户缓存点赞博客集合的最大点赞数
+     */
+    private int maxUserThumbs = 50000;
+
+    /**
+     * 点赞集合的本地缓存时间(秒)
+     */
+    private long thumbSetExpireSeconds = 60;
+
+    /**
+     * 本地点赞状态缓存的最大组合数,每个组合约占 20~40 字节
+     */
+    private int localStateMaxEntries = 1000000;
+
+    /**
+     * 本地点赞状态缓存的过期时间(秒)
+     */
+    private int localStateExpireSeconds = 300;
+
+    @Data
+    public static class Sketch {
+        // 监控 Top k 个 key
+        private int k = 100;
+        // 宽度
+        private int width = 100000;
+        // 深度
+        private int depth = 5;
+        // 衰减系数
+        private double decay = 0.92;
+        // 最小出现次数
+        private int minCount = 3;
+
+        public Sketch() {
+        }
+
+        public Sketch(int k, int width, int minCount) {
+            this.k = k;
+            this.width = width;
+            this.minCount = minCount;
+        }
+    }
+
+    private static Map<HotKeyDimension, Sketch> defaultDimensions() {
+        Map<HotKeyDimension, Sketch> dimensions = new EnumMap<>(HotKeyDimension.class);
+        dimensions.put(HotKeyDimension.BLOG, new Sketch(100, 100000, 3));
+        dimensions.put(HotKeyDimension.USER, new Sketch(100, 50000, 20));
+        dimensions.put(HotKeyDimension.PAIR, new Sketch(1000, 100000, 3));
+        return dimensions;
+    }
+}
@@ -0,0 +1,32 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import cn.hutool.json.JSONUtil;
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * JSON 编码(原有格式),例如 {"thumbId":"temp_1718...","expireTime":...,"createTime":...}
+ */
+@Component
+@ConditionalOnProperty(name = "thumb.cache-codec", havingValue = "json")
+public class JsonThumbCacheCodec implements ThumbCacheCodec {
+
+    @Override
+    public String encode(ThumbCacheData data) {
+        return JSONUtil.toJsonStr(data);
+    }
+
+    @Override
+    public ThumbCacheData decode(String value) {
+        if (value == null || !value.startsWith("{")) {
+            return null;
+        }
+        try {
+            ThumbCacheData data = JSONUtil.toBean(value, ThumbCacheData.class);
+            return data.getExpireTime() == null ? null : data;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import com.yxc.thumbbackend.constant.RedisLuaScriptConstant;
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于 Redis ZSET 的集群热点key快照存储
+ * 只传输各节点的 TopK 列表,不传输原始访问事件
+ */
+@Component
+@ConditionalOnProperty(name = "thumb.hot-key.cluster.store", havingValue = "redis", matchIfMissing = true)
+public class RedisHotKeySnapshotStore implements HotKeySnapshotStore {
+
+    @Resource(name = "stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public void publish(String nodeId, List<Item> items, Duration ttl) {
+        // 替换快照和更新注册表在一个脚本中完成,合并任务不会读到替换过程中的空快照而误删节点
+        stringRedisTemplate.execute(RedisLuaScriptConstant.HOT_KEY_SNAPSHOT_REPLACE_SCRIPT,
+                List.of(ThumbConstant.HOT_KEY_NODE_KEY_PREFIX + nodeId, ThumbConstant.HOT_KEY_NODES_KEY),
+                replaceArgs(items, ttl, nodeId));
+    }
+
+    @Override
+    public Map<String, List<Item>> snapshots() {
+        Set<String> nodeIds = stringRedisTemplate.opsForZSet().range(ThumbConstant.HOT_KEY_NODES_KEY, 0, -1);
+        Map<String, List<Item>> result = new HashMap<>();
+        if (nodeIds == null) {
+            return result;
+        }
+        for (String nodeId : nodeIds) {
+            List<Item> items = readItems(ThumbConstant.HOT_KEY_NODE_KEY_PREFIX + nodeId);
+            if (items.isEmpty()) {
+                // 快照已过期,说明节点已下线(或没有热点key),从注册表中移除
+                stringRedisTemplate.execute(RedisLuaScriptConstant.HOT_KEY_NODE_REMOVE_SCRIPT,
+                        List.of(ThumbConstant.HOT_KEY_NODES_KEY, ThumbConstant.HOT_KEY_NODE_KEY_PREFIX + nodeId), nodeId);
+                continue;
+            }
+            result.put(nodeId, items);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean tryAcquireMergeLease(String nodeId, Duration lease) {
+        // 获取租约,已持有租约则续期;判断持有者和续期在一个脚本中完成,不会续期其他节点刚获取的租约
+        Long acquired = stringRedisTemplate.execute(RedisLuaScriptConstant.HOT_KEY_LEASE_SCRIPT,
+                List.of(ThumbConstant.HOT_KEY_MERGE_LEASE_KEY), nodeId, String.valueOf(lease.toMillis()));
+        return acquired != null && acquired == 1L;
+    }
+
+    @Override
+    public void publishGlobal(List<Item> items, Duration ttl) {
+        stringRedisTemplate.execute(RedisLuaScriptConstant.HOT_KEY_SNAPSHOT_REPLACE_SCRIPT,
+                List.of(ThumbConstant.HOT_KEY_GLOBAL_KEY), replaceArgs(items, ttl, ""));
+    }
+
+    @Override
+    public List<Item> global() {
+        return readItems(ThumbConstant.HOT_KEY_GLOBAL_KEY);
+    }
+
+    private List<Item> readItems(String key) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet().reverseRangeWithScores(key, 0, -1);
+        List<Item> items = new ArrayList<>();
+        if (tuples == null) {
+            return items;
+        }
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            if (tuple.getValue() != null && tuple.getScore() != null) {
+                items.add(new Item(tuple.getValue(), tuple.getScore().intValue()));
+            }
+        }
+        return items;
+    }
+
+    // 快照替换脚本的参数: 过期时间、节点ID、上报时间,之后每两个参数(访问次数、key)对应一项
+    private static Object[] replaceArgs(List<Item> items, Duration ttl, String nodeId) {
+        Object[] args = new Object[3 + items.size() * 2];
+        args[0] = String.valueOf(ttl.toMillis());
+        args[1] = nodeId;
+        args[2] = String.valueOf(System.currentTimeMillis());
+        int i = 3;
+        for (Item item : items) {
+            args[i++] = String.valueOf(item.count());
+            args[i++] = item.key();
+        }
+        return args;
+    }
+}
@@ -0,0 +1,55 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis pub/sub 的失效消息总线
+ * 失效消息丢失时本地缓存最多在过期时间内不一致,因此不需要 Stream 的持久化和确认
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "thumb.invalidation.bus", havingValue = "redis", matchIfMissing = true)
+public class RedisThumbInvalidationBus implements ThumbInvalidationBus {
+
+    @Resource(name = "stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void publish(InvalidationBatch batch) {
+        try {
+            stringRedisTemplate.convertAndSend(ThumbConstant.THUMB_INVALIDATION_CHANNEL, objectMapper.writeValueAsString(batch));
+        } catch (JsonProcessingException e) {
+            log.error("序列化本地缓存失效消息失败", e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationBatch> listener) {
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                String body = new String(message.getBody(), StandardCharsets.UTF_8);
+                listener.accept(objectMapper.readValue(body, InvalidationBatch.class));
+            } catch (Exception e) {
+                log.error("处理本地缓存失效消息失败", e);
+            }
+        }, new ChannelTopic(ThumbConstant.THUMB_INVALIDATION_CHANNEL));
+    }
+}
@@ -0,0 +1,18 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+
+/**
+ * 用户点赞状态键(thumb:{userId})中点赞缓存数据的编码方式
+ * 读取时必须兼容所有已经写入过的格式,切换编码方式后旧数据不需要迁移,按过期时间自然淘汰
+ * Lua 脚本中的解析见 RedisLuaScriptConstant 的 decodeThumbCache
+ */
+public interface ThumbCacheCodec {
+
+    String encode(ThumbCacheData data);
+
+    /**
+     * @return 无法解析时返回 null
+     */
+    ThumbCacheData decode(String value);
+}
@@ -0,0 +1,115 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 收集本节点的点赞状态变更,按时间窗口合并后通过失效消息总线广播
+ * 同一窗口内同一个(用户, 博客)只保留最后一次变更;广播失败的批次在下个窗口重新发送
+ * 待广播的变更有数量上限,消息总线长时间不可用时丢弃新的变更并计数,其他节点的本地缓存按过期时间失效
+ */
+@Component
+@Slf4j
+public class ThumbInvalidationPublisher {
+
+    @Resource
+    private ThumbInvalidationBus thumbInvalidationBus;
+
+    /**
+     * 每个批次最多包含的变更数量
+     */
+    @Value("${thumb.invalidation.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * 待广播的变更数量上限,超过后丢弃
+     */
+    @Value("${thumb.invalidation.max-pending:100000}")
+    private int maxPending;
+
+    // 节点ID,每次启动生成,接收方据此跳过自己发送的批次
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Queue<ThumbInvalidation> pending = new ConcurrentLinkedQueue<>();
+
+    // pending 的元素数量,ConcurrentLinkedQueue.size() 需要遍历队列
+    private final AtomicInteger pendingSize = new AtomicInteger();
+
+    // 广播失败的批次,下个窗口先于新的变更合并,保证同一个(用户, 博客)的变更顺序
+    private LinkedHashMap<Key, ThumbInvalidation> retrying = new LinkedHashMap<>();
+
+    private final Counter publishedCounter;
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+
+    public ThumbInvalidationPublisher(MeterRegistry registry) {
+        this.publishedCounter = Counter.builder("thumb.cache.invalidation.published")
+                .description("Total thumb invalidations broadcast to other nodes")
+                .register(registry);
+        this.coalescedCounter = Counter.builder("thumb.cache.invalidation.coalesced")
+                .description("Total thumb invalidations merged within a window")
+                .register(registry);
+        this.droppedCounter = Counter.builder("thumb.cache.invalidation.dropped")
+                .description("Total thumb invalidations dropped because too many were waiting to be broadcast")
+                .register(registry);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void invalidate(Long userId, Long blogId, boolean thumbed) {
+        if (pendingSize.incrementAndGet() > maxPending) {
+            pendingSize.decrementAndGet();
+            droppedCounter.increment();
+            return;
+        }
+        pending.offer(new ThumbInvalidation(userId, blogId, thumbed));
+    }
+
+    /**
+     * 每个窗口(默认100ms)把积累的变更合并后广播
+     */
+    @Scheduled(fixedDelayString = "${thumb.invalidation.window:100}")
+    public synchronized void flush() {
+        while (!retrying.isEmpty() || !pending.isEmpty()) {
+            LinkedHashMap<Key, ThumbInvalidation> merged = retrying;
+            retrying = new LinkedHashMap<>();
+            int retried = merged.size();
+            int drained = 0;
+            ThumbInvalidation invalidation;
+            while (merged.size() < maxBatchSize && (invalidation = pending.poll()) != null) {
+                pendingSize.decrementAndGet();
+                drained++;
+                merged.put(new Key(invalidation.userId(), invalidation.blogId()), invalidation);
+            }
+            if (merged.isEmpty()) {
+                return;
+            }
+            try {
+                thumbInvalidationBus.publish(new InvalidationBatch(nodeId, System.currentTimeMillis(), new ArrayList<>(merged.values())));
+                publishedCounter.increment(merged.size());
+                coalescedCounter.increment(drained - (merged.size() - retried));
+            } catch (Exception e) {
+                log.error("广播本地缓存失效消息失败, {} 条变更在下个窗口重试", merged.size(), e);
+                retrying = merged;
+                return;
+            }
+        }
+    }
+
+    private record Key(long userId, long blogId) {
+    }
+}
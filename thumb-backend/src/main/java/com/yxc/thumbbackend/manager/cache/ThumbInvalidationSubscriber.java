@@ -0,0 +1,57 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 接收其他节点广播的点赞状态变更,清理本节点的本地缓存
+ */
+@Component
+public class ThumbInvalidationSubscriber {
+
+    @Resource
+    private ThumbInvalidationBus thumbInvalidationBus;
+
+    @Resource
+    private ThumbInvalidationPublisher thumbInvalidationPublisher;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    private final Counter appliedCounter;
+    private final Timer lagTimer;
+
+    public ThumbInvalidationSubscriber(MeterRegistry registry) {
+        this.appliedCounter = Counter.builder("thumb.cache.invalidation.applied")
+                .description("Total thumb invalidations applied from other nodes")
+                .register(registry);
+        // 发送到应用的延迟,包含合并窗口;依赖节点间的时钟同步
+        this.lagTimer = Timer.builder("thumb.cache.invalidation.lag")
+                .description("Delay between a thumb change and its invalidation on other nodes")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        thumbInvalidationBus.subscribe(this::apply);
+    }
+
+    void apply(InvalidationBatch batch) {
+        // 本节点的变更已经在写入时更新过本地缓存
+        if (thumbInvalidationPublisher.getNodeId().equals(batch.nodeId())) {
+            return;
+        }
+        for (ThumbInvalidation invalidation : batch.invalidations()) {
+            cacheManager.invalidate(invalidation.userId(), invalidation.blogId(), invalidation.thumbed());
+        }
+        appliedCounter.increment(batch.invalidations().size());
+        lagTimer.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - batch.sentAt())));
+    }
+}
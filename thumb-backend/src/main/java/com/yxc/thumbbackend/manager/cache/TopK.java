@@ -1,12 +0,0 @@
-package com.yxc.thumbbackend.manager.cache;
-
-import java.util.List;
-import java.util.concurrent.BlockingQueue;  
-
-public interface TopK {  
-    AddResult add(String key, int increment);  
-    List<Item> list();  
-    BlockingQueue<Item> expelled();  
-    void fading();  
-    long total();  
-}
@@ -2,6 +2,11 @@ package com.yxc.thumbbackend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.yxc.thumbbackend.model.entity.Thumb;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
 * @author fishstar
@@ -11,6 +16,42 @@ import com.yxc.thumbbackend.model.entity.Thumb;
 */
 public interface ThumbMapper extends BaseMapper<Thumb> {
 
+    /**
+     * 查询博客的点赞用户ID,最多返回 limit 条
+     */
+    List<Long> selectUserIdsByBlogId(@Param("blogId") Long blogId, @Param("limit") int limit);
+
+    /**
+     * 查询用户点赞过的博客ID,最多返回 limit 条
+     */
+    List<Long> selectBlogIdsByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * 查询用户在指定博客中的点赞记录,用于批量判断是否点赞
+     */
+    List<Thumb> selectByUserIdAndBlogIds(@Param("userId") Long userId, @Param("blogIds") Collection<Long> blogIds);
+
+    /**
+     * 查询最大的点赞记录ID,表为空时返回 null
+     */
+    Long selectMaxId();
+
+    /**
+     * 流式读取 id 在 (afterId, toId] 范围内的点赞记录,需要在 SqlSession 关闭前遍历完
+     */
+    Cursor<Thumb> scanByIdRange(@Param("afterId") long afterId, @Param("toId") long toId);
+
+    /**
+     * 新增点赞记录,已存在时忽略
+     * @return 影响行数,0 表示记录已存在
+     */
+    int insertIgnore(@Param("userId") Long userId, @Param("blogId") Long blogId);
+
+    /**
+     * 删除点赞记录
+     * @return 影响行数,0 表示记录不存在
+     */
+    int deleteByUserIdAndBlogId(@Param("userId") Long userId, @Param("blogId") Long blogId);
 }
 
 
@@ -1,10 +1,12 @@
 package com.yxc.thumbbackend.model.dto;
 
+import com.yxc.thumbbackend.constant.ThumbConstant;
 import lombok.Data;
 
 /**
  * 点赞缓存数据DTO
- * 用于在Redis中存储点赞记录的ID和过期时间
+ * 用于在Redis中存储点赞记录的ID和过期时间,写入 Redis 时的格式见 ThumbCacheCodec
+ * thumbId 为 {@link ThumbConstant#NEGATIVE_THUMB_ID} 时表示未点赞(负缓存),没有创建时间
  */
 @Data
 public class ThumbCacheData {
@@ -38,6 +40,20 @@ public class ThumbCacheData {
         this.createTime = createTime;
     }
     
+    /**
+     * 未点赞缓存
+     */
+    public static ThumbCacheData negative(long expireTime) {
+        return new ThumbCacheData(ThumbConstant.NEGATIVE_THUMB_ID, expireTime, null);
+    }
+
+    /**
+     * 是否为未点赞缓存
+     */
+    public boolean isNegative() {
+        return ThumbConstant.NEGATIVE_THUMB_ID.equals(thumbId);
+    }
+
     /**
      * 判断是否已过期
      */
@@ -12,6 +12,10 @@ public enum LuaStatusEnum {
     SUCCESS(1L),  
     // 失败  
     FAIL(-1L),  
+    // Redis 中没有点赞状态(标记和点赞缓存都未命中),需要查询数据库后重试
+    MISS(0L),
+    // 博客创建时间未缓存,需要查询冷热后重试
+    MISS_CREATE_TIME(2L),
     ;  
   
     private final long value;  
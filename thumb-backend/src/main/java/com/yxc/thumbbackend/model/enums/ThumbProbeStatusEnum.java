@@ -0,0 +1,45 @@
+package com.yxc.thumbbackend.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 点赞状态探测脚本的返回值
+ */
+@Getter
+public enum ThumbProbeStatusEnum {
+    // 有删除标记,已取消点赞但还未同步到数据库
+    DELETED(0L),
+    // 有新增标记,已点赞但还未同步到数据库
+    ADDED(1L),
+    // 点赞缓存存在且未过期
+    CACHED(2L),
+    // 缓存未命中,热数据
+    MISS_HOT(3L),
+    // 缓存未命中,冷数据
+    MISS_COLD(4L),
+    // 缓存未命中,博客创建时间未缓存,需要查询冷热
+    MISS_UNKNOWN(5L),
+    // 未点赞缓存存在且未过期
+    NEGATIVE(6L),
+    ;
+
+    private final long value;
+
+    ThumbProbeStatusEnum(long value) {
+        this.value = value;
+    }
+
+    /**
+     * 脚本返回 null 或未知值时按 MISS_UNKNOWN 处理,走数据库
+     */
+    public static ThumbProbeStatusEnum of(Long value) {
+        if (value != null) {
+            for (ThumbProbeStatusEnum status : values()) {
+                if (status.value == value) {
+                    return status;
+                }
+            }
+        }
+        return MISS_UNKNOWN;
+    }
+}
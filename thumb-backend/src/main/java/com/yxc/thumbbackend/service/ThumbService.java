@@ -3,8 +3,13 @@ package com.yxc.thumbbackend.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.yxc.thumbbackend.model.dto.DoThumbRequest;
 import com.yxc.thumbbackend.model.entity.Thumb;
+import com.yxc.thumbbackend.model.entity.User;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
 * @author fishstar
 * @description 针对表【thumb】的数据库操作Service
@@ -28,6 +33,22 @@ public interface ThumbService extends IService<Thumb> {
      */
     Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request);
 
+    /**
+     * 点赞(异步),不阻塞调用线程,点赞状态与发件箱中的点赞事件写入 Redis 后完成
+     * @param doThumbRequest
+     * @param loginUser 登录用户,需要在请求线程中获取
+     * @return 是否点赞成功,业务错误时以 BusinessException 异常结束
+     */
+    CompletableFuture<Boolean> doThumbAsync(DoThumbRequest doThumbRequest, User loginUser);
+
+    /**
+     * 取消点赞(异步),不阻塞调用线程,点赞状态与发件箱中的取消点赞事件写入 Redis 后完成
+     * @param doThumbRequest
+     * @param loginUser 登录用户,需要在请求线程中获取
+     * @return 是否取消点赞成功,业务错误时以 BusinessException 异常结束
+     */
+    CompletableFuture<Boolean> undoThumbAsync(DoThumbRequest doThumbRequest, User loginUser);
+
     /**
      * 是否点赞
      * @param blogId
@@ -35,12 +56,53 @@ public interface ThumbService extends IService<Thumb> {
      * @return {@link Boolean }
      */
     Boolean hasThumb(Long blogId, Long userId);
+
+    /**
+     * 批量判断是否点赞,用于博客列表
+     * 一次 Redis 往返判断所有博客,剩余的用一次数据库查询
+     * @param userId 用户ID
+     * @param blogIds 博客ID列表
+     * @return 博客ID -> 是否点赞,包含所有传入的博客ID
+     */
+    Map<Long, Boolean> hasThumbs(Long userId, Collection<Long> blogIds);
     
     /**
      * 初始化布隆过滤器
      * 将数据库中已有的点赞记录加载到布隆过滤器中
      */
     void initBloomFilter();
+
+    /**
+     * 增量加载布隆过滤器
+     * 按 id 顺序加载 id 大于 afterId 的点赞记录
+     * @param afterId 已加载的最大 id,从头加载时为 0
+     * @return 加载后的最大 id,没有新记录时返回 afterId
+     */
+    long initBloomFilter(long afterId);
+
+    /**
+     * 增量加载布隆过滤器,id 在 (afterId, loadedId] 之间的记录可能已经加载过(回放重叠区),过滤器中可能存在时不再添加
+     * 支持删除的过滤器每次添加都保存一份指纹,重复添加会让之后的删除删不干净
+     * @param afterId  从这个 id 之后开始加载
+     * @param loadedId 之前加载到的最大 id
+     * @return 加载后的最大 id,没有新记录时返回 afterId
+     */
+    long initBloomFilter(long afterId, long loadedId);
+
+    /**
+     * 将点赞记录添加到布隆过滤器,并通过变更流同步到其他节点
+     * @param userId 用户ID
+     * @param blogId 博客ID
+     */
+    void addToBloomFilter(Long userId, Long blogId);
+
+    /**
+     * 从布隆过滤器中删除点赞记录(取消点赞后调用),并通过变更流同步到其他节点
+     * 同一节点对同一组合在去重窗口内只删除一次
+     * @param userId 用户ID
+     * @param blogId 博客ID
+     */
+    void removeFromBloomFilter(Long userId, Long blogId);
     
     /**
      * 判断博客是否为热数据
@@ -16,7 +16,6 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -76,13 +75,9 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
 
-        // 使用优化后的hasThumb方法逐个查询（利用布隆过滤器和缓存优化）
-        Map<Long, Boolean> blogIdToHasThumbMap = new HashMap<>();
-        
-        for (Blog blog : blogList) {
-            Boolean hasThumb = thumbService.hasThumb(blog.getId(), loginUser.getId());
-            blogIdToHasThumbMap.put(blog.getId(), hasThumb);
-        }
+        // 批量查询是否点赞: 一次 Redis 往返 + 最多一次数据库查询,而不是每篇博客单独查询
+        List<Long> blogIds = blogList.stream().map(Blog::getId).toList();
+        Map<Long, Boolean> blogIdToHasThumbMap = thumbService.hasThumbs(loginUser.getId(), blogIds);
         
         // 封装并返回blogVO列表
         List<BlogVO> blogVOList = blogList.stream()
@@ -2,17 +2,19 @@ package com.yxc.thumbbackend.service.impl;
 
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.json.JSONUtil;
+import com.google.common.collect.Lists;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.google.common.hash.BloomFilter;
+import com.yxc.thumbbackend.config.BloomFilterLoadProgress;
+import com.yxc.thumbbackend.config.RedisMembershipChangeFeed;
+import com.yxc.thumbbackend.config.ThumbFieldTtlSupport;
 import com.yxc.thumbbackend.constant.RedisLuaScriptConstant;
 import com.yxc.thumbbackend.constant.ThumbConstant;
 import com.yxc.thumbbackend.exception.BusinessException;
 import com.yxc.thumbbackend.exception.ErrorCode;
-import com.yxc.thumbbackend.listener.thumb.msg.ThumbEvent;
-import com.yxc.thumbbackend.manager.cache.AddResult;
 import com.yxc.thumbbackend.manager.cache.CacheManager;
-import com.yxc.thumbbackend.manager.cache.TopK;
+import com.yxc.thumbbackend.manager.cache.MembershipChangeFeed;
+import com.yxc.thumbbackend.manager.cache.MirroredMembershipFilter;
+import com.yxc.thumbbackend.manager.cache.ThumbCacheCodec;
 import com.yxc.thumbbackend.mapper.ThumbMapper;
 import com.yxc.thumbbackend.model.dto.DoThumbRequest;
 import com.yxc.thumbbackend.model.dto.ThumbCacheData;
@@ -20,24 +22,55 @@ import com.yxc.thumbbackend.model.entity.Blog;
 import com.yxc.thumbbackend.model.entity.Thumb;
 import com.yxc.thumbbackend.model.entity.User;
 import com.yxc.thumbbackend.model.enums.LuaStatusEnum;
+import com.yxc.thumbbackend.model.enums.ThumbProbeStatusEnum;
 import com.yxc.thumbbackend.service.BlogService;
 import com.yxc.thumbbackend.service.ThumbService;
 import com.yxc.thumbbackend.service.UserService;
 import com.yxc.thumbbackend.utils.DistributedLockUtil;
 import com.yxc.thumbbackend.utils.RedisKeyUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.pulsar.core.PulsarTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author fishstar
@@ -65,16 +98,77 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
     private StringRedisTemplate stringRedisTemplate;
 
     @Resource
-    private BloomFilter<String> thumbBloomFilter;
+    private MirroredMembershipFilter thumbFilterMirror;
 
     @Resource
     private CacheManager cacheManager;
 
     @Resource
-    private TopK hotKeyDetector;
+    private MembershipChangeFeed membershipChangeFeed;
 
     @Resource
-    private PulsarTemplate<ThumbEvent> pulsarTemplate;
+    private RedissonClient redissonClient;
+
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Resource
+    private BloomFilterLoadProgress bloomFilterLoadProgress;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ThumbFieldTtlSupport thumbFieldTtlSupport;
+
+    @Resource
+    private ThumbCacheCodec thumbCacheCodec;
+
+    /**
+     * 加载布隆过滤器的并行度(同时占用的数据库连接数)
+     */
+    @Value("${thumb.bloom.load.parallelism:4}")
+    private int bloomLoadParallelism;
+
+    /**
+     * 每个并行加载范围至少包含的 id 数量,数据量小时不切分
+     */
+    private static final long BLOOM_LOAD_MIN_RANGE = 100_000;
+
+    /**
+     * 批量判断是否点赞时,每次 Redis 脚本和数据库 IN 查询包含的博客数量
+     */
+    private static final int HAS_THUMBS_BATCH_SIZE = 500;
+
+    /**
+     * MQ 版点赞/取消点赞脚本最多重试次数: 查询数据库中的点赞状态、查询博客创建时间各一次
+     */
+    private static final int MQ_SCRIPT_MAX_RETRIES = 2;
+
+    /**
+     * 查询未命中后回写 Redis 和布隆过滤器,不占用请求线程
+     */
+    private final ExecutorService writeBackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 异步点赞/取消点赞中可能阻塞的步骤(预检查、本地缓存和过滤器更新),不占用 Tomcat 线程和 Redis/Pulsar 的回调线程
+     */
+    private final ExecutorService thumbExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder negativeMisses = new LongAdder();
+
+    /**
+     * 未点赞缓存的过期时间(秒),比点赞缓存短,点赞/取消点赞时会直接覆盖
+     */
+    @Value("${thumb.negative-cache.ttl-seconds:600}")
+    private long negativeCacheTtlSeconds;
+
+    /**
+     * 用户点赞状态键的字段数达到该值后不再写入未点赞缓存
+     */
+    @Value("${thumb.negative-cache.max-fields:2000}")
+    private int negativeCacheMaxFields;
 
     /**
      * 点赞锁的key前缀
@@ -88,12 +182,26 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     @Override
     public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
-        return doThumbWithMQ(doThumbRequest, request);
+        return join(doThumbAsync(doThumbRequest, userService.getLoginUser(request)));
     }
 
     @Override
     public Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
-        return undoThumbWithMQ(doThumbRequest, request);
+        return join(undoThumbAsync(doThumbRequest, userService.getLoginUser(request)));
+    }
+
+    /**
+     * 等待异步点赞/取消点赞完成,业务异常原样抛出
+     */
+    private static Boolean join(CompletableFuture<Boolean> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     /**
@@ -136,7 +244,7 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
 
         // 存入用户点赞状态缓存（使用JSON格式存储过期时间和创建时间，thumbId用临时ID）
         long thumbCreateTime = System.currentTimeMillis();
-        String thumbCacheData = JSONUtil.toJsonStr(new ThumbCacheData("temp_" + thumbCreateTime, expireTime, thumbCreateTime));
+        String thumbCacheData = thumbCacheCodec.encode(new ThumbCacheData("temp_" + thumbCreateTime, expireTime, thumbCreateTime));
 
         // 5. 执行Lua脚本
         Long result = stringRedisTemplate.execute(
@@ -144,7 +252,9 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                 Arrays.asList(tempThumbKey, userThumbKey),
                 loginUser.getId().toString(),
                 blogId.toString(),
-                thumbCacheData
+                thumbCacheData,
+                String.valueOf(expireTime),
+                thumbFieldTtlSupport.scriptArg()
         );
 
         // 6. 处理执行结果
@@ -160,12 +270,11 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
             String deletedKey = ThumbConstant.USER_THUMB_DELETED_KEY_PREFIX + loginUser.getId();
             stringRedisTemplate.opsForHash().delete(deletedKey, blogId.toString());
 
-            // 修改本地缓存中的值
-            cacheManager.putIfPresent(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogId.toString(), ThumbConstant.THUMB_CONSTANT);
+            // 修改本地缓存中的值,并通知其他节点
+            cacheManager.onThumbChanged(loginUser.getId(), blogId, true);
 
             // 添加到布隆过滤器
-            String bloomKey = generateBloomKey(loginUser.getId(), blogId);
-            thumbBloomFilter.put(bloomKey);
+            addToBloomFilter(loginUser.getId(), blogId);
 
             // 设置临时的"已新增"标记，防止定时任务延迟导致数据库查询不到记录(冷热数据分离,冷数据直接从数据库中查找,如果本地缓存没有)
             // 计算当前数据所在时间片何时会被同步完成
@@ -219,11 +328,15 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
 
         // 5. 执行Lua脚本
+        ThumbCacheData negativeCache = negativeCache();
         Long result = stringRedisTemplate.execute(
                 RedisLuaScriptConstant.SCHEDULED_UNTHUMB_SCRIPT,
                 Arrays.asList(tempThumbKey, userThumbKey),
                 loginUser.getId().toString(),
-                blogId.toString()
+                blogId.toString(),
+                thumbCacheCodec.encode(negativeCache),
+                negativeCache.getExpireTime().toString(),
+                thumbFieldTtlSupport.scriptArg()
         );
 
         // 6. 处理执行结果
@@ -239,10 +352,11 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
             String addedKey = ThumbConstant.USER_THUMB_ADDED_KEY_PREFIX + loginUser.getId();
             stringRedisTemplate.opsForHash().delete(addedKey, blogId.toString());
 
-            // 修改本地缓存中的值
-            String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
+            // 修改本地缓存中的值,并通知其他节点
+            cacheManager.onThumbChanged(loginUser.getId(), blogId, false);
 
-            cacheManager.putIfPresent(hashKey, blogId.toString(), ThumbConstant.UN_THUMB_CONSTANT);
+            // 从布隆过滤器中删除,避免取消的点赞一直被判断为"可能存在"
+            removeFromBloomFilter(loginUser.getId(), blogId);
 
             // 设置临时的"已删除"标记，防止在定时器同步前重复取消点赞
             // 计算当前数据所在时间片何时会被同步完成
@@ -269,227 +383,232 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
     }
 
     /**
-     * 消息队列版本的点赞
-     * @param doThumbRequest
-     * @param request
-     * @return
+     * 消息队列版本的点赞(异步)
+     * 通常只有一次 Redis 往返: 状态判断、冷热判断、点赞记录、发件箱和过滤器变更流都在同一个脚本中完成,本地缓存和过滤器的结果作为参数传入;
+     * Redis 无法判断时(点赞缓存未命中或博客创建时间未缓存)才在虚拟线程中查询数据库,再带着结果重试
+     * 点赞事件由 {@link com.yxc.thumbbackend.listener.thumb.outbox.ThumbOutboxRelay} 转发到消息队列,请求不等待消息队列确认
      */
-    private Boolean doThumbWithMQ(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+    @Override
+    public CompletableFuture<Boolean> doThumbAsync(DoThumbRequest doThumbRequest, User loginUser) {
         // 1. 校验参数
         if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
-            throw new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数为空");
+            return CompletableFuture.failedFuture(new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数为空"));
         }
-
-        // 2. 获取登录用户
-        User loginUser = userService.getLoginUser(request);
+        Long userId = loginUser.getId();
         Long blogId = doThumbRequest.getBlogId();
+        return thumbMq(userId, blogId, localThumbState(userId, blogId), "", 0);
+    }
 
-        // 3. 外部预检查（冷热数据分离优化）
-        Boolean exists = this.hasThumb(blogId, loginUser.getId());
-        if (exists) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "请勿重复点赞");
-        }
-
-        // 4. 构建脚本需要的参数
-        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
-
-        // 根据冷热数据策略选择缓存过期时间
-        Boolean isHot = isHotData(blogId);
-        long expireTime;
-        if (isHot) {
-            expireTime = System.currentTimeMillis() + ThumbConstant.HOT_DATA_CACHE_EXPIRE_TIME;
-            log.info("点赞热数据，使用长缓存时间: blogId={}", blogId);
-        } else {
-            expireTime = System.currentTimeMillis() + ThumbConstant.COLD_DATA_CACHE_EXPIRE_TIME;
-            log.info("点赞冷数据，使用短缓存时间: blogId={}", blogId);
-        }
-
-        // 存入用户点赞状态缓存（使用JSON格式存储过期时间和创建时间，thumbId用临时ID）
-        long thumbCreateTime = System.currentTimeMillis();
-        String thumbCacheData = JSONUtil.toJsonStr(new ThumbCacheData("temp_" + thumbCreateTime, expireTime, thumbCreateTime));
-
-        // 5. 执行Lua脚本
-        Long result = stringRedisTemplate.execute(
-                RedisLuaScriptConstant.MQ_THUMB_SCRIPT,
-                Arrays.asList(userThumbKey),
+    /**
+     * 执行 MQ 版点赞脚本,需要查询数据库/博客创建时间时查询后重试
+     * @param localState 本地缓存或数据库中的点赞状态(1/0,空表示未知)
+     * @param hotHint    查询到的冷热(1/0,空表示由脚本读取博客创建时间)
+     */
+    private CompletableFuture<Boolean> thumbMq(Long userId, Long blogId, String localState, String hotHint, int retries) {
+        // 冷热数据的点赞缓存都准备好,由脚本根据博客创建时间选择(thumbId用临时ID)
+        long now = System.currentTimeMillis();
+        long hotExpireAt = now + ThumbConstant.HOT_DATA_CACHE_EXPIRE_TIME;
+        long coldExpireAt = now + ThumbConstant.COLD_DATA_CACHE_EXPIRE_TIME;
+        long markerTtl = markerTtlSeconds();
+        List<String> keys = Arrays.asList(RedisKeyUtil.getUserThumbKey(userId),
+                RedisKeyUtil.getUserThumbDeletedKey(userId),
+                RedisKeyUtil.getUserThumbAddedKey(userId),
+                ThumbConstant.THUMB_OUTBOX_STREAM_KEY,
+                RedisKeyUtil.getBlogCreateTimeKey(blogId),
+                ThumbConstant.THUMB_FILTER_CHANGE_STREAM_KEY);
+
+        // 2. 执行Lua脚本(一次往返完成状态判断、冷热判断、点赞记录、删除/新增标记,并写入发件箱和过滤器变更流)
+        return this.<Long>evalAsync(RedisLuaScriptConstant.MQ_THUMB_SCRIPT, RScript.ReturnType.INTEGER, keys,
                 blogId.toString(),
-                thumbCacheData
-        );
-
-        // 6. 处理执行结果
-        if (result != null && result.equals(LuaStatusEnum.FAIL.getValue())) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "点赞失败，已点赞");
-        }
-
-        boolean success = result != null && result.equals(LuaStatusEnum.SUCCESS.getValue());
-
-        // 7. 如果Lua脚本执行成功，更新缓存
-        if (success) {
-            // 发送消息给MQ(同步数据库)
-            ThumbEvent thumbEvent = ThumbEvent.builder()
-                    .userId(loginUser.getId())
-                    .blogId(blogId)
-                    .type(ThumbEvent.EventType.INCR)
-                    .eventTime(LocalDateTime.now())
-                    .build();
-
-            AtomicReference<Boolean> sendStatus = new AtomicReference<>(true);
-
-            pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-                sendStatus.set(false);
-
-                //消息发送失败,数据库不能完成同步,必须删除redis中的值
-                stringRedisTemplate.opsForHash().delete(userThumbKey, blogId.toString());
-
-                log.error("点赞事件发送失败, userId={}, blogId={}", loginUser.getId(), blogId, ex);
-
-                return null;
-            });
-
-            // 消息发送失败直接返回
-            if (sendStatus.get() == false) {
-                return false;
+                userId.toString(),
+                String.valueOf(now),
+                localState,
+                filterAbsentArg(userId, blogId),
+                thumbFieldTtlSupport.scriptArg(),
+                hotHint,
+                String.valueOf(ThumbConstant.HOT_DATA_TIME_THRESHOLD),
+                thumbCacheCodec.encode(new ThumbCacheData("temp_" + now, hotExpireAt, now)),
+                String.valueOf(hotExpireAt),
+                thumbCacheCodec.encode(new ThumbCacheData("temp_" + now, coldExpireAt, now)),
+                String.valueOf(coldExpireAt),
+                "added_" + now,
+                String.valueOf(markerTtl),
+                feedNodeArg(),
+                feedMaxLengthArg()
+        ).thenComposeAsync(result -> {
+            // 3. 处理执行结果
+            if (result == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (result == LuaStatusEnum.FAIL.getValue()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "请勿重复点赞");
+            }
+            if (result == LuaStatusEnum.MISS.getValue() && retries < MQ_SCRIPT_MAX_RETRIES) {
+                // Redis 中没有点赞状态,查询一次数据库
+                return CompletableFuture.supplyAsync(() -> dbThumbState(userId, blogId), thumbExecutor)
+                        .thenCompose(state -> thumbMq(userId, blogId, state, hotHint, retries + 1));
+            }
+            if (result == LuaStatusEnum.MISS_CREATE_TIME.getValue() && retries < MQ_SCRIPT_MAX_RETRIES) {
+                // 博客创建时间未缓存,查询并缓存后重试
+                return CompletableFuture.supplyAsync(() -> isHotData(blogId) ? "1" : "0", thumbExecutor)
+                        .thenCompose(hot -> thumbMq(userId, blogId, localState, hot, retries + 1));
+            }
+            if (result != LuaStatusEnum.SUCCESS.getValue()) {
+                return CompletableFuture.completedFuture(false);
             }
 
-            // 清理可能存在的删除标记（用户重新点赞后应该清除之前的取消点赞标记）
-            String deletedKey = ThumbConstant.USER_THUMB_DELETED_KEY_PREFIX + loginUser.getId();
-            stringRedisTemplate.opsForHash().delete(deletedKey, blogId.toString());
-
-            // 修改本地缓存中的值
-            cacheManager.putIfPresent(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogId.toString(), ThumbConstant.THUMB_CONSTANT);
-
-            // 添加到布隆过滤器
-            String bloomKey = generateBloomKey(loginUser.getId(), blogId);
-            thumbBloomFilter.put(bloomKey);
-
-            // 设置临时的"已新增"标记，防止在消息队列消费前由于数据库查询不到记录导致重复点赞(冷热数据分离,冷数据直接从数据库中查找,如果本地缓存没有)
-            // 计算当前数据所在时间片何时会被同步完成
-            long currentTime = System.currentTimeMillis() / 1000; // 转为秒
-            long currentTimeSlice = (currentTime / 10) * 10; // 当前10秒时间片
-            long nextSyncTime = currentTimeSlice + 20; // 延迟2个时间片同步
-            long syncExpireTime = nextSyncTime + 5; // 同步完成后再保留5秒缓冲
-
-            String addedKey = ThumbConstant.USER_THUMB_ADDED_KEY_PREFIX + loginUser.getId();
-            stringRedisTemplate.opsForHash().put(
-                    addedKey,
-                    blogId.toString(),
-                    "added_" + System.currentTimeMillis()
-            );
-            // 设置精确的过期时间
-            long ttlSeconds = syncExpireTime - (System.currentTimeMillis() / 1000);
-            stringRedisTemplate.expire(addedKey, Duration.ofSeconds(Math.max(ttlSeconds, 25)));
+            // 修改本地缓存中的值,并通知其他节点
+            cacheManager.onThumbChanged(userId, blogId, true);
 
-            log.info("点赞成功，已更新缓存并设置新增标记到{}秒: userId={}, blogId={}",
-                    syncExpireTime, loginUser.getId(), blogId);
-        }
+            // 添加到布隆过滤器(变更流已由脚本写入)
+            applyFilterChange(userId, blogId, true);
 
-        return success;
+            log.info("点赞成功，已更新缓存并设置新增标记{}秒: userId={}, blogId={}", markerTtl, userId, blogId);
+            return CompletableFuture.completedFuture(true);
+        }, thumbExecutor);
     }
 
     /**
-     * 消息队列版本的取消点赞
-     * @param doThumbRequest
-     * @param request
-     * @return
+     * 消息队列版本的取消点赞(异步),流程与 {@link #doThumbAsync} 相同
      */
-    private Boolean undoThumbWithMQ(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+    @Override
+    public CompletableFuture<Boolean> undoThumbAsync(DoThumbRequest doThumbRequest, User loginUser) {
         // 1. 校验参数
         if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
-            throw new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数为空");
+            return CompletableFuture.failedFuture(new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数为空"));
         }
-
-        // 2. 获取登录用户
-        User loginUser = userService.getLoginUser(request);
+        Long userId = loginUser.getId();
         Long blogId = doThumbRequest.getBlogId();
+        return unthumbMq(userId, blogId, localThumbState(userId, blogId), 0);
+    }
 
-        // 3. 外部预检查（冷热数据分离优化）
-        Boolean exists = this.hasThumb(blogId, loginUser.getId());
-        if (!exists) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "无点赞记录");
-        }
-
-        // 4. 构建Redis键
-        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
-
-        // 为后续MQ发送消息失败使用
-        String thumbCacheData = (String) stringRedisTemplate.opsForHash().get(userThumbKey, blogId.toString());
-
-        if (thumbCacheData == null) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "无点赞记录");
-        }
+    /**
+     * 执行 MQ 版取消点赞脚本,需要查询数据库时查询后重试
+     * @param localState 本地缓存或数据库中的点赞状态(1/0,空表示未知)
+     */
+    private CompletableFuture<Boolean> unthumbMq(Long userId, Long blogId, String localState, int retries) {
+        long now = System.currentTimeMillis();
+        ThumbCacheData negativeCache = negativeCache();
+        long markerTtl = markerTtlSeconds();
+        List<String> keys = Arrays.asList(RedisKeyUtil.getUserThumbKey(userId),
+                RedisKeyUtil.getUserThumbDeletedKey(userId),
+                RedisKeyUtil.getUserThumbAddedKey(userId),
+                ThumbConstant.THUMB_OUTBOX_STREAM_KEY,
+                ThumbConstant.THUMB_FILTER_CHANGE_STREAM_KEY);
+
+        // 2. 执行Lua脚本(一次往返完成状态判断、覆盖点赞记录、新增/删除标记,并写入发件箱和过滤器变更流)
+        return this.<Long>evalAsync(RedisLuaScriptConstant.MQ_UNTHUMB_SCRIPT, RScript.ReturnType.INTEGER, keys,
+                blogId.toString(),
+                userId.toString(),
+                String.valueOf(now),
+                localState,
+                filterAbsentArg(userId, blogId),
+                thumbFieldTtlSupport.scriptArg(),
+                thumbCacheCodec.encode(negativeCache),
+                negativeCache.getExpireTime().toString(),
+                "deleted_" + now,
+                String.valueOf(markerTtl),
+                feedNodeArg(),
+                feedMaxLengthArg()
+        ).thenComposeAsync(result -> {
+            // 3. 处理执行结果
+            if (result == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (result == LuaStatusEnum.FAIL.getValue()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "无点赞记录");
+            }
+            if (result == LuaStatusEnum.MISS.getValue() && retries < MQ_SCRIPT_MAX_RETRIES) {
+                // Redis 中没有点赞状态,查询一次数据库
+                return CompletableFuture.supplyAsync(() -> dbThumbState(userId, blogId), thumbExecutor)
+                        .thenCompose(state -> unthumbMq(userId, blogId, state, retries + 1));
+            }
+            if (result != LuaStatusEnum.SUCCESS.getValue()) {
+                return CompletableFuture.completedFuture(false);
+            }
 
-        // 5. 执行Lua脚本
-        Long result = stringRedisTemplate.execute(
-                RedisLuaScriptConstant.MQ_UNTHUMB_SCRIPT,
-                Arrays.asList(userThumbKey),
-                blogId.toString()
-        );
+            // 修改本地缓存中的值,并通知其他节点
+            cacheManager.onThumbChanged(userId, blogId, false);
 
-        // 6. 处理执行结果
-        if (result != null && result.equals(LuaStatusEnum.FAIL.getValue())) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "取消点赞失败，未点赞");
-        }
+            // 从布隆过滤器中删除,避免取消的点赞一直被判断为"可能存在"(变更流已由脚本写入)
+            applyFilterChange(userId, blogId, false);
 
-        boolean success = result != null && result.equals(LuaStatusEnum.SUCCESS.getValue());
+            log.info("取消点赞成功，清理新增标记并设置删除标记{}秒: userId={}, blogId={}", markerTtl, userId, blogId);
+            return CompletableFuture.completedFuture(true);
+        }, thumbExecutor);
+    }
 
-        // 7. 如果Lua脚本执行成功，清理缓存
-        if (success) {
-            // 发送消息给MQ(同步数据库)
-            ThumbEvent thumbEvent = ThumbEvent.builder()
-                    .userId(loginUser.getId())
-                    .blogId(blogId)
-                    .type(ThumbEvent.EventType.DECR)
-                    .eventTime(LocalDateTime.now())
-                    .build();
+    /**
+     * 本地缓存中的点赞状态,作为脚本参数(1/0,未缓存时为空)
+     */
+    private String localThumbState(Long userId, Long blogId) {
+        Boolean local = cacheManager.getThumbState(userId, blogId);
+        return local == null ? "" : local ? "1" : "0";
+    }
 
-            AtomicReference<Boolean> sendStatus = new AtomicReference<>(true);
+    /**
+     * 过滤器判断一定未点赞时为 1(加载完成前过滤器不完整,不能用来判断)
+     */
+    private String filterAbsentArg(Long userId, Long blogId) {
+        return bloomFilterLoadProgress.isReady() && !thumbFilterMirror.mightContain(userId, blogId) ? "1" : "0";
+    }
 
-            pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-                sendStatus.set(false);
-                //消息发送失败,数据库不能完成同步,必须新增redis中的值
-                stringRedisTemplate.opsForHash().put(userThumbKey, blogId.toString(), thumbCacheData);
+    /**
+     * 查询数据库中的点赞状态(1/0),结果在后台回写到缓存
+     */
+    private String dbThumbState(Long userId, Long blogId) {
+        return loadThumbsFromDb(userId, Map.of(blogId, ThumbProbeStatusEnum.MISS_UNKNOWN)).isEmpty() ? "0" : "1";
+    }
 
-                log.error("取消点赞事件发送失败, userId={}, blogId={}", loginUser.getId(), blogId, ex);
+    /**
+     * 使用 Redis 变更流时由点赞脚本写入过滤器变更,传入本节点ID; 其他实现由 {@link #applyFilterChange} 追加
+     */
+    private String feedNodeArg() {
+        return membershipChangeFeed instanceof RedisMembershipChangeFeed ? thumbFilterMirror.nodeId() : "";
+    }
 
-                return null;
-            });
+    private String feedMaxLengthArg() {
+        return membershipChangeFeed instanceof RedisMembershipChangeFeed redisFeed
+                ? String.valueOf(redisFeed.maxLength()) : "0";
+    }
 
-            // 消息发送失败直接返回
-            if (sendStatus.get() == false) {
-                return false;
+    /**
+     * 点赞脚本成功后修改本地过滤器,变更流未由脚本写入时同时追加
+     */
+    private void applyFilterChange(Long userId, Long blogId, boolean added) {
+        boolean appended = membershipChangeFeed instanceof RedisMembershipChangeFeed;
+        if (added) {
+            if (appended) {
+                thumbFilterMirror.addAppended(userId, blogId);
+            } else {
+                thumbFilterMirror.add(userId, blogId);
             }
-
-            // 清理可能存在的新增标记（用户取消点赞后应该清除之前的点赞新增标记）
-            String addedKey = ThumbConstant.USER_THUMB_ADDED_KEY_PREFIX + loginUser.getId();
-            stringRedisTemplate.opsForHash().delete(addedKey, blogId.toString());
-
-            // 修改本地缓存中的值
-            String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
-
-            cacheManager.putIfPresent(hashKey, blogId.toString(), ThumbConstant.UN_THUMB_CONSTANT);
-
-            // 设置临时的"已删除"标记，防止在消息队列消费前重复取消点赞
-            // 计算当前数据所在时间片何时会被同步完成
-            long currentTime = System.currentTimeMillis() / 1000; // 转为秒
-            long currentTimeSlice = (currentTime / 10) * 10; // 当前10秒时间片
-            long nextSyncTime = currentTimeSlice + 20; // 延迟2个时间片同步
-            long expireTime = nextSyncTime + 5; // 同步完成后再保留5秒缓冲
-
-            String deletedKey = ThumbConstant.USER_THUMB_DELETED_KEY_PREFIX + loginUser.getId();
-            stringRedisTemplate.opsForHash().put(
-                    deletedKey,
-                    blogId.toString(),
-                    "deleted_" + System.currentTimeMillis()
-            );
-            // 设置精确的过期时间
-            long ttlSeconds = expireTime - (System.currentTimeMillis() / 1000);
-            stringRedisTemplate.expire(deletedKey, Duration.ofSeconds(Math.max(ttlSeconds, 25)));
-
-            log.info("取消点赞成功，清理新增标记并设置删除标记到{}秒: userId={}, blogId={}",
-                    expireTime, loginUser.getId(), blogId);
+        } else if (appended) {
+            thumbFilterMirror.removeAppended(userId, blogId);
+        } else {
+            thumbFilterMirror.remove(userId, blogId);
         }
+    }
 
-        return success;
+    /**
+     * 通过 Redisson 异步执行脚本(开启了脚本缓存,使用 EVALSHA),不阻塞调用线程
+     */
+    private <T> CompletableFuture<T> evalAsync(RedisScript<?> script, RScript.ReturnType returnType, List<String> keys,
+                                               Object... args) {
+        RFuture<T> future = redissonClient.getScript(StringCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE,
+                script.getScriptAsString(), returnType, new ArrayList<>(keys), args);
+        return future.toCompletableFuture();
+    }
+
+    /**
+     * 新增/删除标记的过期时间(秒): 当前数据所在时间片同步完成后再保留5秒缓冲
+     */
+    private long markerTtlSeconds() {
+        long currentTime = System.currentTimeMillis() / 1000; // 转为秒
+        long currentTimeSlice = (currentTime / 10) * 10; // 当前10秒时间片
+        long nextSyncTime = currentTimeSlice + 20; // 延迟2个时间片同步
+        long expireTime = nextSyncTime + 5; // 同步完成后再保留5秒缓冲
+        return Math.max(expireTime - currentTime, 25);
     }
 
     /**
@@ -536,8 +655,7 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                 //8.双写：将点赞记录存入redis中（带过期时间）和布隆过滤器
                 if (update && save) {
                     // 添加到布隆过滤器
-                    String bloomKey = generateBloomKey(loginUser.getId(), doThumbRequest.getBlogId());
-                    thumbBloomFilter.put(bloomKey);
+                    addToBloomFilter(loginUser.getId(), doThumbRequest.getBlogId());
 
                     // 根据冷热数据策略选择缓存过期时间
                     Boolean isHot = isHotData(doThumbRequest.getBlogId());
@@ -555,7 +673,7 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                     stringRedisTemplate.opsForHash().put(
                             ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(),
                             doThumbRequest.getBlogId().toString(),
-                            JSONUtil.toJsonStr(cacheData)
+                            thumbCacheCodec.encode(cacheData)
                     );
                 }
 
@@ -613,161 +731,266 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        //----------------------通过是否有删除标记快速判断----------------------
-        // 0.先检查是否有删除标记（表示点赞记录已删除但未来得及同步到数据库,防止重复取消点赞）
-        String deletedKey = ThumbConstant.USER_THUMB_DELETED_KEY_PREFIX + userId;
-        Object deletedFlag = stringRedisTemplate.opsForHash().get(deletedKey, blogId.toString());
-        if (deletedFlag != null) {
-            // 存在删除标记，说明已经取消点赞但还未同步到数据库
+        //----------------------一次往返探测删除/新增标记、点赞缓存和冷热----------------------
+        // 删除标记: 已取消点赞但未同步到数据库,防止重复取消点赞; 新增标记: 已点赞但未同步到数据库,防止定时任务延迟导致查询不到
+        ThumbProbeStatusEnum probe = probeThumbStates(userId, List.of(blogId)).get(0);
+        if (probe == ThumbProbeStatusEnum.DELETED) {
             return false;
         }
-
-        //----------------------通过是否有新增标记快速判断----------------------
-        // 1.检查是否有新增标记（表示点赞记录已新增但未来得及同步到数据库,防止定时任务延迟导致查询不到）
-        String addedKey = ThumbConstant.USER_THUMB_ADDED_KEY_PREFIX + userId;
-        Object addedFlag = stringRedisTemplate.opsForHash().get(addedKey, blogId.toString());
-        if (addedFlag != null) {
-            // 存在新增标记，说明已经点赞但还未同步到数据库
+        if (probe == ThumbProbeStatusEnum.ADDED) {
             return true;
         }
 
         //----------------------通过本地缓存判断是否点赞(解决热点key使redis压力过大和用户恶意多次请求redis)--------------
-        String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
-
-        Object value = cacheManager.get(hashKey, blogId.toString());
-
-        //value!=null的情况有两种,如果value==null,只能说明不是热点key,需要去缓存中查询
-        if (value != null && !((Long) value).equals(ThumbConstant.UN_THUMB_CONSTANT)) {
-            return true;
-        } else if (value != null && ((Long) value).equals(ThumbConstant.UN_THUMB_CONSTANT)) {
-            return false;
+        // 按 热点用户 -> 热点博客 -> 热点(用户, 博客)组合 的顺序查询本地缓存,null 说明不是热点key,需要去缓存中查询
+        Boolean localResult = cacheManager.getThumbState(userId, blogId);
+        if (localResult != null) {
+            return localResult;
         }
 
         //----------------------通过redis判断是否点赞(解决redis缓存穿透和缓存击穿)--------------
-        // 2.先通过布隆过滤器判断是否可能存在
-        String bloomKey = generateBloomKey(userId, blogId);
-        if (!thumbBloomFilter.mightContain(bloomKey)) {
-            // 布隆过滤器说不存在，那就一定不存在
+        // 2.探测脚本已经读到的点赞缓存/未点赞缓存比布隆过滤器准确,直接使用
+        Boolean result;
+        if (probe == ThumbProbeStatusEnum.CACHED) {
+            // 点赞缓存未过期(冷热数据都适用)
+            result = true;
+        } else if (probe == ThumbProbeStatusEnum.NEGATIVE) {
+            // 未点赞缓存未过期,不再查询数据库
+            negativeHits.increment();
+            result = false;
+        } else if (bloomFilterLoadProgress.isReady() && !thumbFilterMirror.mightContain(userId, blogId)) {
+            // 3.缓存未命中时再通过布隆过滤器判断,说不存在就一定不存在(加载完成前布隆过滤器不完整,不能用来判断)
             return false;
+        } else {
+            // 4.查询一次数据库,回写在后台执行
+            result = !loadThumbsFromDb(userId, Map.of(blogId, probe)).isEmpty();
         }
-        // 3.判断是否为热数据，决定查询策略
-        Boolean isHot = isHotData(blogId);
+        // 更新各维度的访问记录,按维度把热点数据添加到本地缓存中,这样下一次就不会再查询redis了
+        cacheManager.recordAccess(userId, blogId, result);
 
-        Boolean result;
+        return result;
+    }
 
-        if (isHot) {
-            // 热数据：优先查Redis，未命中再查数据库
-            result = hasThumbForHotData(blogId, userId, bloomKey);
-        } else {
-            // 冷数据：直接查数据库，减少Redis压力
-            result = hasThumbForColdData(blogId, userId, bloomKey);
+    @Override
+    public Map<Long, Boolean> hasThumbs(Long userId, Collection<Long> blogIds) {
+        Map<Long, Boolean> result = new HashMap<>();
+        if (blogIds == null || blogIds.isEmpty()) {
+            return result;
         }
-        // 更新访问记录,如果是hotKey则添加到本地缓存中,这样下一次就不会再查询redis了
-        if (value == null) {
-            AddResult addResult = hotKeyDetector.add(blogId.toString(), 1);
-
-            if (addResult.isHotKey()) {
-                // 如果是热key,则添加到本地缓存中
-                if (result == true) {
-                    cacheManager.put(hashKey, blogId.toString(), ThumbConstant.THUMB_CONSTANT);
-                } else {
-                    cacheManager.put(hashKey, blogId.toString(), ThumbConstant.UN_THUMB_CONSTANT);
+        List<Long> ids = blogIds.stream().distinct().toList();
+        // 1.一次往返探测所有博客的删除/新增标记、点赞缓存和冷热
+        List<ThumbProbeStatusEnum> probes = probeThumbStates(userId, ids);
+
+        boolean filterReady = bloomFilterLoadProgress.isReady();
+        Map<Long, ThumbProbeStatusEnum> misses = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long blogId = ids.get(i);
+            ThumbProbeStatusEnum probe = probes.get(i);
+            // 判断顺序与 hasThumb 相同: 标记 -> 本地缓存 -> 点赞缓存 -> 布隆过滤器
+            if (probe == ThumbProbeStatusEnum.DELETED || probe == ThumbProbeStatusEnum.ADDED) {
+                result.put(blogId, probe == ThumbProbeStatusEnum.ADDED);
+                continue;
+            }
+            Boolean localResult = cacheManager.getThumbState(userId, blogId);
+            if (localResult != null) {
+                result.put(blogId, localResult);
+                continue;
+            }
+            if (probe == ThumbProbeStatusEnum.CACHED || probe == ThumbProbeStatusEnum.NEGATIVE) {
+                boolean thumbed = probe == ThumbProbeStatusEnum.CACHED;
+                if (!thumbed) {
+                    negativeHits.increment();
                 }
+                result.put(blogId, thumbed);
+                cacheManager.recordAccess(userId, blogId, thumbed);
+                continue;
             }
+            if (filterReady && !thumbFilterMirror.mightContain(userId, blogId)) {
+                result.put(blogId, false);
+                continue;
+            }
+            misses.put(blogId, probe);
         }
 
+        // 2.缓存未命中的博客用一次数据库查询
+        if (!misses.isEmpty()) {
+            Set<Long> thumbed = loadThumbsFromDb(userId, misses);
+            misses.keySet().forEach(blogId -> {
+                boolean exists = thumbed.contains(blogId);
+                result.put(blogId, exists);
+                cacheManager.recordAccess(userId, blogId, exists);
+            });
+        }
         return result;
     }
 
     /**
-     * 热数据点赞查询逻辑
+     * 执行点赞状态探测脚本,每批最多 HAS_THUMBS_BATCH_SIZE 个博客,过期的点赞缓存已在脚本中删除
+     * @return 与 blogIds 顺序一致的探测结果
      */
-    private Boolean hasThumbForHotData(Long blogId, Long userId, String bloomKey) {
-        String redisKey = ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
-        Object cacheValue = stringRedisTemplate.opsForHash().get(redisKey, blogId.toString());
+    private List<ThumbProbeStatusEnum> probeThumbStates(Long userId, List<Long> blogIds) {
+        List<ThumbProbeStatusEnum> statuses = new ArrayList<>(blogIds.size());
+        String now = String.valueOf(System.currentTimeMillis());
+        String hotThreshold = String.valueOf(ThumbConstant.HOT_DATA_TIME_THRESHOLD);
+        for (List<Long> chunk : Lists.partition(blogIds, HAS_THUMBS_BATCH_SIZE)) {
+            List<String> keys = new ArrayList<>(chunk.size() + 3);
+            keys.add(RedisKeyUtil.getUserThumbDeletedKey(userId));
+            keys.add(RedisKeyUtil.getUserThumbAddedKey(userId));
+            keys.add(RedisKeyUtil.getUserThumbKey(userId));
+            String[] args = new String[chunk.size() + 3];
+            args[0] = now;
+            args[1] = hotThreshold;
+            args[2] = thumbFieldTtlSupport.scriptArg();
+            for (int i = 0; i < chunk.size(); i++) {
+                keys.add(RedisKeyUtil.getBlogCreateTimeKey(chunk.get(i)));
+                args[i + 3] = chunk.get(i).toString();
+            }
+            List<?> result = stringRedisTemplate.execute(RedisLuaScriptConstant.THUMB_PROBE_SCRIPT, keys, (Object[]) args);
+            for (int i = 0; i < chunk.size(); i++) {
+                Object status = result != null && i < result.size() ? result.get(i) : null;
+                statuses.add(ThumbProbeStatusEnum.of(status instanceof Long value ? value : null));
+            }
+        }
+        return statuses;
+    }
 
-        if (cacheValue != null) {
-            // Redis中存在，检查是否过期
+    /**
+     * 查询缓存未命中的点赞记录,每批博客只查询一次(走 (userId, blogId) 唯一索引)
+     * 存在的记录在后台回写到 Redis 点赞缓存和布隆过滤器; 不存在的记录缓存到本地,并在后台写入 Redis 未点赞缓存,
+     * 重复访问不再查询数据库
+     * @return 已点赞的博客ID
+     */
+    private Set<Long> loadThumbsFromDb(Long userId, Map<Long, ThumbProbeStatusEnum> misses) {
+        List<Thumb> thumbs = new ArrayList<>();
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(misses.keySet()), HAS_THUMBS_BATCH_SIZE)) {
+            thumbs.addAll(this.baseMapper.selectByUserIdAndBlogIds(userId, chunk));
+        }
+        Set<Long> thumbed = new HashSet<>(thumbs.size());
+        thumbs.forEach(thumb -> thumbed.add(thumb.getBlogid()));
+
+        // 未点赞的结果缓存到本地点赞状态表(有容量上限和过期时间),点赞/取消点赞时会同步修改或广播失效
+        List<Long> notThumbed = new ArrayList<>(misses.size() - thumbed.size());
+        misses.keySet().forEach(blogId -> {
+            if (!thumbed.contains(blogId)) {
+                cacheManager.put(userId, blogId, false);
+                notThumbed.add(blogId);
+            }
+        });
+        negativeMisses.add(notThumbed.size());
+        writeBackExecutor.execute(() -> {
             try {
-                ThumbCacheData cacheData = JSONUtil.toBean(cacheValue.toString(), ThumbCacheData.class);
-                if (!cacheData.isExpired()) {
-                    return true;
-                } else {
-                    // 已过期，异步删除Redis中的数据
-                    stringRedisTemplate.opsForHash().delete(redisKey, blogId.toString());
-                    log.info("删除过期的热数据点赞缓存: userId={}, blogId={}", userId, blogId);
-                }
+                writeBackThumbs(userId, thumbs, notThumbed, misses);
             } catch (Exception e) {
-                log.error("解析热数据点赞缓存失败: userId={}, blogId={}", userId, blogId, e);
-                // 解析失败，删除异常数据
-                stringRedisTemplate.opsForHash().delete(redisKey, blogId.toString());
+                log.error("回写点赞记录到缓存失败: userId={}, size={}", userId, misses.size(), e);
             }
-        }
+        });
+        return thumbed;
+    }
 
-        // Redis中不存在或已过期，查询数据库
-        boolean existsInDb = this.lambdaQuery()
-                .eq(Thumb::getBlogid, blogId)
-                .eq(Thumb::getUserid, userId)
-                .exists();
-
-        // 如果数据库中存在，回写到Redis（热数据使用较长的缓存时间）
-        if (existsInDb) {
-            Thumb thumb = this.lambdaQuery()
-                    .eq(Thumb::getBlogid, blogId)
-                    .eq(Thumb::getUserid, userId)
-                    .one();
-            if (thumb != null) {
-                // 热数据使用较长的缓存时间
-                long expireTime = System.currentTimeMillis() + ThumbConstant.HOT_DATA_CACHE_EXPIRE_TIME;
-                ThumbCacheData cacheData = new ThumbCacheData(thumb.getId().toString(), expireTime, thumb.getCreatetime().getTime());
-                stringRedisTemplate.opsForHash().put(redisKey, blogId.toString(), JSONUtil.toJsonStr(cacheData));
-
-                // 确保布隆过滤器中也有这条记录
-                thumbBloomFilter.put(bloomKey);
-
-                log.info("回写热数据点赞记录到缓存: userId={}, blogId={}", userId, blogId);
-            }
+    /**
+     * 把数据库查询结果回写到 Redis(一次脚本调用)和布隆过滤器
+     * 点赞缓存按冷热数据选择缓存时间,创建时间未缓存的博客批量查询; 未点赞缓存使用较短的缓存时间
+     */
+    private void writeBackThumbs(Long userId, List<Thumb> thumbs, List<Long> notThumbed,
+                                 Map<Long, ThumbProbeStatusEnum> misses) {
+        List<Long> unknownBlogIds = thumbs.stream()
+                .map(Thumb::getBlogid)
+                .filter(blogId -> misses.get(blogId) == ThumbProbeStatusEnum.MISS_UNKNOWN)
+                .toList();
+        Map<Long, Long> createTimes = unknownBlogIds.isEmpty() ? Map.of() : loadBlogCreateTimes(unknownBlogIds);
+
+        long now = System.currentTimeMillis();
+        List<String> args = new ArrayList<>(misses.size() * 4 + 2);
+        args.add(String.valueOf(negativeCacheMaxFields));
+        args.add(thumbFieldTtlSupport.scriptArg());
+        for (Thumb thumb : thumbs) {
+            Long blogId = thumb.getBlogid();
+            ThumbProbeStatusEnum probe = misses.get(blogId);
+            boolean isHot = probe == ThumbProbeStatusEnum.MISS_HOT
+                    || probe == ThumbProbeStatusEnum.MISS_UNKNOWN && isHotCreateTime(createTimes.getOrDefault(blogId, 0L), now);
+            // 热数据使用较长的缓存时间,冷数据使用较短的缓存时间
+            long expireTime = now + (isHot ? ThumbConstant.HOT_DATA_CACHE_EXPIRE_TIME : ThumbConstant.COLD_DATA_CACHE_EXPIRE_TIME);
+            ThumbCacheData cacheData = new ThumbCacheData(thumb.getId().toString(), expireTime, thumb.getCreatetime().getTime());
+            args.add(blogId.toString());
+            args.add(thumbCacheCodec.encode(cacheData));
+            args.add("1");
+            args.add(String.valueOf(expireTime));
+            // 确保布隆过滤器中也有这条记录(通常加载时已经添加过,不重复添加)
+            thumbFilterMirror.addLocalIfAbsent(userId, blogId);
         }
-
-        return existsInDb;
+        ThumbCacheData negativeCache = negativeCache();
+        String negative = thumbCacheCodec.encode(negativeCache);
+        for (Long blogId : notThumbed) {
+            args.add(blogId.toString());
+            args.add(negative);
+            args.add("0");
+            args.add(negativeCache.getExpireTime().toString());
+        }
+        Long written = stringRedisTemplate.execute(RedisLuaScriptConstant.THUMB_WRITE_BACK_SCRIPT,
+                Arrays.asList(RedisKeyUtil.getUserThumbKey(userId), RedisKeyUtil.getUserThumbDeletedKey(userId),
+                        RedisKeyUtil.getUserThumbAddedKey(userId)),
+                args.toArray());
+        log.debug("回写点赞查询结果到缓存: userId={}, thumbed={}, notThumbed={}, written={}",
+                userId, thumbs.size(), notThumbed.size(), written);
     }
 
     /**
-     * 冷数据点赞查询逻辑
+     * 未点赞缓存数据,过期时间较短
      */
-    private Boolean hasThumbForColdData(Long blogId, Long userId, String bloomKey) {
-        // 冷数据策略：先查数据库，如果存在再考虑是否缓存
-        boolean existsInDb = this.lambdaQuery()
-                .eq(Thumb::getBlogid, blogId)
-                .eq(Thumb::getUserid, userId)
-                .exists();
-
-        if (existsInDb) {
-            // 冷数据存在时，可以选择性地缓存（使用较短的过期时间）
-            String redisKey = ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
-            Object cacheValue = stringRedisTemplate.opsForHash().get(redisKey, blogId.toString());
+    private ThumbCacheData negativeCache() {
+        return ThumbCacheData.negative(System.currentTimeMillis() + negativeCacheTtlSeconds * 1000);
+    }
 
-            if (cacheValue == null) {
-                // Redis中不存在，考虑是否要缓存
-                Thumb thumb = this.lambdaQuery()
-                        .eq(Thumb::getBlogid, blogId)
-                        .eq(Thumb::getUserid, userId)
-                        .one();
-                if (thumb != null) {
-                    // 冷数据使用较短的缓存时间，减少内存占用
-                    long expireTime = System.currentTimeMillis() + ThumbConstant.COLD_DATA_CACHE_EXPIRE_TIME;
-                    ThumbCacheData cacheData = new ThumbCacheData(thumb.getId().toString(), expireTime, thumb.getCreatetime().getTime());
-                    stringRedisTemplate.opsForHash().put(redisKey, blogId.toString(), JSONUtil.toJsonStr(cacheData));
+    /**
+     * 未点赞缓存的命中情况: 命中(不查询数据库) / 未命中(查询数据库后确认未点赞)
+     */
+    @PostConstruct
+    public void registerNegativeCacheMetrics() {
+        FunctionCounter.builder("cache.gets", negativeHits, LongAdder::sum)
+                .tags("cache", "thumb.negative", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", negativeMisses, LongAdder::sum)
+                .tags("cache", "thumb.negative", "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("thumb.negative.cache.hit.ratio", this, service -> {
+                    long hits = service.negativeHits.sum();
+                    long total = hits + service.negativeMisses.sum();
+                    return total == 0 ? 1.0 : (double) hits / total;
+                })
+                .description("Share of not-thumbed answers served by the negative cache instead of MySQL")
+                .register(meterRegistry);
+    }
 
-                    // 确保布隆过滤器中也有这条记录
-                    thumbBloomFilter.put(bloomKey);
+    /**
+     * 停机时等待已提交的回写完成
+     */
+    @PreDestroy
+    public void shutdownWriteBack() {
+        thumbExecutor.close();
+        writeBackExecutor.close();
+    }
 
-                    log.info("缓存冷数据点赞记录: userId={}, blogId={}", userId, blogId);
-                }
+    /**
+     * 批量查询博客创建时间,并用一次 pipeline 缓存到 Redis
+     * @return 博客ID -> 创建时间(毫秒),不存在的博客不包含在内
+     */
+    private Map<Long, Long> loadBlogCreateTimes(Collection<Long> blogIds) {
+        Map<Long, Long> createTimes = new HashMap<>();
+        for (Blog blog : blogService.listByIds(blogIds)) {
+            if (blog.getCreatetime() != null) {
+                createTimes.put(blog.getId(), blog.getCreatetime().getTime());
             }
         }
-
-        return existsInDb;
+        if (!createTimes.isEmpty()) {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                createTimes.forEach((blogId, createTime) -> stringConnection.set(
+                        RedisKeyUtil.getBlogCreateTimeKey(blogId), String.valueOf(createTime),
+                        Expiration.from(Duration.ofDays(7)), RedisStringCommands.SetOption.upsert()));
+                return null;
+            });
+        }
+        return createTimes;
     }
 
     @Override
@@ -802,8 +1025,11 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
         }
 
         // 2.判断是否为热数据（发布时间在1个月内）
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - createTime) <= ThumbConstant.HOT_DATA_TIME_THRESHOLD;
+        return isHotCreateTime(createTime, System.currentTimeMillis());
+    }
+
+    private static boolean isHotCreateTime(long createTime, long now) {
+        return createTime > 0 && now - createTime <= ThumbConstant.HOT_DATA_TIME_THRESHOLD;
     }
 
     /**
@@ -825,42 +1051,84 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     @Override
     public void initBloomFilter() {
-        log.info("开始初始化布隆过滤器...");
-
-        // 分批查询所有点赞记录，避免内存溢出
-        int pageSize = 1000;
-        int currentPage = 0;
+        initBloomFilter(0L);
+    }
 
-        while (true) {
-            List<Thumb> thumbList = this.lambdaQuery()
-                    .last("LIMIT " + (currentPage * pageSize) + ", " + pageSize)
-                    .list();
+    @Override
+    public long initBloomFilter(long afterId) {
+        return initBloomFilter(afterId, afterId);
+    }
 
-            if (thumbList.isEmpty()) {
-                break;
+    @Override
+    public long initBloomFilter(long afterId, long loadedId) {
+        Long maxId = this.baseMapper.selectMaxId();
+        if (maxId == null || maxId <= afterId) {
+            log.info("布隆过滤器无需加载, 起始id: {}, 最大id: {}", afterId, maxId);
+            return afterId;
+        }
+        log.info("开始加载布隆过滤器, id范围: ({}, {}]", afterId, maxId);
+
+        // 按 id 范围切分,每个范围在一个虚拟线程中用游标流式读取(keyset),避免 LIMIT offset 越翻越慢和一次性读入内存
+        long span = maxId - afterId;
+        int parallelism = (int) Math.max(1, Math.min(bloomLoadParallelism, span / BLOOM_LOAD_MIN_RANGE));
+        long rangeSize = (span + parallelism - 1) / parallelism;
+        bloomFilterLoadProgress.start(span);
+
+        List<Future<Long>> futures = new ArrayList<>(parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long from = afterId; from < maxId; from += rangeSize) {
+                long lo = from;
+                long hi = Math.min(maxId, from + rangeSize);
+                futures.add(executor.submit(() -> loadBloomFilterRange(lo, hi, loadedId)));
             }
-
-            // 将点赞记录添加到布隆过滤器
-            for (Thumb thumb : thumbList) {
-                String bloomKey = generateBloomKey(thumb.getUserid(), thumb.getBlogid());
-                thumbBloomFilter.put(bloomKey);
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
             }
-
-            log.info("已加载第{}批点赞记录到布隆过滤器，数量: {}", currentPage + 1, thumbList.size());
-            currentPage++;
+            log.info("布隆过滤器加载完成，共加载{}条点赞记录，最大id: {}", total, maxId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "加载布隆过滤器被中断");
+        } catch (ExecutionException e) {
+            log.error("加载布隆过滤器失败", e.getCause());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "加载布隆过滤器失败");
         }
-
-        log.info("布隆过滤器初始化完成，共处理{}批数据", currentPage);
+        return maxId;
     }
 
     /**
-     * 生成布隆过滤器的key
+     * 流式加载 id 在 (afterId, toId] 范围内的点赞记录
+     * id 不大于 loadedId 的记录可能已经加载过,过滤器判断可能存在时不再添加
+     * 游标需要 SqlSession 在遍历期间保持打开,所以单独打开一个会话
+     * @return 加载的记录数
      */
-    private String generateBloomKey(Long userId, Long blogId) {
-        return userId + ThumbConstant.BLOOM_FILTER_KEY_SEPARATOR + blogId;
+    private long loadBloomFilterRange(long afterId, long toId, long loadedId) throws IOException {
+        long count = 0;
+        long lastId = afterId;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession();
+             Cursor<Thumb> cursor = sqlSession.getMapper(ThumbMapper.class).scanByIdRange(afterId, toId)) {
+            for (Thumb thumb : cursor) {
+                if (thumb.getId() > loadedId) {
+                    thumbFilterMirror.addLocal(thumb.getUserid(), thumb.getBlogid());
+                } else {
+                    thumbFilterMirror.addLocalIfAbsent(thumb.getUserid(), thumb.getBlogid());
+                }
+                bloomFilterLoadProgress.advance(thumb.getId() - lastId);
+                lastId = thumb.getId();
+                count++;
+            }
+        }
+        bloomFilterLoadProgress.skip(toId - lastId);
+        return count;
     }
-}
-
-
 
+    @Override
+    public void addToBloomFilter(Long userId, Long blogId) {
+        thumbFilterMirror.add(userId, blogId);
+    }
 
+    @Override
+    public void removeFromBloomFilter(Long userId, Long blogId) {
+        thumbFilterMirror.remove(userId, blogId);
+    }
+}
@@ -1,7 +1,10 @@
 package com.yxc.thumbbackend.task;
 
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.util.NumberUtil;
+import com.yxc.thumbbackend.config.ThumbFieldTtlSupport;
+import com.yxc.thumbbackend.constant.RedisLuaScriptConstant;
 import com.yxc.thumbbackend.constant.ThumbConstant;
+import com.yxc.thumbbackend.manager.cache.ThumbCacheCodec;
 import com.yxc.thumbbackend.model.dto.ThumbCacheData;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -9,12 +12,14 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * 点赞缓存清理定时任务
  * 定期清理Redis中过期的点赞缓存数据
+ * 使用 Redis 字段过期时字段到期由 Redis 删除,只需要把切换前写入的旧数据迁移一次
  */
 @Component
 @Slf4j
@@ -23,11 +28,21 @@ public class ThumbCacheCleanTask {
     @Resource(name = "stringRedisTemplate")
     private StringRedisTemplate stringRedisTemplate;
 
+    @Resource
+    private ThumbFieldTtlSupport thumbFieldTtlSupport;
+
+    @Resource
+    private ThumbCacheCodec thumbCacheCodec;
+
     /**
      * 每天凌晨2点执行缓存清理任务
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void cleanExpiredThumbCache() {
+        if (thumbFieldTtlSupport.isEnabled()) {
+            migrateToFieldTtl();
+            return;
+        }
         log.info("开始执行点赞缓存清理任务...");
         
         long startTime = System.currentTimeMillis();
@@ -53,23 +68,23 @@ public class ThumbCacheCleanTask {
                     String blogId = entry.getKey().toString();
                     String cacheValue = entry.getValue().toString();
                     
-                    try {
-                        ThumbCacheData cacheData = JSONUtil.toBean(cacheValue, ThumbCacheData.class);
-                        
-                        //检查是否过期
-                        if (cacheData.isExpired()) {
-                            stringRedisTemplate.opsForHash().delete(key, blogId);
-                            cleanedCount++;
-                            
-                            if (cleanedCount % 100 == 0) {
-                                log.info("已清理{}条过期缓存", cleanedCount);
-                            }
-                        }
-                    } catch (Exception e) {
+                    ThumbCacheData cacheData = thumbCacheCodec.decode(cacheValue);
+                    if (cacheData == null) {
                         //解析失败的数据也删除
                         stringRedisTemplate.opsForHash().delete(key, blogId);
                         cleanedCount++;
                         log.warn("删除无法解析的缓存数据: key={}, blogId={}", key, blogId);
+                        continue;
+                    }
+                    
+                    //检查是否过期
+                    if (cacheData.isExpired()) {
+                        stringRedisTemplate.opsForHash().delete(key, blogId);
+                        cleanedCount++;
+                        
+                        if (cleanedCount % 100 == 0) {
+                            log.info("已清理{}条过期缓存", cleanedCount);
+                        }
                     }
                 }
             }
@@ -83,4 +98,38 @@ public class ThumbCacheCleanTask {
             log.error("执行点赞缓存清理任务失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 给没有字段过期时间的旧数据设置字段过期(每个用户一次脚本调用),全部完成后写入迁移标记,之后不再扫描
+     */
+    private void migrateToFieldTtl() {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(ThumbConstant.FIELD_TTL_MIGRATED_KEY))) {
+            log.info("点赞缓存使用字段过期,无需清理");
+            return;
+        }
+        log.info("开始迁移点赞缓存到字段过期...");
+
+        long startTime = System.currentTimeMillis();
+        long migratedCount = 0;
+        try {
+            Set<String> keys = stringRedisTemplate.keys(ThumbConstant.USER_THUMB_KEY_PREFIX + "*");
+            if (keys != null) {
+                String now = String.valueOf(System.currentTimeMillis());
+                for (String key : keys) {
+                    // 只处理用户点赞状态键(thumb:{userId}),跳过删除/新增标记和临时计数
+                    if (!NumberUtil.isLong(key.substring(ThumbConstant.USER_THUMB_KEY_PREFIX.length()))) {
+                        continue;
+                    }
+                    Long migrated = stringRedisTemplate.execute(RedisLuaScriptConstant.FIELD_TTL_MIGRATE_SCRIPT,
+                            List.of(key), now);
+                    migratedCount += migrated == null ? 0 : migrated;
+                }
+            }
+            stringRedisTemplate.opsForValue().set(ThumbConstant.FIELD_TTL_MIGRATED_KEY, String.valueOf(startTime));
+            log.info("点赞缓存迁移到字段过期完成，耗时: {}ms, 迁移: {}条",
+                    System.currentTimeMillis() - startTime, migratedCount);
+        } catch (Exception e) {
+            log.error("迁移点赞缓存到字段过期失败", e);
+        }
+    }
+}
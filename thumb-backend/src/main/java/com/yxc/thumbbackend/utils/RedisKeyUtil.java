@@ -8,6 +8,27 @@ public class RedisKeyUtil {
         return ThumbConstant.USER_THUMB_KEY_PREFIX + userId;  
     }  
   
+    /**
+     * 获取 用户点赞删除标记 key
+     */
+    public static String getUserThumbDeletedKey(Long userId) {
+        return ThumbConstant.USER_THUMB_DELETED_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 获取 用户点赞新增标记 key
+     */
+    public static String getUserThumbAddedKey(Long userId) {
+        return ThumbConstant.USER_THUMB_ADDED_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 获取 博客创建时间 key
+     */
+    public static String getBlogCreateTimeKey(Long blogId) {
+        return ThumbConstant.BLOG_CREATE_TIME_KEY_PREFIX + blogId;
+    }
+
     /**  
      * 获取 临时点赞记录 key  
      */  
@@ -0,0 +1,132 @@
+package com.yxc.thumbbackend.benchmark;
+
+import com.yxc.thumbbackend.ThumbBackendApplication;
+import com.yxc.thumbbackend.manager.cache.CacheManager;
+import com.yxc.thumbbackend.model.entity.Blog;
+import com.yxc.thumbbackend.model.entity.User;
+import com.yxc.thumbbackend.service.BlogService;
+import com.yxc.thumbbackend.service.ThumbService;
+import com.yxc.thumbbackend.service.UserService;
+import com.yxc.thumbbackend.utils.RedisKeyUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 博客列表页判断是否点赞的耗时: 逐个 hasThumb 与批量 hasThumbs 对比,SampleTime 模式输出 p50/p99
+ * 需要连接 application.yml 中的 MySQL 和 Redis,并导入 sql/test_data.sql
+ * warm: 点赞缓存已回写; cold: 每次调用前删除用户的点赞缓存、博客创建时间缓存和本节点的本地缓存(不计入耗时),模拟缓存失效后的首屏
+ * 运行: mvn -pl thumb-backend -Pjmh test-compile exec:exec -Djmh.args="FeedLatencyBenchmark"
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FeedLatencyBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int USERS = 20;
+
+    @State(Scope.Benchmark)
+    public static class Feed {
+        @Param({"warm", "cold"})
+        String cache;
+
+        ConfigurableApplicationContext context;
+        ThumbService thumbService;
+        CacheManager cacheManager;
+        StringRedisTemplate stringRedisTemplate;
+        List<Long> blogIds;
+        List<Long> userIds;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            // 随机端口,不与本机运行的服务冲突
+            context = new SpringApplicationBuilder(ThumbBackendApplication.class)
+                    .properties("server.port=0")
+                    .run();
+            thumbService = context.getBean(ThumbService.class);
+            cacheManager = context.getBean(CacheManager.class);
+            stringRedisTemplate = context.getBean("stringRedisTemplate", StringRedisTemplate.class);
+            blogIds = context.getBean(BlogService.class).lambdaQuery().last("limit " + PAGE_SIZE).list()
+                    .stream().map(Blog::getId).toList();
+            userIds = context.getBean(UserService.class).lambdaQuery().last("limit " + USERS).list()
+                    .stream().map(User::getId).toList();
+            if (blogIds.isEmpty() || userIds.isEmpty()) {
+                throw new IllegalStateException("没有测试数据,请先导入 sql/test_data.sql");
+            }
+
+            // 两种方式的结果必须一致
+            for (Long userId : userIds) {
+                Map<Long, Boolean> batch = thumbService.hasThumbs(userId, blogIds);
+                for (Long blogId : blogIds) {
+                    if (!Objects.equals(batch.get(blogId), thumbService.hasThumb(blogId, userId))) {
+                        throw new IllegalStateException("hasThumbs 与 hasThumb 结果不一致: userId=" + userId + ", blogId=" + blogId);
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+
+        void evict(Long userId) {
+            List<String> keys = new ArrayList<>(blogIds.size() + 1);
+            keys.add(RedisKeyUtil.getUserThumbKey(userId));
+            blogIds.forEach(blogId -> keys.add(RedisKeyUtil.getBlogCreateTimeKey(blogId)));
+            stringRedisTemplate.delete(keys);
+            // 本地缓存(点赞状态表、热点用户/博客集合)会在 Redis 之前命中,也要清理
+            cacheManager.evictUser(userId, blogIds);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        int index;
+        Long userId;
+
+        // 每次调用换一个用户;cold 时在计时之外清理缓存
+        @Setup(Level.Invocation)
+        public void next(Feed feed) {
+            userId = feed.userIds.get(index++ % feed.userIds.size());
+            if ("cold".equals(feed.cache)) {
+                feed.evict(userId);
+            }
+        }
+    }
+
+    @Benchmark
+    public void hasThumbEach(Feed feed, Reader reader, Blackhole blackhole) {
+        for (Long blogId : feed.blogIds) {
+            blackhole.consume(feed.thumbService.hasThumb(blogId, reader.userId));
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Boolean> hasThumbs(Feed feed, Reader reader) {
+        return feed.thumbService.hasThumbs(reader.userId, feed.blogIds);
+    }
+}
@@ -0,0 +1,76 @@
+package com.yxc.thumbbackend.benchmark;
+
+import com.yxc.thumbbackend.manager.cache.CompactThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.JsonThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.ThumbCacheCodec;
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞缓存数据编码方式对比: 编码/解码一条数据的耗时,数据见 {@link ThumbCacheSamples}
+ * 每条数据写入 Redis 的字节数见 {@link ThumbCacheCodecSizeReport}; 分配量加 -prof gc 看 gc.alloc.rate.norm(字节/次)
+ * 不需要 MySQL/Redis
+ * 运行: mvn -pl thumb-backend -Pjmh test-compile exec:exec -Djmh.args="ThumbCacheCodecBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThumbCacheCodecBenchmark {
+
+    private static final int VALUES = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Samples {
+        @Param({"json", "compact"})
+        String codecName;
+
+        ThumbCacheCodec codec;
+        ThumbCacheData[] values;
+        String[] encoded;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            codec = "json".equals(codecName) ? new JsonThumbCacheCodec() : new CompactThumbCacheCodec();
+            values = ThumbCacheSamples.generate(VALUES, 42);
+            encoded = new String[VALUES];
+            for (int i = 0; i < VALUES; i++) {
+                encoded[i] = codec.encode(values[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            index = (index + 1) & (VALUES - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public String encode(Samples samples, Cursor cursor) {
+        return samples.codec.encode(samples.values[cursor.next()]);
+    }
+
+    @Benchmark
+    public ThumbCacheData decode(Samples samples, Cursor cursor) {
+        return samples.codec.decode(samples.encoded[cursor.next()]);
+    }
+}
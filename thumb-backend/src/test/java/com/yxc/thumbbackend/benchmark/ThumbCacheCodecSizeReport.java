@@ -0,0 +1,39 @@
+package com.yxc.thumbbackend.benchmark;
+
+import com.yxc.thumbbackend.manager.cache.CompactThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.JsonThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.ThumbCacheCodec;
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 点赞缓存数据编码方式对比: 每条数据写入 Redis 的字节数(UTF-8),按数据类型和整体混合分别统计
+ * 数据见 {@link ThumbCacheSamples},编码/解码耗时见 {@link ThumbCacheCodecBenchmark}
+ * 运行: mvn -pl thumb-backend -Pjmh test-compile exec:exec -Djmh.mainClass=com.yxc.thumbbackend.benchmark.ThumbCacheCodecSizeReport
+ */
+public class ThumbCacheCodecSizeReport {
+
+    private static final int VALUES = 1 << 16;
+
+    public static void main(String[] args) {
+        ThumbCacheData[] values = ThumbCacheSamples.generate(VALUES, 42);
+        System.out.printf("%-8s %10s %10s %10s %10s%n", "codec", "record", "temp", "negative", "mixed");
+        report("json", new JsonThumbCacheCodec(), values);
+        report("compact", new CompactThumbCacheCodec(), values);
+    }
+
+    private static void report(String name, ThumbCacheCodec codec, ThumbCacheData[] values) {
+        // 0: 数据库回写的点赞记录, 1: 临时记录, 2: 未点赞缓存
+        long[] bytes = new long[3];
+        long[] counts = new long[3];
+        for (ThumbCacheData value : values) {
+            int kind = value.isNegative() ? 2 : value.getThumbId().startsWith("temp_") ? 1 : 0;
+            bytes[kind] += codec.encode(value).getBytes(StandardCharsets.UTF_8).length;
+            counts[kind]++;
+        }
+        System.out.printf("%-8s %10.1f %10.1f %10.1f %10.1f%n", name,
+                (double) bytes[0] / counts[0], (double) bytes[1] / counts[1], (double) bytes[2] / counts[2],
+                (double) (bytes[0] + bytes[1] + bytes[2]) / values.length);
+    }
+}
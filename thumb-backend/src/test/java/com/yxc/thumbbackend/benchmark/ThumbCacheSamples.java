@@ -0,0 +1,35 @@
+package com.yxc.thumbbackend.benchmark;
+
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+
+import java.util.SplittableRandom;
+
+/**
+ * 点赞缓存数据样本,按线上比例混合: 数据库回写的点赞记录(雪花ID) 60%、刚点赞的临时记录 20%、未点赞缓存 20%
+ * 同一个 seed 生成的样本相同,耗时和字节数可以在同一份数据上对比
+ */
+final class ThumbCacheSamples {
+
+    private static final long DAY = 24L * 3600 * 1000;
+
+    private ThumbCacheSamples() {
+    }
+
+    static ThumbCacheData[] generate(int count, long seed) {
+        ThumbCacheData[] values = new ThumbCacheData[count];
+        SplittableRandom random = new SplittableRandom(seed);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                values[i] = new ThumbCacheData(String.valueOf(1_800_000_000_000_000_000L + random.nextLong(1L << 50)),
+                        now + random.nextLong(30 * DAY), now - random.nextLong(365 * DAY));
+            } else if (kind < 8) {
+                values[i] = new ThumbCacheData("temp_" + now, now + 7 * DAY, now);
+            } else {
+                values[i] = ThumbCacheData.negative(now + 600_000);
+            }
+        }
+        return values;
+    }
+}
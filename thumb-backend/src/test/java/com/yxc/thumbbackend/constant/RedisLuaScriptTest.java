@@ -0,0 +1,385 @@
+package com.yxc.thumbbackend.constant;
+
+import com.yxc.thumbbackend.manager.cache.CompactThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.JsonThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.ThumbCacheCodec;
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 在真实 Redis 上执行 RedisLuaScriptConstant 中的脚本,键名带随机前缀,结束后删除
+ * 运行: mvn -pl thumb-backend test -Dtest=RedisLuaScriptTest -Dthumb.test.redis=localhost:6379
+ */
+@EnabledIfSystemProperty(named = "thumb.test.redis", matches = ".+")
+class RedisLuaScriptTest {
+
+    private static final long HOUR = 3600_000L;
+    private static final long USER_ID = 7;
+    private static final long HOT_THRESHOLD = ThumbConstant.HOT_DATA_TIME_THRESHOLD;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> HPTTL_SCRIPT = new DefaultRedisScript<>(
+            "return redis.call('HPTTL', KEYS[1], 'FIELDS', 1, ARGV[1])", List.class);
+
+    private static StringRedisTemplate redis;
+
+    private final ThumbCacheCodec codec = new CompactThumbCacheCodec();
+    private final long now = System.currentTimeMillis();
+    private final String hotData = thumb(now + 2 * HOUR);
+    private final String coldData = thumb(now + HOUR);
+    private final String negativeData = negative(now + HOUR);
+
+    @Test
+    void probeChecksMarkersThenCacheThenCreateTime() {
+        Keys keys = new Keys();
+        try {
+            // 1: 删除标记优先于点赞缓存; 2: 新增标记优先于未点赞缓存
+            redis().opsForHash().put(keys.deleted, "1", "1");
+            redis().opsForHash().put(keys.thumb, "1", thumb(now + HOUR));
+            redis().opsForHash().put(keys.added, "2", "1");
+            redis().opsForHash().put(keys.thumb, "2", negative(now + HOUR));
+            // 3/4: 未过期的点赞缓存和未点赞缓存,旧的 JSON 格式也能解析
+            redis().opsForHash().put(keys.thumb, "3", new JsonThumbCacheCodec().encode(new ThumbCacheData("9", now + HOUR, now)));
+            redis().opsForHash().put(keys.thumb, "4", negative(now + HOUR));
+            // 5/6/7: 过期和无法解析的缓存被删除,按创建时间区分冷热,没有创建时间时未知
+            redis().opsForHash().put(keys.thumb, "5", thumb(now - 1));
+            redis().opsForHash().put(keys.thumb, "6", "garbage");
+            redis().opsForValue().set(keys.createTime(5), String.valueOf(now - HOUR));
+            redis().opsForValue().set(keys.createTime(6), String.valueOf(now - HOT_THRESHOLD - HOUR));
+            // 8: 创建时间为 0(博客不存在)按冷数据处理
+            redis().opsForValue().set(keys.createTime(8), "0");
+
+            assertEquals(List.of(0L, 1L, 2L, 6L, 3L, 4L, 5L, 4L), probe(keys, "0", 1, 2, 3, 4, 5, 6, 7, 8));
+            assertFalse(redis().opsForHash().hasKey(keys.thumb, "5"));
+            assertFalse(redis().opsForHash().hasKey(keys.thumb, "6"));
+            assertTrue(redis().opsForHash().hasKey(keys.thumb, "1"));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void probeWithFieldTtlTrustsPresentFields() {
+        Keys keys = new Keys();
+        try {
+            // 使用字段过期时字段存在就没有过期,不解析过期时间
+            redis().opsForHash().put(keys.thumb, "1", thumb(now - 1));
+            redis().opsForHash().put(keys.thumb, "2", negative(now - 1));
+
+            assertEquals(List.of(2L, 6L, 5L), probe(keys, "1", 1, 2, 3));
+            assertEquals(2, (long) redis().opsForHash().size(keys.thumb));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void writeBackKeepsMarkersAndExistingEntries() {
+        Keys keys = new Keys();
+        try {
+            // 回写期间取消点赞(1)、点赞(2)或已经写入缓存(3)时不覆盖
+            redis().opsForHash().put(keys.deleted, "1", "1");
+            redis().opsForHash().put(keys.added, "2", "1");
+            String existing = thumb(now + HOUR);
+            redis().opsForHash().put(keys.thumb, "3", existing);
+
+            String thumbed = thumb(now + 2 * HOUR);
+            String notThumbed = negative(now + HOUR);
+            long written = writeBack(keys, 100, "0",
+                    1, thumbed, true,
+                    2, notThumbed, false,
+                    3, notThumbed, false,
+                    4, thumbed, true,
+                    5, notThumbed, false);
+
+            assertEquals(2, written);
+            assertNull(redis().opsForHash().get(keys.thumb, "1"));
+            assertNull(redis().opsForHash().get(keys.thumb, "2"));
+            assertEquals(existing, redis().opsForHash().get(keys.thumb, "3"));
+            assertEquals(thumbed, redis().opsForHash().get(keys.thumb, "4"));
+            assertEquals(notThumbed, redis().opsForHash().get(keys.thumb, "5"));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void negativeWriteBackStopsAtFieldCap() {
+        Keys keys = new Keys();
+        try {
+            redis().opsForHash().put(keys.thumb, "1", thumb(now + HOUR));
+            redis().opsForHash().put(keys.thumb, "2", thumb(now + HOUR));
+
+            // 上限 3: 写入 10 后达到上限,之后只写入点赞缓存
+            String notThumbed = negative(now + HOUR);
+            long written = writeBack(keys, 3, "0",
+                    10, notThumbed, false,
+                    11, notThumbed, false,
+                    12, thumb(now + HOUR), true,
+                    13, notThumbed, false);
+
+            assertEquals(2, written);
+            assertEquals(4, (long) redis().opsForHash().size(keys.thumb));
+            assertTrue(redis().opsForHash().hasKey(keys.thumb, "10"));
+            assertFalse(redis().opsForHash().hasKey(keys.thumb, "11"));
+            assertTrue(redis().opsForHash().hasKey(keys.thumb, "12"));
+            assertFalse(redis().opsForHash().hasKey(keys.thumb, "13"));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void expiredNegativeCacheIsAMiss() {
+        Keys keys = new Keys();
+        try {
+            redis().opsForHash().put(keys.thumb, "1", negative(now - 1));
+            redis().opsForHash().put(keys.thumb, "2", negative(now + HOUR));
+            redis().opsForValue().set(keys.createTime(1), String.valueOf(now - HOUR));
+
+            assertEquals(List.of(3L, 6L), probe(keys, "0", 1, 2));
+            assertFalse(redis().opsForHash().hasKey(keys.thumb, "1"));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void mqThumbChecksStateBeforeWriting() {
+        Keys keys = new Keys();
+        try {
+            // 1: 新增标记说明已点赞
+            redis().opsForHash().put(keys.added, "1", "1");
+            assertEquals(-1, mqThumb(keys, 1, "", "0", "1", "node"));
+            // 2: 删除标记优先于点赞缓存,可以再次点赞,热数据写入热数据缓存
+            redis().opsForHash().put(keys.deleted, "2", "1");
+            redis().opsForHash().put(keys.thumb, "2", thumb(now + HOUR));
+            assertEquals(1, mqThumb(keys, 2, "", "0", "1", "node"));
+            assertEquals(hotData, redis().opsForHash().get(keys.thumb, "2"));
+            assertFalse(redis().opsForHash().hasKey(keys.deleted, "2"));
+            assertTrue(redis().opsForHash().hasKey(keys.added, "2"));
+            assertTrue(redis().getExpire(keys.added) > 0);
+            // 3: 无法判断时不写入,由调用方查询数据库
+            assertEquals(0, mqThumb(keys, 3, "", "0", "1", "node"));
+            assertFalse(redis().opsForHash().hasKey(keys.thumb, "3"));
+            // 4: 未过期的点赞缓存说明已点赞
+            redis().opsForHash().put(keys.thumb, "4", thumb(now + HOUR));
+            assertEquals(-1, mqThumb(keys, 4, "", "0", "1", "node"));
+            // 5: 点赞缓存已过期、过滤器判断未点赞; 没有冷热提示时读取创建时间,没有缓存时由调用方查询
+            redis().opsForHash().put(keys.thumb, "5", thumb(now - 1));
+            assertEquals(2, mqThumb(keys, 5, "", "1", "", "node"));
+            redis().opsForValue().set(keys.createTime(5), String.valueOf(now - HOT_THRESHOLD - HOUR));
+            assertEquals(1, mqThumb(keys, 5, "", "1", "", "node"));
+            assertEquals(coldData, redis().opsForHash().get(keys.thumb, "5"));
+
+            // 成功的点赞写入发件箱和变更流
+            List<MapRecord<String, Object, Object>> outbox = redis().opsForStream().range(keys.outbox, Range.unbounded());
+            assertEquals(List.of("2", "5"), outbox.stream().map(record -> record.getValue().get("b")).toList());
+            assertEquals("INCR", outbox.get(1).getValue().get("e"));
+            assertEquals("7", outbox.get(1).getValue().get("u"));
+            List<MapRecord<String, Object, Object>> feed = redis().opsForStream().range(keys.feed, Range.unbounded());
+            assertEquals(2, feed.size());
+            assertEquals("node", feed.get(0).getValue().get("n"));
+            assertEquals("1", feed.get(0).getValue().get("a"));
+
+            // 6: 节点ID为空时只写发件箱,变更流由调用方追加
+            assertEquals(1, mqThumb(keys, 6, "0", "0", "1", ""));
+            assertEquals(3, (long) redis().opsForStream().size(keys.outbox));
+            assertEquals(2, (long) redis().opsForStream().size(keys.feed));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void mqUnthumbChecksStateBeforeWriting() {
+        Keys keys = new Keys();
+        try {
+            // 1: 未点赞缓存说明未点赞; 2: 无法判断
+            redis().opsForHash().put(keys.thumb, "1", negative(now + HOUR));
+            assertEquals(-1, mqUnthumb(keys, 1, "", "0", "node"));
+            assertEquals(0, mqUnthumb(keys, 2, "", "0", "node"));
+            // 3: 新增标记说明已点赞,用未点赞缓存覆盖并设置删除标记
+            redis().opsForHash().put(keys.added, "3", "1");
+            assertEquals(1, mqUnthumb(keys, 3, "", "0", "node"));
+            assertEquals(negativeData, redis().opsForHash().get(keys.thumb, "3"));
+            assertFalse(redis().opsForHash().hasKey(keys.added, "3"));
+            assertTrue(redis().opsForHash().hasKey(keys.deleted, "3"));
+            // 重复取消点赞: 删除标记说明已取消
+            assertEquals(-1, mqUnthumb(keys, 3, "1", "0", "node"));
+            // 4: 调用方查询到已点赞
+            assertEquals(1, mqUnthumb(keys, 4, "1", "0", ""));
+
+            List<MapRecord<String, Object, Object>> outbox = redis().opsForStream().range(keys.outbox, Range.unbounded());
+            assertEquals(List.of("3", "4"), outbox.stream().map(record -> record.getValue().get("b")).toList());
+            assertEquals("DECR", outbox.get(0).getValue().get("e"));
+            List<MapRecord<String, Object, Object>> feed = redis().opsForStream().range(keys.feed, Range.unbounded());
+            assertEquals(1, feed.size());
+            assertEquals("0", feed.get(0).getValue().get("a"));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void migrateMovesStoredExpireTimeToFieldTtl() {
+        assumeTrue(fieldTtlSupported(), "Redis 7.4 以下不支持字段过期");
+        Keys keys = new Keys();
+        try {
+            redis().opsForHash().put(keys.thumb, "1", thumb(now + HOUR));
+            redis().opsForHash().put(keys.thumb, "2", thumb(now - 1));
+            redis().opsForHash().put(keys.thumb, "3", "garbage");
+            // 4: 使用字段过期时回写的数据已有字段过期时间,不需要迁移
+            assertEquals(1, writeBack(keys, 100, "1", 4, negative(now + HOUR), false));
+
+            assertEquals(3, migrate(keys));
+            assertEquals(List.of("1", "4"), redis().opsForHash().keys(keys.thumb).stream().sorted().toList());
+            long ttl = fieldTtl(keys, "1");
+            assertTrue(ttl > 0 && ttl <= HOUR, "ttl=" + ttl);
+            assertTrue(fieldTtl(keys, "4") > 0);
+            // 再次迁移没有需要处理的字段
+            assertEquals(0, migrate(keys));
+        } finally {
+            keys.clear();
+        }
+    }
+
+    @Test
+    void mqScriptsSetFieldTtl() {
+        assumeTrue(fieldTtlSupported(), "Redis 7.4 以下不支持字段过期");
+        Keys keys = new Keys();
+        try {
+            assertEquals(1, (long) redis().execute(RedisLuaScriptConstant.MQ_THUMB_SCRIPT,
+                    List.of(keys.thumb, keys.deleted, keys.added, keys.outbox, keys.createTime(1), keys.feed),
+                    "1", String.valueOf(USER_ID), String.valueOf(now), "0", "0", "1",
+                    "0", String.valueOf(HOT_THRESHOLD), hotData, String.valueOf(now + 2 * HOUR),
+                    coldData, String.valueOf(now + HOUR), "1", "60", "", "1000"));
+            long ttl = fieldTtl(keys, "1");
+            assertTrue(ttl > 0 && ttl <= HOUR, "ttl=" + ttl);
+
+            // 使用字段过期时字段存在就是未过期,点赞缓存中的过期时间不再解析
+            redis().opsForHash().put(keys.thumb, "2", thumb(now - 1));
+            assertEquals(1, (long) redis().execute(RedisLuaScriptConstant.MQ_UNTHUMB_SCRIPT,
+                    List.of(keys.thumb, keys.deleted, keys.added, keys.outbox, keys.feed),
+                    "2", String.valueOf(USER_ID), String.valueOf(now), "", "0", "1",
+                    negativeData, String.valueOf(now + 2 * HOUR), "1", "60", "", "1000"));
+            ttl = fieldTtl(keys, "2");
+            assertTrue(ttl > HOUR && ttl <= 2 * HOUR, "ttl=" + ttl);
+        } finally {
+            keys.clear();
+        }
+    }
+
+    private List<?> probe(Keys keys, String fieldTtl, long... blogIds) {
+        List<String> scriptKeys = new ArrayList<>(List.of(keys.deleted, keys.added, keys.thumb));
+        List<String> args = new ArrayList<>(List.of(String.valueOf(now), String.valueOf(HOT_THRESHOLD), fieldTtl));
+        for (long blogId : blogIds) {
+            scriptKeys.add(keys.createTime(blogId));
+            args.add(String.valueOf(blogId));
+        }
+        return redis().execute(RedisLuaScriptConstant.THUMB_PROBE_SCRIPT, scriptKeys, args.toArray());
+    }
+
+    /**
+     * @param rows 依次为 博客ID、缓存数据、是否点赞,过期时间从缓存数据中解析
+     */
+    private long writeBack(Keys keys, int maxFields, String fieldTtl, Object... rows) {
+        List<String> args = new ArrayList<>(List.of(String.valueOf(maxFields), fieldTtl));
+        for (int i = 0; i < rows.length; i += 3) {
+            String data = (String) rows[i + 1];
+            args.add(String.valueOf(rows[i]));
+            args.add(data);
+            args.add((Boolean) rows[i + 2] ? "1" : "0");
+            args.add(String.valueOf(codec.decode(data).getExpireTime()));
+        }
+        return redis().execute(RedisLuaScriptConstant.THUMB_WRITE_BACK_SCRIPT,
+                List.of(keys.thumb, keys.deleted, keys.added), args.toArray());
+    }
+
+    private long mqThumb(Keys keys, long blogId, String localState, String filterAbsent, String hotHint, String nodeId) {
+        return redis().execute(RedisLuaScriptConstant.MQ_THUMB_SCRIPT,
+                List.of(keys.thumb, keys.deleted, keys.added, keys.outbox, keys.createTime(blogId), keys.feed),
+                String.valueOf(blogId), String.valueOf(USER_ID), String.valueOf(now), localState, filterAbsent, "0",
+                hotHint, String.valueOf(HOT_THRESHOLD), hotData, String.valueOf(now + 2 * HOUR),
+                coldData, String.valueOf(now + HOUR), "1", "60", nodeId, "1000");
+    }
+
+    private long mqUnthumb(Keys keys, long blogId, String localState, String filterAbsent, String nodeId) {
+        return redis().execute(RedisLuaScriptConstant.MQ_UNTHUMB_SCRIPT,
+                List.of(keys.thumb, keys.deleted, keys.added, keys.outbox, keys.feed),
+                String.valueOf(blogId), String.valueOf(USER_ID), String.valueOf(now), localState, filterAbsent, "0",
+                negativeData, String.valueOf(now + HOUR), "1", "60", nodeId, "1000");
+    }
+
+    private long migrate(Keys keys) {
+        return redis().execute(RedisLuaScriptConstant.FIELD_TTL_MIGRATE_SCRIPT, List.of(keys.thumb), String.valueOf(now));
+    }
+
+    private long fieldTtl(Keys keys, String blogId) {
+        return (Long) redis().execute(HPTTL_SCRIPT, List.of(keys.thumb), blogId).get(0);
+    }
+
+    private static boolean fieldTtlSupported() {
+        try {
+            redis().execute(RedisLuaScriptConstant.FIELD_TTL_PROBE_SCRIPT, List.of("test:lua:field-ttl-probe"));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private String thumb(long expireTime) {
+        return codec.encode(new ThumbCacheData("123456789", expireTime, now - HOUR));
+    }
+
+    private String negative(long expireTime) {
+        return codec.encode(ThumbCacheData.negative(expireTime));
+    }
+
+    private static synchronized StringRedisTemplate redis() {
+        if (redis == null) {
+            String[] address = System.getProperty("thumb.test.redis").split(":");
+            JedisConnectionFactory factory = new JedisConnectionFactory(
+                    new RedisStandaloneConfiguration(address[0], address.length > 1 ? Integer.parseInt(address[1]) : 6379));
+            factory.afterPropertiesSet();
+            factory.start();
+            redis = new StringRedisTemplate(factory);
+        }
+        return redis;
+    }
+
+    /**
+     * 一个测试用到的键,前缀随机,不影响同一个 Redis 中的其他数据
+     */
+    private static class Keys {
+        final String prefix = "test:lua:" + UUID.randomUUID() + ":";
+        final String deleted = prefix + "deleted";
+        final String added = prefix + "added";
+        final String thumb = prefix + "thumb";
+        final String outbox = prefix + "outbox";
+        final String feed = prefix + "feed";
+
+        String createTime(long blogId) {
+            return prefix + "createTime:" + blogId;
+        }
+
+        void clear() {
+            redis().delete(redis().keys(prefix + "*"));
+        }
+    }
+}
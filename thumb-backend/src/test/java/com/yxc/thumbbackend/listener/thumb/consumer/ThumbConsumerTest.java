@@ -0,0 +1,201 @@
+package com.yxc.thumbbackend.listener.thumb.consumer;
+
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import com.yxc.thumbbackend.listener.thumb.msg.ThumbEvent;
+import com.yxc.thumbbackend.mapper.BlogMapper;
+import com.yxc.thumbbackend.mapper.ThumbMapper;
+import org.apache.pulsar.client.api.Message;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbConsumerTest {
+
+    // thumb 表中的记录: "userId:blogId"
+    private final Set<String> rows = new HashSet<>();
+    // 已写入数据库的最新事件ID: "userId:blogId" -> 事件ID
+    private final Map<String, String> appliedIds = new HashMap<>();
+    private final List<String> statements = new ArrayList<>();
+    private final Map<Long, Long> thumbCounts = new HashMap<>();
+    private final List<Object> recordedApplied = new ArrayList<>();
+
+    private final ThumbConsumer consumer = new ThumbConsumer(blogMapper(), thumbMapper(), redisTemplate());
+
+    // 处理批次时注册的事务回调
+    private List<TransactionSynchronization> synchronizations = List.of();
+
+    @Test
+    void appliesLatestEventPerPairByRowCount() {
+        rows.add("3:11");
+        // (1, 10) 乱序到达,最新的是点赞; (2, 10) 最新的是取消点赞但记录不存在; (3, 11) 同一事件重复投递
+        process(
+                event(1, 10, ThumbEvent.EventType.INCR, "3-0"),
+                event(1, 10, ThumbEvent.EventType.INCR, "1-0"),
+                event(1, 10, ThumbEvent.EventType.DECR, "2-0"),
+                event(2, 10, ThumbEvent.EventType.INCR, "5-0"),
+                event(2, 10, ThumbEvent.EventType.DECR, "6-0"),
+                event(3, 11, ThumbEvent.EventType.DECR, "7-0"),
+                event(3, 11, ThumbEvent.EventType.DECR, "7-0"));
+
+        assertEquals(List.of("insert 1:10", "delete 2:10", "delete 3:11"), statements);
+        assertEquals(Set.of("1:10"), rows);
+        // 删除不存在的记录不计数
+        assertEquals(Map.of(10L, 1L, 11L, -1L), thumbCounts);
+
+        // 事务提交后才记录已处理的事件ID
+        assertTrue(recordedApplied.isEmpty());
+        commit();
+        assertEquals(List.of(String.valueOf(ThumbConstant.THUMB_OUTBOX_APPLIED_EXPIRE_SECONDS),
+                "10", "3-0", "10", "6-0", "11", "7-0"), recordedApplied);
+    }
+
+    @Test
+    void skipsEventsAlreadyApplied() {
+        rows.add("1:10");
+        rows.add("5:13");
+        appliedIds.put("1:10", "3-0");
+        appliedIds.put("2:10", "3-5");
+        appliedIds.put("4:12", "9-0");
+        process(
+                // 失败重发: 已经写入过
+                event(1, 10, ThumbEvent.EventType.DECR, "3-0"),
+                // 比已写入的新
+                event(2, 10, ThumbEvent.EventType.INCR, "4-0"),
+                // 接管导致的乱序: 更新的事件已经写入
+                event(4, 12, ThumbEvent.EventType.INCR, "8-9"),
+                // 对账任务的补偿事件没有ID,记录已存在时不计数
+                event(5, 13, ThumbEvent.EventType.INCR, null));
+
+        assertEquals(List.of("insert 2:10", "insert 5:13"), statements);
+        assertEquals(Set.of("1:10", "2:10", "5:13"), rows);
+        assertEquals(Map.of(10L, 1L), thumbCounts);
+        commit();
+        assertEquals(List.of(String.valueOf(ThumbConstant.THUMB_OUTBOX_APPLIED_EXPIRE_SECONDS), "10", "4-0"),
+                recordedApplied);
+    }
+
+    @Test
+    void comparesEventIdsNumerically() {
+        assertTrue(ThumbConsumer.compareEventId("10-0", "9-0") > 0);
+        assertTrue(ThumbConsumer.compareEventId("5-10", "5-9") > 0);
+        assertEquals(0, ThumbConsumer.compareEventId("5-1", "5-1"));
+    }
+
+    /**
+     * 在事务同步中处理一批消息,提交由 {@link #commit()} 模拟
+     */
+    private void process(ThumbEvent... events) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            consumer.processBatch(messages(events));
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void commit() {
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private ThumbMapper thumbMapper() {
+        return (ThumbMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ThumbMapper.class},
+                (proxy, method, args) -> {
+                    String row = args[0] + ":" + args[1];
+                    return switch (method.getName()) {
+                        case "insertIgnore" -> {
+                            statements.add("insert " + row);
+                            yield rows.add(row) ? 1 : 0;
+                        }
+                        case "deleteByUserIdAndBlogId" -> {
+                            statements.add("delete " + row);
+                            yield rows.remove(row) ? 1 : 0;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private BlogMapper blogMapper() {
+        return (BlogMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{BlogMapper.class},
+                (proxy, method, args) -> {
+                    if (!"batchUpdateThumbCount".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    ((Map<Long, Long>) args[0]).forEach((blogId, delta) -> thumbCounts.merge(blogId, delta, Long::sum));
+                    return null;
+                });
+    }
+
+    /**
+     * 管道中的 HGET 从 appliedIds 读取,记录已处理事件的脚本只保存参数
+     */
+    private StringRedisTemplate redisTemplate() {
+        return new StringRedisTemplate() {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                List<Object> results = new ArrayList<>();
+                StringRedisConnection connection = (StringRedisConnection) Proxy.newProxyInstance(
+                        getClass().getClassLoader(), new Class<?>[]{StringRedisConnection.class},
+                        (proxy, method, args) -> {
+                            if (!"hGet".equals(method.getName())) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            String userId = ((String) args[0]).substring(ThumbConstant.THUMB_OUTBOX_APPLIED_KEY_PREFIX.length());
+                            results.add(appliedIds.get(userId + ":" + args[1]));
+                            return null;
+                        });
+                action.doInRedis(connection);
+                return results;
+            }
+
+            @Override
+            public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+                recordedApplied.addAll(Arrays.asList(args));
+                return null;
+            }
+        };
+    }
+
+    private static ThumbEvent event(long userId, long blogId, ThumbEvent.EventType type, String eventId) {
+        return ThumbEvent.builder()
+                .userId(userId)
+                .blogId(blogId)
+                .type(type)
+                .eventTime(LocalDateTime.now())
+                .eventId(eventId)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Message<ThumbEvent>> messages(ThumbEvent... events) {
+        List<Message<ThumbEvent>> messages = new ArrayList<>();
+        for (ThumbEvent event : events) {
+            messages.add((Message<ThumbEvent>) Proxy.newProxyInstance(ThumbConsumerTest.class.getClassLoader(),
+                    new Class<?>[]{Message.class}, (proxy, method, args) -> {
+                        if (!"getValue".equals(method.getName())) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return event;
+                    }));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,162 @@
+package com.yxc.thumbbackend.listener.thumb.outbox;
+
+import com.yxc.thumbbackend.constant.ThumbConstant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbOutboxRelayTest {
+
+    private static final Consumer SELF = Consumer.from(ThumbConstant.THUMB_OUTBOX_GROUP, "A");
+
+    // 发件箱中待确认的事件(按ID排序),以及确认/删除的ID
+    private final List<PendingMessage> pending = new ArrayList<>();
+    private final List<RecordId> acknowledged = new ArrayList<>();
+    private final List<RecordId> deleted = new ArrayList<>();
+    private final List<Range<?>> pendingQueries = new ArrayList<>();
+
+    @Test
+    void acknowledgesOnlyTheSentPrefix() throws InterruptedException {
+        ThumbOutboxRelay relay = relay(1000);
+        List<MapRecord<String, Object, Object>> records = records(1, 4);
+
+        // 第 3 条失败: 只确认前 2 条,第 4 条发送成功也要等下一轮按顺序重发
+        assertFalse(relay.acknowledgeSent(records, List.of(sent(), sent(), failed(), sent())));
+        assertEquals(List.of(RecordId.of("1-0"), RecordId.of("2-0")), acknowledged);
+        assertEquals(acknowledged, deleted);
+
+        acknowledged.clear();
+        deleted.clear();
+        assertFalse(relay.acknowledgeSent(records, List.of(failed(), sent(), sent(), sent())));
+        assertTrue(acknowledged.isEmpty());
+        assertTrue(deleted.isEmpty());
+
+        assertTrue(relay.acknowledgeSent(records, List.of(sent(), sent(), sent(), sent())));
+        assertEquals(4, acknowledged.size());
+        assertEquals(4, deleted.size());
+    }
+
+    @Test
+    void claimIdlePagesPastBusyEntries() {
+        ThumbOutboxRelay relay = relay(100);
+        // 前 250 条是其他节点正在处理的,之后 30 条属于宕机节点,本节点自己的不接管
+        for (long i = 1; i <= 250; i++) {
+            pending.add(pendingMessage(i, "B", Duration.ofSeconds(1)));
+        }
+        for (long i = 251; i <= 280; i++) {
+            pending.add(pendingMessage(i, i % 2 == 0 ? "C" : "A", Duration.ofMinutes(5)));
+        }
+
+        List<MapRecord<String, Object, Object>> claimed = relay.claimIdle(SELF);
+        assertEquals(15, claimed.size());
+        assertEquals(RecordId.of("252-0"), claimed.get(0).getId());
+        assertEquals(RecordId.of("280-0"), claimed.get(14).getId());
+        assertEquals(3, pendingQueries.size());
+    }
+
+    @Test
+    void claimIdleStopsAtBatchSize() {
+        ThumbOutboxRelay relay = relay(100);
+        for (long i = 1; i <= 500; i++) {
+            pending.add(pendingMessage(i, "C", Duration.ofMinutes(5)));
+        }
+
+        List<MapRecord<String, Object, Object>> claimed = relay.claimIdle(SELF);
+        assertEquals(100, claimed.size());
+        assertEquals(RecordId.of("100-0"), claimed.get(99).getId());
+        assertEquals(1, pendingQueries.size());
+    }
+
+    private ThumbOutboxRelay relay(int batchSize) {
+        ThumbOutboxRelay relay = new ThumbOutboxRelay();
+        ReflectionTestUtils.setField(relay, "stringRedisTemplate", new StringRedisTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <HK, HV> StreamOperations<String, HK, HV> opsForStream() {
+                return (StreamOperations<String, HK, HV>) streamOperations();
+            }
+        });
+        ReflectionTestUtils.setField(relay, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "nodeId", SELF.getName());
+        ReflectionTestUtils.setField(relay, "batchSize", batchSize);
+        ReflectionTestUtils.setField(relay, "claimIdleMillis", 60000L);
+        relay.init();
+        return relay;
+    }
+
+    /**
+     * 只实现转发任务用到的 pending / claim / acknowledge / delete
+     */
+    private StreamOperations<?, ?, ?> streamOperations() {
+        return (StreamOperations<?, ?, ?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{StreamOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "pending" -> pendingPage((Range<?>) args[2], (Long) args[3]);
+                    case "claim" -> Arrays.stream((RecordId[]) args[4]).map(ThumbOutboxRelayTest::record).toList();
+                    case "acknowledge" -> {
+                        acknowledged.addAll(Arrays.asList((RecordId[]) args[2]));
+                        yield (long) ((RecordId[]) args[2]).length;
+                    }
+                    case "delete" -> {
+                        deleted.addAll(Arrays.asList((RecordId[]) args[1]));
+                        yield (long) ((RecordId[]) args[1]).length;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private PendingMessages pendingPage(Range<?> range, long count) {
+        pendingQueries.add(range);
+        long after = range.getLowerBound().getValue()
+                .map(value -> RecordId.of(value.toString()).getTimestamp())
+                .orElse(0L);
+        List<PendingMessage> page = pending.stream()
+                .filter(message -> message.getId().getTimestamp() > after)
+                .limit(count)
+                .toList();
+        return new PendingMessages(ThumbConstant.THUMB_OUTBOX_GROUP, range, page);
+    }
+
+    private static PendingMessage pendingMessage(long id, String consumer, Duration idle) {
+        return new PendingMessage(RecordId.of(id, 0), Consumer.from(ThumbConstant.THUMB_OUTBOX_GROUP, consumer), idle, 1);
+    }
+
+    private static List<MapRecord<String, Object, Object>> records(long from, long to) {
+        List<MapRecord<String, Object, Object>> records = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            records.add(record(RecordId.of(id, 0)));
+        }
+        return records;
+    }
+
+    private static MapRecord<String, Object, Object> record(RecordId id) {
+        return StreamRecords.newRecord().in(ThumbConstant.THUMB_OUTBOX_STREAM_KEY).withId(id)
+                .ofMap(Map.<Object, Object>of("u", "1", "b", String.valueOf(id.getTimestamp()), "e", "INCR", "t", "0"));
+    }
+
+    private static CompletableFuture<?> sent() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<?> failed() {
+        return CompletableFuture.failedFuture(new IllegalStateException("broker down"));
+    }
+}
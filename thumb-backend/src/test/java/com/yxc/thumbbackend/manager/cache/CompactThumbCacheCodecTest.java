@@ -0,0 +1,55 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import com.yxc.thumbbackend.model.dto.ThumbCacheData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactThumbCacheCodecTest {
+
+    private final CompactThumbCacheCodec codec = new CompactThumbCacheCodec();
+
+    @Test
+    void roundTrip() {
+        ThumbCacheData[] values = {
+                new ThumbCacheData("1876543210987654321", 1760000000000L, 1750000000000L),
+                new ThumbCacheData("temp_1760000000000", 1760000000000L, 1760000000000L),
+                ThumbCacheData.negative(1760000600000L),
+                new ThumbCacheData("0", 0L, 0L),
+                new ThumbCacheData(String.valueOf(Long.MAX_VALUE), Long.MAX_VALUE, null),
+                // 无法用紧凑格式表示,使用 JSON
+                new ThumbCacheData("007", 5L, 6L),
+                new ThumbCacheData("temp_x", 5L, 6L),
+        };
+        for (ThumbCacheData value : values) {
+            assertEquals(value, codec.decode(codec.encode(value)));
+        }
+    }
+
+    @Test
+    void compactIsSmallerThanJson() {
+        ThumbCacheData value = new ThumbCacheData("1876543210987654321", 1760000000000L, 1750000000000L);
+        String compact = codec.encode(value);
+        assertEquals(CompactThumbCacheCodec.VERSION, compact.charAt(0));
+        assertTrue(compact.chars().allMatch(c -> c < 0x80));
+        assertTrue(compact.length() * 3 < new JsonThumbCacheCodec().encode(value).length());
+    }
+
+    @Test
+    void readsLegacyJson() {
+        ThumbCacheData legacy = new ThumbCacheData("temp_1", 1760000000000L, 1750000000000L);
+        assertEquals(legacy, codec.decode(new JsonThumbCacheCodec().encode(legacy)));
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertNull(codec.decode(null));
+        assertNull(codec.decode(""));
+        assertNull(codec.decode("deleted_1"));
+        assertNull(codec.decode("\u0001"));
+        assertNull(codec.decode("\u0001\u0000\u0009\u0001"));
+        String valid = codec.encode(new ThumbCacheData("12", 5L, 6L));
+        assertNull(codec.decode(valid.substring(0, valid.length() - 1)));
+        assertNull(codec.decode(valid + "\u0000"));
+    }
+}
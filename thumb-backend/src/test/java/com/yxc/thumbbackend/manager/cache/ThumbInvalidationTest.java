@@ -0,0 +1,150 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbInvalidationTest {
+
+    private final InMemoryThumbInvalidationBus bus = new InMemoryThumbInvalidationBus();
+
+    private final List<InvalidationBatch> received = new ArrayList<>();
+
+    private ThumbInvalidationPublisher publisher(ThumbInvalidationBus bus, int maxBatchSize) {
+        ThumbInvalidationPublisher publisher = new ThumbInvalidationPublisher(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(publisher, "thumbInvalidationBus", bus);
+        ReflectionTestUtils.setField(publisher, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(publisher, "maxPending", 10_000);
+        return publisher;
+    }
+
+    @Test
+    void coalescesChangesWithinWindow() {
+        bus.subscribe(received::add);
+        ThumbInvalidationPublisher publisher = publisher(bus, 1000);
+        publisher.invalidate(1L, 2L, true);
+        publisher.invalidate(1L, 3L, true);
+        publisher.invalidate(1L, 2L, false);
+        publisher.flush();
+
+        assertEquals(1, received.size());
+        assertEquals(publisher.getNodeId(), received.get(0).nodeId());
+        assertEquals(List.of(new ThumbInvalidation(1L, 2L, false), new ThumbInvalidation(1L, 3L, true)),
+                received.get(0).invalidations());
+
+        publisher.flush();
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void flushSplitsIntoBatches() {
+        bus.subscribe(received::add);
+        ThumbInvalidationPublisher publisher = publisher(bus, 2);
+        for (long blogId = 1; blogId <= 5; blogId++) {
+            publisher.invalidate(1L, blogId, true);
+        }
+        publisher.flush();
+
+        assertEquals(3, received.size());
+        assertEquals(2, received.get(0).invalidations().size());
+        assertEquals(2, received.get(1).invalidations().size());
+        assertEquals(List.of(new ThumbInvalidation(1L, 5L, true)), received.get(2).invalidations());
+    }
+
+    @Test
+    void failedBatchIsRetriedBeforeNewChanges() {
+        bus.subscribe(received::add);
+        boolean[] down = {true};
+        ThumbInvalidationPublisher publisher = publisher(new InMemoryThumbInvalidationBus() {
+            @Override
+            public void publish(InvalidationBatch batch) {
+                if (down[0]) {
+                    throw new IllegalStateException("bus down");
+                }
+                bus.publish(batch);
+            }
+        }, 1000);
+        publisher.invalidate(1L, 2L, true);
+        publisher.invalidate(1L, 3L, true);
+        publisher.flush();
+        assertTrue(received.isEmpty());
+
+        down[0] = false;
+        publisher.invalidate(1L, 2L, false);
+        publisher.flush();
+
+        assertEquals(1, received.size());
+        assertEquals(List.of(new ThumbInvalidation(1L, 2L, false), new ThumbInvalidation(1L, 3L, true)),
+                received.get(0).invalidations());
+    }
+
+    @Test
+    void dropsChangesBeyondPendingLimit() {
+        bus.subscribe(received::add);
+        boolean[] down = {true};
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ThumbInvalidationPublisher publisher = new ThumbInvalidationPublisher(registry);
+        ReflectionTestUtils.setField(publisher, "thumbInvalidationBus", new InMemoryThumbInvalidationBus() {
+            @Override
+            public void publish(InvalidationBatch batch) {
+                if (down[0]) {
+                    throw new IllegalStateException("bus down");
+                }
+                bus.publish(batch);
+            }
+        });
+        ReflectionTestUtils.setField(publisher, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(publisher, "maxPending", 3);
+
+        for (long blogId = 1; blogId <= 5; blogId++) {
+            publisher.invalidate(1L, blogId, true);
+        }
+        assertEquals(2.0, registry.get("thumb.cache.invalidation.dropped").counter().count());
+
+        // 失败的批次移出队列后可以继续接收新的变更
+        publisher.flush();
+        for (long blogId = 6; blogId <= 8; blogId++) {
+            publisher.invalidate(1L, blogId, true);
+        }
+        assertEquals(3.0, registry.get("thumb.cache.invalidation.dropped").counter().count());
+
+        down[0] = false;
+        publisher.flush();
+        assertEquals(List.of(1L, 2L, 3L, 6L, 7L), received.stream()
+                .flatMap(batch -> batch.invalidations().stream())
+                .map(ThumbInvalidation::blogId)
+                .toList());
+    }
+
+    @Test
+    void subscriberAppliesBatchesFromOtherNodes() {
+        CacheManager cacheManager = new CacheManager();
+        ReflectionTestUtils.setField(cacheManager, "hotKeyProperties", new HotKeyProperties());
+        cacheManager.getHotKeyDetector(cacheManager.multiDimensionHotKeyDetector());
+        cacheManager.localCache(new SimpleMeterRegistry());
+        ThumbInvalidationPublisher publisher = publisher(bus, 1000);
+        ThumbInvalidationSubscriber subscriber = new ThumbInvalidationSubscriber(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(subscriber, "thumbInvalidationBus", bus);
+        ReflectionTestUtils.setField(subscriber, "thumbInvalidationPublisher", publisher);
+        ReflectionTestUtils.setField(subscriber, "cacheManager", cacheManager);
+        subscriber.subscribe();
+
+        cacheManager.put(1L, 2L, true);
+        cacheManager.put(1L, 3L, true);
+
+        // 本节点发送的批次已经在写入时更新过本地缓存,不再处理
+        publisher.invalidate(1L, 3L, false);
+        publisher.flush();
+        assertEquals(ThumbStateStore.THUMBED, cacheManager.get(1L, 3L));
+
+        bus.publish(new InvalidationBatch("other", System.currentTimeMillis(),
+                List.of(new ThumbInvalidation(1L, 2L, false))));
+        assertEquals(ThumbStateStore.UNKNOWN, cacheManager.get(1L, 2L));
+        assertEquals(ThumbStateStore.THUMBED, cacheManager.get(1L, 3L));
+    }
+}
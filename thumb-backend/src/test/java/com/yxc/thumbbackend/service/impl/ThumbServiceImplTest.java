@@ -0,0 +1,228 @@
+package com.yxc.thumbbackend.service.impl;
+
+import com.yxc.thumbbackend.config.BloomFilterLoadProgress;
+import com.yxc.thumbbackend.config.ThumbFieldTtlSupport;
+import com.yxc.thumbbackend.constant.RedisLuaScriptConstant;
+import com.yxc.thumbbackend.manager.cache.CacheManager;
+import com.yxc.thumbbackend.manager.cache.CompactThumbCacheCodec;
+import com.yxc.thumbbackend.manager.cache.CuckooFilter;
+import com.yxc.thumbbackend.manager.cache.HotKeyProperties;
+import com.yxc.thumbbackend.manager.cache.InMemoryMembershipChangeFeed;
+import com.yxc.thumbbackend.manager.cache.MirroredMembershipFilter;
+import com.yxc.thumbbackend.manager.cache.ThumbStateStore;
+import com.yxc.thumbbackend.mapper.ThumbMapper;
+import com.yxc.thumbbackend.model.entity.Thumb;
+import com.yxc.thumbbackend.model.enums.ThumbProbeStatusEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * hasThumb / hasThumbs 的判断顺序: 删除/新增标记 -> 本地缓存 -> 点赞缓存/未点赞缓存 -> 过滤器 -> 数据库
+ * 探测脚本的结果由 probes 给出(脚本本身见 RedisLuaScriptTest),数据库为内存中的 rows
+ */
+class ThumbServiceImplTest {
+
+    private static final long USER = 7;
+
+    // 探测脚本返回的状态,未设置的博客为冷数据未命中
+    private final Map<Long, ThumbProbeStatusEnum> probes = new HashMap<>();
+    // thumb 表中用户 USER 点赞过的博客
+    private final Set<Long> rows = new HashSet<>();
+    private final List<Collection<Long>> dbQueries = new ArrayList<>();
+    // 回写脚本的参数,按第一个博客ID保存(回写在后台线程执行)
+    private final Map<String, List<Object>> writeBacks = new ConcurrentHashMap<>();
+    private int probeCalls;
+
+    private final CacheManager cacheManager = cacheManager();
+    private final MirroredMembershipFilter filter = new MirroredMembershipFilter(new CuckooFilter(1000),
+            new InMemoryMembershipChangeFeed(1000), "A", Duration.ofMinutes(10));
+    private final BloomFilterLoadProgress loadProgress = new BloomFilterLoadProgress();
+    private final ThumbServiceImpl service = service();
+
+    @Test
+    void markersWinOverEveryCache() {
+        probes.put(1L, ThumbProbeStatusEnum.DELETED);
+        probes.put(2L, ThumbProbeStatusEnum.ADDED);
+        cacheManager.put(USER, 1L, true);
+        cacheManager.put(USER, 2L, false);
+
+        assertFalse(service.hasThumb(1L, USER));
+        assertTrue(service.hasThumb(2L, USER));
+        assertTrue(dbQueries.isEmpty());
+    }
+
+    @Test
+    void localCacheAnswersBeforeRedisCache() {
+        probes.put(1L, ThumbProbeStatusEnum.NEGATIVE);
+        cacheManager.put(USER, 1L, true);
+
+        assertTrue(service.hasThumb(1L, USER));
+        assertTrue(dbQueries.isEmpty());
+    }
+
+    @Test
+    void redisCacheAnswersBeforeFilter() {
+        loadProgress.markReady();
+        probes.put(1L, ThumbProbeStatusEnum.CACHED);
+        probes.put(2L, ThumbProbeStatusEnum.NEGATIVE);
+        filter.addLocal(USER, 2L);
+
+        // 过滤器中没有 1,但点赞缓存更准确
+        assertTrue(service.hasThumb(1L, USER));
+        assertFalse(service.hasThumb(2L, USER));
+        assertTrue(dbQueries.isEmpty());
+    }
+
+    @Test
+    void filterRejectsOnlyAfterLoading() {
+        rows.add(1L);
+        // 加载完成前过滤器不完整,查询数据库
+        assertTrue(service.hasThumb(1L, USER));
+        assertEquals(1, dbQueries.size());
+
+        loadProgress.markReady();
+        assertFalse(service.hasThumb(2L, USER));
+        assertEquals(1, dbQueries.size());
+    }
+
+    @Test
+    void missQueriesDatabaseAndWritesBack() {
+        loadProgress.markReady();
+        rows.add(1L);
+        filter.addLocal(USER, 1L);
+        filter.addLocal(USER, 2L);
+        probes.put(1L, ThumbProbeStatusEnum.MISS_HOT);
+
+        assertTrue(service.hasThumb(1L, USER));
+        assertFalse(service.hasThumb(2L, USER));
+        assertEquals(List.of(List.of(1L), List.of(2L)), dbQueries);
+        // 未点赞的结果缓存到本地
+        assertEquals(ThumbStateStore.NOT_THUMBED, cacheManager.get(USER, 2L));
+
+        service.shutdownWriteBack();
+        // 参数: 字段数上限、字段过期开关,之后每个博客 (博客ID, 缓存数据, 是否点赞, 过期时间)
+        List<Object> thumbed = writeBacks.get("1");
+        assertEquals(List.of("2000", "0", "1"), thumbed.subList(0, 3));
+        assertEquals("1", thumbed.get(4));
+        List<Object> notThumbed = writeBacks.get("2");
+        assertEquals(List.of("2000", "0", "2"), notThumbed.subList(0, 3));
+        assertEquals("0", notThumbed.get(4));
+        // 过滤器中已有的记录不重复添加
+        assertEquals(2, filter.local().approximateElementCount());
+    }
+
+    @Test
+    void hasThumbsProbesOnceAndQueriesOnlyMisses() {
+        loadProgress.markReady();
+        rows.addAll(List.of(3L, 6L));
+        probes.put(1L, ThumbProbeStatusEnum.DELETED);
+        probes.put(2L, ThumbProbeStatusEnum.ADDED);
+        probes.put(3L, ThumbProbeStatusEnum.CACHED);
+        probes.put(4L, ThumbProbeStatusEnum.NEGATIVE);
+        cacheManager.put(USER, 5L, true);
+        filter.addLocal(USER, 6L);
+        filter.addLocal(USER, 7L);
+
+        Map<Long, Boolean> result = service.hasThumbs(USER, List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 1L));
+        assertEquals(Map.of(1L, false, 2L, true, 3L, true, 4L, false, 5L, true, 6L, true, 7L, false, 8L, false),
+                result);
+        assertEquals(1, probeCalls);
+        // 8 被过滤器排除,只有 6 和 7 查询数据库
+        assertEquals(List.of(List.of(6L, 7L)), dbQueries);
+
+        // 逐个判断的结果一致
+        for (long blogId = 1; blogId <= 8; blogId++) {
+            assertEquals(result.get(blogId), service.hasThumb(blogId, USER), "blogId=" + blogId);
+        }
+    }
+
+    private ThumbServiceImpl service() {
+        ThumbServiceImpl service = new ThumbServiceImpl();
+        ReflectionTestUtils.setField(service, "baseMapper", thumbMapper());
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redisTemplate());
+        ReflectionTestUtils.setField(service, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(service, "thumbFilterMirror", filter);
+        ReflectionTestUtils.setField(service, "bloomFilterLoadProgress", loadProgress);
+        ReflectionTestUtils.setField(service, "thumbFieldTtlSupport", new ThumbFieldTtlSupport());
+        ReflectionTestUtils.setField(service, "thumbCacheCodec", new CompactThumbCacheCodec());
+        ReflectionTestUtils.setField(service, "negativeCacheTtlSeconds", 600L);
+        ReflectionTestUtils.setField(service, "negativeCacheMaxFields", 2000);
+        return service;
+    }
+
+    /**
+     * 阈值调高,测试中的访问不会成为热点,不触发后台加载集合
+     */
+    private static CacheManager cacheManager() {
+        HotKeyProperties properties = new HotKeyProperties();
+        properties.getDimensions().values().forEach(sketch -> sketch.setMinCount(Integer.MAX_VALUE));
+        CacheManager cacheManager = new CacheManager();
+        ReflectionTestUtils.setField(cacheManager, "hotKeyProperties", properties);
+        cacheManager.getHotKeyDetector(cacheManager.multiDimensionHotKeyDetector());
+        cacheManager.localCache(new SimpleMeterRegistry());
+        return cacheManager;
+    }
+
+    private ThumbMapper thumbMapper() {
+        return (ThumbMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ThumbMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "selectByUserIdAndBlogIds" -> {
+                        Collection<?> blogIds = (Collection<?>) args[1];
+                        dbQueries.add(List.copyOf((Collection<Long>) blogIds));
+                        yield blogIds.stream().filter(rows::contains).map(blogId -> thumb((Long) blogId)).toList();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * 探测脚本按 probes 返回状态,回写脚本只保存参数
+     */
+    private StringRedisTemplate redisTemplate() {
+        return new StringRedisTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+                if (script == RedisLuaScriptConstant.THUMB_PROBE_SCRIPT) {
+                    probeCalls++;
+                    return (T) Arrays.stream(args, 3, args.length)
+                            .map(blogId -> probes.getOrDefault(Long.valueOf((String) blogId),
+                                    ThumbProbeStatusEnum.MISS_COLD).getValue())
+                            .toList();
+                }
+                if (script == RedisLuaScriptConstant.THUMB_WRITE_BACK_SCRIPT) {
+                    writeBacks.put((String) args[2], List.of(args));
+                    return (T) Long.valueOf((args.length - 2) / 4);
+                }
+                throw new UnsupportedOperationException(script.getSha1());
+            }
+        };
+    }
+
+    private static Thumb thumb(long blogId) {
+        Thumb thumb = new Thumb();
+        thumb.setId(blogId * 100);
+        thumb.setUserid(USER);
+        thumb.setBlogid(blogId);
+        thumb.setCreatetime(new Date());
+        return thumb;
+    }
+}
@@ -0,0 +1,423 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 布谷鸟过滤器(Cuckoo Filter),与布隆过滤器相比支持删除
+ * 每个元素保存一个指纹,放在两个候选桶之一; 每个桶 4 个指纹,查询最多读两个桶
+ * 当前表达到负载上限或插入时踢出次数用完后,追加一个桶数量翻倍的新表
+ * 与 ScalableBloomFilter 相同,第 i 个表的误判率上限为 fpp * (1 - r) * r^i,总误判率不超过 fpp:
+ * 单个表满载时误判率约为 2 * 4 / 2^指纹位数,上限不低于 8 / 2^16 的表使用 16 位指纹(一个桶正好是一个 long),
+ * 否则使用 32 位指纹(一个桶两个 long)
+ * 每次添加都保存一份指纹,指纹相同的元素各占一个槽位,删除其中一个不影响其他元素; 同一元素重复添加需要删除同样的次数,
+ * 可能已经添加过的元素由调用方先查询再添加
+ * 查询不加锁(乐观读,未找到时校验),添加和删除串行执行
+ */
+public class CuckooFilter implements MembershipFilter {
+
+    // 序列化内容的类型标记,哈希方式改变后指纹不再兼容,标记随之改变(1: 字符串 key, 2: long 对, 3: 按表选择指纹位数)
+    private static final int TYPE = 0x434B4633;
+
+    private static final int SLOTS = 4;
+    private static final double MAX_LOAD = 0.95;
+    private static final int MAX_KICKS = 500;
+    private static final int MAX_TABLES = 32;
+    // 每个新表的误判率上限是上一个表的一半
+    private static final double TIGHTENING = 0.5;
+    private static final double DEFAULT_FPP = 0.0001;
+
+    private final long initialCapacity;
+    private final double fpp;
+    private final int initialBuckets;
+    private final StampedLock lock = new StampedLock();
+
+    // 写时复制,查询时不加锁
+    private volatile Table[] tables;
+
+    public CuckooFilter(long initialCapacity) {
+        this(initialCapacity, DEFAULT_FPP);
+    }
+
+    /**
+     * @param initialCapacity 第一个表的容量
+     * @param fpp             整体误判率上限
+     */
+    public CuckooFilter(long initialCapacity, double fpp) {
+        if (initialCapacity <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("initialCapacity 必须大于 0, fpp 必须在 (0, 1) 之间");
+        }
+        long buckets = (long) Math.ceil(initialCapacity / (SLOTS * MAX_LOAD));
+        if (buckets > 1 << 30) {
+            throw new IllegalArgumentException("initialCapacity 过大: " + initialCapacity);
+        }
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.initialBuckets = (int) Math.max(2, Long.highestOneBit(buckets * 2 - 1));
+        this.tables = new Table[]{newTable(0)};
+    }
+
+    @Override
+    public boolean mightContain(long userId, long blogId) {
+        long hash = LongPairHash.hash(userId, blogId);
+        long stamp = lock.tryOptimisticRead();
+        // 找到的指纹一定属于某个已添加的元素,可以直接返回; 没找到时可能是指纹正在被踢到另一个桶,需要校验
+        if (contains(tables, hash)) {
+            return true;
+        }
+        if (lock.validate(stamp)) {
+            return false;
+        }
+        stamp = lock.readLock();
+        try {
+            return contains(tables, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean put(long userId, long blogId) {
+        long hash = LongPairHash.hash(userId, blogId);
+        long stamp = lock.writeLock();
+        try {
+            Table[] current = tables;
+            Table last = current[current.length - 1];
+            if (last.full || last.size >= last.capacity) {
+                last = grow(current);
+            }
+            last.insert(hash);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(long userId, long blogId) {
+        long hash = LongPairHash.hash(userId, blogId);
+        long stamp = lock.writeLock();
+        try {
+            Table[] current = tables;
+            for (int i = current.length - 1; i >= 0; i--) {
+                if (current[i].delete(hash)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long approximateElementCount() {
+        long count = 0;
+        for (Table table : tables) {
+            count += table.size;
+        }
+        return count;
+    }
+
+    @Override
+    public double expectedFpp() {
+        double miss = 1;
+        for (Table table : tables) {
+            double load = (double) table.size / ((long) table.bucketCount() * SLOTS);
+            // 查询比较两个桶共 8 个槽位,每个非空槽位与指纹相同的概率为 1/(2^指纹位数 - 1)
+            miss *= Math.pow(1 - 1.0 / table.fingerprintMask, 2 * SLOTS * load);
+        }
+        return 1 - miss;
+    }
+
+    @Override
+    public int stageCount() {
+        return tables.length;
+    }
+
+    /**
+     * 表占用的内存(字节)
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Table table : tables) {
+            bytes += (long) table.buckets.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * 序列化: 类型标记 + 初始容量 + 误判率 + 表数量 + 每个表的桶数量、元素数量、是否已满、暂存区和桶
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        long stamp = lock.readLock();
+        try {
+            Table[] current = tables;
+            data.writeInt(TYPE);
+            data.writeLong(initialCapacity);
+            data.writeDouble(fpp);
+            data.writeInt(current.length);
+            for (Table table : current) {
+                data.writeInt(table.bucketCount());
+                data.writeLong(table.size);
+                data.writeBoolean(table.full);
+                data.writeInt(table.stash.length);
+                for (long entry : table.stash) {
+                    data.writeLong(entry);
+                }
+                for (long bucket : table.buckets) {
+                    data.writeLong(bucket);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        data.flush();
+    }
+
+    @Override
+    public void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != TYPE) {
+            throw new IllegalArgumentException("不是 CuckooFilter 的序列化内容");
+        }
+        long savedCapacity = data.readLong();
+        double savedFpp = data.readDouble();
+        if (savedCapacity != initialCapacity || savedFpp != fpp) {
+            throw new IllegalArgumentException("快照参数(" + savedCapacity + ", " + savedFpp
+                    + ")与当前配置(" + initialCapacity + ", " + fpp + ")不一致");
+        }
+        int length = data.readInt();
+        if (length <= 0 || length > MAX_TABLES) {
+            throw new IllegalArgumentException("表数量不合法: " + length);
+        }
+        Table[] loaded = new Table[length];
+        for (int i = 0; i < length; i++) {
+            int buckets = data.readInt();
+            if (buckets != initialBuckets << i) {
+                throw new IllegalArgumentException("第 " + i + " 个表的桶数量不合法: " + buckets);
+            }
+            Table table = newTable(i);
+            table.size = data.readLong();
+            table.full = data.readBoolean();
+            table.stash = new long[data.readInt()];
+            for (int j = 0; j < table.stash.length; j++) {
+                table.stash[j] = data.readLong();
+            }
+            for (int j = 0; j < table.buckets.length; j++) {
+                table.buckets[j] = data.readLong();
+            }
+            loaded[i] = table;
+        }
+        long stamp = lock.writeLock();
+        try {
+            tables = loaded;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Table grow(Table[] current) {
+        if (current.length >= MAX_TABLES || initialBuckets > (1 << 30) >>> current.length) {
+            throw new IllegalStateException("CuckooFilter 表数量已达上限: " + MAX_TABLES);
+        }
+        Table table = newTable(current.length);
+        Table[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = table;
+        tables = next;
+        return table;
+    }
+
+    /**
+     * 第 index 个表: 桶数量为第一个表的 2^index 倍,指纹位数按该表的误判率上限选择
+     */
+    private Table newTable(int index) {
+        double tableFpp = fpp * (1 - TIGHTENING) * Math.pow(TIGHTENING, index);
+        int bits = 2.0 * SLOTS / ((1 << 16) - 1) <= tableFpp ? 16 : 32;
+        return new Table(initialBuckets << index, bits);
+    }
+
+    private static boolean contains(Table[] tables, long hash) {
+        // 新数据在最后的表中,从后往前查
+        for (int i = tables.length - 1; i >= 0; i--) {
+            if (tables[i].contains(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Table {
+        // 按 bits 位划分通道的 long 数组,每个桶占 words 个 long
+        private final long[] buckets;
+        private final int mask;
+        private final long capacity;
+        private final int bits;
+        private final long fingerprintMask;
+        private final int words;
+        private final int lanes;
+        // 每个通道的最低位 / 最高位
+        private final long lowBits;
+        private final long highBits;
+        // 只在写锁内修改
+        private volatile long size;
+        // 插入时踢出次数用完,不再接受新元素
+        private boolean full;
+        // 踢出次数用完时无处安放的指纹: 桶下标 << 32 | 指纹
+        private long[] stash = new long[0];
+
+        Table(int buckets, int bits) {
+            this.bits = bits;
+            this.fingerprintMask = (1L << bits) - 1;
+            this.lanes = Long.SIZE / bits;
+            this.words = SLOTS / lanes;
+            this.buckets = new long[buckets * words];
+            this.mask = buckets - 1;
+            this.capacity = (long) (buckets * (double) SLOTS * MAX_LOAD);
+            this.lowBits = bits == 16 ? 0x0001000100010001L : 0x0000000100000001L;
+            this.highBits = lowBits << (bits - 1);
+        }
+
+        int bucketCount() {
+            return mask + 1;
+        }
+
+        int index(long hash) {
+            return (int) (hash >>> 32) & mask;
+        }
+
+        long fingerprint(long hash) {
+            long fingerprint = hash & fingerprintMask;
+            // 0 表示空槽位
+            return fingerprint == 0 ? 1 : fingerprint;
+        }
+
+        /**
+         * 另一个候选桶,两个候选桶互为对方的 alt
+         */
+        int alt(int index, long fingerprint) {
+            return (index ^ ((int) fingerprint * 0x5bd1e995)) & mask;
+        }
+
+        boolean contains(long hash) {
+            long fingerprint = fingerprint(hash);
+            int i1 = index(hash);
+            if (hasFingerprint(i1, fingerprint) || hasFingerprint(alt(i1, fingerprint), fingerprint)) {
+                return true;
+            }
+            return stash.length > 0 && stashIndexOf(i1, fingerprint) >= 0;
+        }
+
+        void insert(long hash) {
+            long fingerprint = fingerprint(hash);
+            int i1 = index(hash);
+            int i2 = alt(i1, fingerprint);
+            if (tryAdd(i1, fingerprint) || tryAdd(i2, fingerprint)) {
+                size++;
+                return;
+            }
+            // 两个候选桶都满了: 随机踢出一个指纹,把它放到它的另一个候选桶,直到找到空槽位
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int index = random.nextBoolean() ? i1 : i2;
+            for (int kicks = 0; kicks < MAX_KICKS; kicks++) {
+                fingerprint = swap(index, random.nextInt(SLOTS), fingerprint);
+                index = alt(index, fingerprint);
+                if (tryAdd(index, fingerprint)) {
+                    size++;
+                    return;
+                }
+            }
+            long[] next = Arrays.copyOf(stash, stash.length + 1);
+            next[stash.length] = (long) index << 32 | fingerprint;
+            stash = next;
+            full = true;
+            size++;
+        }
+
+        boolean delete(long hash) {
+            long fingerprint = fingerprint(hash);
+            int i1 = index(hash);
+            if (clear(i1, fingerprint) || clear(alt(i1, fingerprint), fingerprint)) {
+                size--;
+                return true;
+            }
+            int stashIndex = stash.length > 0 ? stashIndexOf(i1, fingerprint) : -1;
+            if (stashIndex < 0) {
+                return false;
+            }
+            long[] next = new long[stash.length - 1];
+            System.arraycopy(stash, 0, next, 0, stashIndex);
+            System.arraycopy(stash, stashIndex + 1, next, stashIndex, next.length - stashIndex);
+            stash = next;
+            size--;
+            return true;
+        }
+
+        /**
+         * 桶中是否有值等于 fingerprint 的通道(SWAR: 异或后判断是否有全 0 的通道)
+         */
+        private boolean hasFingerprint(int index, long fingerprint) {
+            long pattern = fingerprint * lowBits;
+            for (int w = index * words, end = w + words; w < end; w++) {
+                long x = buckets[w] ^ pattern;
+                if (((x - lowBits) & ~x & highBits) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int stashIndexOf(int i1, long fingerprint) {
+            int i2 = alt(i1, fingerprint);
+            for (int i = 0; i < stash.length; i++) {
+                long entry = stash[i];
+                int index = (int) (entry >>> 32);
+                if ((entry & 0xFFFFFFFFL) == fingerprint && (index == i1 || index == i2)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean tryAdd(int index, long fingerprint) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                int word = index * words + slot / lanes;
+                int shift = (slot % lanes) * bits;
+                if (((buckets[word] >>> shift) & fingerprintMask) == 0) {
+                    buckets[word] |= fingerprint << shift;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long swap(int index, int slot, long fingerprint) {
+            int word = index * words + slot / lanes;
+            int shift = (slot % lanes) * bits;
+            long bucket = buckets[word];
+            long victim = (bucket >>> shift) & fingerprintMask;
+            buckets[word] = (bucket & ~(fingerprintMask << shift)) | fingerprint << shift;
+            return victim;
+        }
+
+        private boolean clear(int index, long fingerprint) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                int word = index * words + slot / lanes;
+                int shift = (slot % lanes) * bits;
+                if (((buckets[word] >>> shift) & fingerprintMask) == fingerprint) {
+                    buckets[word] &= ~(fingerprintMask << shift);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
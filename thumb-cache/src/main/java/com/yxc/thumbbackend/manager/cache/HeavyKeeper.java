@@ -0,0 +1,200 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HeavyKeeper implements TopK {
+    private static final int LOOKUP_TABLE_SIZE = 256;
+    // 每个桶用一个 long 表示: 高 32 位为指纹, 低 32 位为计数
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+    private final int k;
+    private final int width;
+    private final int depth;
+    private final double[] lookupTable;
+    private final AtomicLongArray[] buckets;
+    // 每一行使用独立的哈希种子, 保证不同行落在不同的列上
+    private final long[] rowSeeds;
+    private final IndexedMinHeap minHeap;
+    private final BlockingQueue<Item> expelledQueue;
+    private final LongAdder total;
+    private final int minCount;
+
+    public HeavyKeeper(int k, int width, int depth, double decay, int minCount) {
+        this.k = k;
+        this.width = width;
+        this.depth = depth;
+        this.minCount = minCount;
+
+        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = Math.pow(decay, i);
+        }
+
+        this.buckets = new AtomicLongArray[depth];
+        this.rowSeeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            buckets[i] = new AtomicLongArray(width);
+            rowSeeds[i] = mix64(SEED_STEP * (i + 1));
+        }
+
+        this.expelledQueue = new LinkedBlockingQueue<>();
+        this.minHeap = new IndexedMinHeap(k, expelledQueue);
+        this.total = new LongAdder();
+    }
+
+    @Override
+    public List<Item> list() {
+        return minHeap.list();
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return expelledQueue;
+    }
+
+    @Override
+    public void fading() {
+        // 逐个桶 CAS 减半, 不阻塞并发的 add
+        for (AtomicLongArray row : buckets) {
+            for (int i = 0; i < width; i++) {
+                long cell;
+                do {
+                    cell = row.get(i);
+                } while (countOf(cell) != 0 && !row.compareAndSet(i, cell, pack(fingerprintOf(cell), countOf(cell) >> 1)));
+            }
+        }
+
+        minHeap.halve();
+
+        // 减半期间并发累加的增量不会丢失, 只是可能有一部分没有被减半
+        long current = total.sumThenReset();
+        total.add(current >> 1);
+    }
+
+    @Override
+    public long total() {
+        return total.sum();
+    }
+
+    @Override
+    public long promotions() {
+        return minHeap.promotions();
+    }
+
+    private static long hash(byte[] data) {
+        return MurmurHash.hash64(data);
+    }
+
+    /**
+     * 64 位混淆函数(murmur3 fmix64), 用于派生每一行的桶下标
+     */
+    private static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int bucketIndex(long keyHash, int row) {
+        return (int) ((mix64(keyHash ^ rowSeeds[row]) >>> 1) % width);
+    }
+
+    private static long pack(int fingerprint, int count) {
+        return ((long) fingerprint << 32) | (count & COUNT_MASK);
+    }
+
+    private static int fingerprintOf(long cell) {
+        return (int) (cell >>> 32);
+    }
+
+    private static int countOf(long cell) {
+        return (int) (cell & COUNT_MASK);
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        long keyHash = hash(key.getBytes(StandardCharsets.UTF_8));
+        int maxCount = increment(keyHash, increment);
+
+        if (maxCount < minCount) {
+            return new AddResult(null, false, null);
+        }
+
+        return minHeap.offer(keyHash, key, maxCount);
+    }
+
+    @Override
+    public boolean add(long key, int increment) {
+        // long key 直接用 fmix64 得到哈希, 不需要转成字符串和字节数组
+        int maxCount = increment(mix64(key), increment);
+        return maxCount >= minCount && minHeap.offer(key, maxCount);
+    }
+
+    /**
+     * 在 sketch 的每一行累加 key 的计数
+     * @return 各行中该 key 的最大计数
+     */
+    private int increment(long keyHash, int increment) {
+        int itemFingerprint = (int) (keyHash >>> 32);
+        int maxCount = 0;
+
+        for (int i = 0; i < depth; i++) {
+            AtomicLongArray row = buckets[i];
+            int bucketNumber = bucketIndex(keyHash, i);
+
+            while (true) {
+                long cell = row.get(bucketNumber);
+                int count = countOf(cell);
+                int newCount;
+                long update;
+
+                if (count == 0) {
+                    newCount = increment;
+                    update = pack(itemFingerprint, newCount);
+                } else if (fingerprintOf(cell) == itemFingerprint) {
+                    newCount = (int) Math.min((long) count + increment, Integer.MAX_VALUE);
+                    update = pack(itemFingerprint, newCount);
+                } else {
+                    // 指纹不同, 以 decay^count 的概率逐次衰减, 减到 0 时由当前 key 占据该桶
+                    int remaining = count;
+                    newCount = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < increment; j++) {
+                        double decay = remaining < LOOKUP_TABLE_SIZE ?
+                                lookupTable[remaining] :
+                                lookupTable[LOOKUP_TABLE_SIZE - 1];
+                        if (random.nextDouble() < decay) {
+                            remaining--;
+                            if (remaining == 0) {
+                                newCount = increment - j;
+                                break;
+                            }
+                        }
+                    }
+                    if (remaining == count) {
+                        break;
+                    }
+                    update = newCount > 0 ? pack(itemFingerprint, newCount) : pack(fingerprintOf(cell), remaining);
+                }
+
+                if (row.compareAndSet(bucketNumber, cell, update)) {
+                    maxCount = Math.max(maxCount, newCount);
+                    break;
+                }
+            }
+        }
+
+        total.add(increment);
+        return maxCount;
+    }
+}
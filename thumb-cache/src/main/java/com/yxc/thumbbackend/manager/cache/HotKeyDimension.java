@@ -0,0 +1,21 @@
+package com.yxc.thumbbackend.manager.cache;
+
+/**
+ * 热点key的检测维度,每个维度使用独立的 sketch 和阈值
+ */
+public enum HotKeyDimension {
+    /**
+     * 热点博客(很多用户访问同一篇博客)
+     */
+    BLOG,
+
+    /**
+     * 热点用户(爬虫或重度用户频繁请求)
+     */
+    USER,
+
+    /**
+     * 热点(用户, 博客)组合
+     */
+    PAIR
+}
@@ -0,0 +1,36 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并各节点的 TopK 快照
+ */
+public final class HotKeyMerger {
+
+    private HotKeyMerger() {
+    }
+
+    /**
+     * 按 key 累加各节点的计数,取计数最大的 k 个
+     * @param snapshots 各节点的 TopK 列表
+     * @param k 全局 TopK 数量
+     * @return 全局 TopK,按计数降序
+     */
+    public static List<Item> merge(Collection<List<Item>> snapshots, int k) {
+        Map<String, Long> countMap = new HashMap<>();
+        for (List<Item> snapshot : snapshots) {
+            for (Item item : snapshot) {
+                countMap.merge(item.key(), (long) item.count(), Long::sum);
+            }
+        }
+
+        List<Item> merged = new ArrayList<>(countMap.size());
+        countMap.forEach((key, count) -> merged.add(new Item(key, (int) Math.min(count, Integer.MAX_VALUE))));
+        merged.sort((a, b) -> Integer.compare(b.count(), a.count()));
+        return merged.size() > k ? new ArrayList<>(merged.subList(0, k)) : merged;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 集群热点key快照存储
+ * 每个节点定期上报本地 TopK 列表,由一个节点合并成全局 TopK 后回写,所有节点再拉取全局 TopK
+ */
+public interface HotKeySnapshotStore {
+
+    /**
+     * 上报本节点的 TopK 快照
+     * @param nodeId 节点ID
+     * @param items 本地 TopK 列表
+     * @param ttl 快照有效期,节点下线后快照自动失效
+     */
+    void publish(String nodeId, List<Item> items, Duration ttl);
+
+    /**
+     * 获取所有存活节点的快照
+     * @return 节点ID -> TopK 列表
+     */
+    Map<String, List<Item>> snapshots();
+
+    /**
+     * 尝试获取合并任务的租约,同一时间只有一个节点负责合并
+     * @param nodeId 节点ID
+     * @param lease 租约时长
+     * @return 是否获取成功(已持有租约的节点会续期)
+     */
+    boolean tryAcquireMergeLease(String nodeId, Duration lease);
+
+    /**
+     * 回写合并后的全局 TopK
+     */
+    void publishGlobal(List<Item> items, Duration ttl);
+
+    /**
+     * 获取全局 TopK,按计数降序
+     */
+    List<Item> global();
+}
@@ -0,0 +1,62 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单机内存版快照存储,用于测试或单节点部署
+ */
+public class InMemoryHotKeySnapshotStore implements HotKeySnapshotStore {
+
+    private record Snapshot(List<Item> items, long expireAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+    }
+
+    private final Map<String, Snapshot> nodeSnapshots = new ConcurrentHashMap<>();
+
+    private volatile Snapshot globalSnapshot = new Snapshot(List.of(), Long.MAX_VALUE);
+
+    private String leaseHolder;
+
+    private long leaseExpireAt;
+
+    @Override
+    public void publish(String nodeId, List<Item> items, Duration ttl) {
+        nodeSnapshots.put(nodeId, new Snapshot(List.copyOf(items), System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public Map<String, List<Item>> snapshots() {
+        nodeSnapshots.values().removeIf(Snapshot::isExpired);
+        Map<String, List<Item>> result = new HashMap<>();
+        nodeSnapshots.forEach((nodeId, snapshot) -> result.put(nodeId, snapshot.items()));
+        return result;
+    }
+
+    @Override
+    public synchronized boolean tryAcquireMergeLease(String nodeId, Duration lease) {
+        long now = System.currentTimeMillis();
+        if (leaseHolder == null || leaseHolder.equals(nodeId) || now > leaseExpireAt) {
+            leaseHolder = nodeId;
+            leaseExpireAt = now + lease.toMillis();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void publishGlobal(List<Item> items, Duration ttl) {
+        globalSnapshot = new Snapshot(List.copyOf(items), System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    @Override
+    public List<Item> global() {
+        Snapshot snapshot = globalSnapshot;
+        return snapshot.isExpired() ? List.of() : snapshot.items();
+    }
+}
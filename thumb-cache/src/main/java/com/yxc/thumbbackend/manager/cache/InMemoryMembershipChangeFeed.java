@@ -0,0 +1,74 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单机内存版变更流,用于测试或单节点部署
+ * 位置为已追加的变更数量,环形数组只保留最近 maxLength 条变更
+ */
+public class InMemoryMembershipChangeFeed implements MembershipChangeFeed {
+
+    private final MembershipChange[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    // 下一条变更的位置
+    private long nextOffset;
+
+    public InMemoryMembershipChangeFeed(int maxLength) {
+        this.ring = new MembershipChange[maxLength];
+    }
+
+    @Override
+    public void append(MembershipChange change) {
+        lock.lock();
+        try {
+            ring[(int) (nextOffset % ring.length)] = change;
+            nextOffset++;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String latestId() {
+        lock.lock();
+        try {
+            return String.valueOf(nextOffset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public MembershipChangeBatch read(String afterId, int limit, Duration block) throws InterruptedException {
+        long offset = Long.parseLong(afterId);
+        long deadline = System.nanoTime() + block.toNanos();
+        lock.lock();
+        try {
+            while (offset >= nextOffset) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return new MembershipChangeBatch(afterId, List.of(), false);
+                }
+                appended.await(remaining, TimeUnit.NANOSECONDS);
+            }
+            long firstOffset = Math.max(0, nextOffset - ring.length);
+            boolean gap = offset < firstOffset;
+            long start = Math.max(offset, firstOffset);
+            long end = Math.min(nextOffset, start + limit);
+            List<MembershipChange> batch = new ArrayList<>((int) (end - start));
+            for (long i = start; i < end; i++) {
+                batch.add(ring[(int) (i % ring.length)]);
+            }
+            return new MembershipChangeBatch(String.valueOf(end), batch, gap);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 单机内存版失效消息总线,同步投递给所有订阅者,用于测试或单节点部署
+ */
+public class InMemoryThumbInvalidationBus implements ThumbInvalidationBus {
+
+    private final List<Consumer<InvalidationBatch>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationBatch batch) {
+        listeners.forEach(listener -> listener.accept(batch));
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationBatch> listener) {
+        listeners.add(listener);
+    }
+}
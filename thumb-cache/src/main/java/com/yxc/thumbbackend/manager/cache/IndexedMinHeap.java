@@ -0,0 +1,291 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * HeavyKeeper 的 TopK 集合: 按计数排序的最小堆 + key 到堆下标的索引
+ * 已存在 key 的更新为 O(log k), 不再需要线性扫描
+ * 堆内的 key 统一为 64 位 id: long key 直接使用, String key 使用其哈希值并保存原始字符串
+ */
+class IndexedMinHeap {
+    static final int COLD = 0;
+    static final int HOT = 1;
+    static final int EXPELLED = 2;
+    // String key 挤出其他 key 时, 把被挤出的 key 交给调用线程; long key 不使用
+    private static final ThreadLocal<String> EXPELLED_KEY = new ThreadLocal<>();
+
+    private final int capacity;
+    private final long[] ids;
+    // String key 的原始值, long key 为 null
+    private final String[] labels;
+    private final int[] counts;
+    // id -> 堆下标, 只在写锁内修改, 乐观读需要 validate
+    private final LongIntIndex index;
+    private final BlockingQueue<Item> expelledQueue;
+    private final StampedLock lock = new StampedLock();
+    // 新 key 进入 TopK 的次数, 只在写锁内累加
+    private volatile long promotions;
+    private int size;
+
+    IndexedMinHeap(int capacity, BlockingQueue<Item> expelledQueue) {
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.labels = new String[capacity];
+        this.counts = new int[capacity];
+        this.index = new LongIntIndex(capacity);
+        this.expelledQueue = expelledQueue;
+    }
+
+    /**
+     * 用 sketch 估算出的最新计数更新 key 在 TopK 中的位置
+     * 计数只增不减, 整体衰减由 fading 处理
+     */
+    AddResult offer(long id, String key, int count) {
+        int status = offerStatus(id, key, count);
+        if (status == EXPELLED) {
+            String expelled = EXPELLED_KEY.get();
+            EXPELLED_KEY.remove();
+            return new AddResult(expelled, true, key);
+        }
+        return new AddResult(null, status == HOT, key);
+    }
+
+    /**
+     * long key 的 offer, 除了 key 被挤出时之外不分配对象
+     * @return 当前 key 是否在 TopK 中
+     */
+    boolean offer(long id, int count) {
+        return offerStatus(id, null, count) != COLD;
+    }
+
+    private int offerStatus(long id, String key, int count) {
+        // 1. 乐观读: 已是热点且计数未变化, 或者堆已满且计数低于堆顶, 都不需要加锁
+        long stamp = lock.tryOptimisticRead();
+        int slot = index.get(id);
+        if (slot >= 0) {
+            if (ids[slot] == id && counts[slot] >= count && lock.validate(stamp)) {
+                return HOT;
+            }
+            // 2. 已是热点但写锁被占用时跳过本次更新, 下一次 add 会带上 sketch 中更新后的计数
+            long writeStamp = lock.tryWriteLock();
+            if (writeStamp == 0L) {
+                return HOT;
+            }
+            return offerLocked(id, key, count, writeStamp);
+        }
+        if (size == capacity && count < counts[0] && lock.validate(stamp)) {
+            return COLD;
+        }
+
+        // 3. 新 key 可能进入 TopK, 必须加写锁
+        return offerLocked(id, key, count, lock.writeLock());
+    }
+
+    private int offerLocked(long id, String key, int count, long writeStamp) {
+        try {
+            int slot = index.get(id);
+            if (slot >= 0) {
+                if (count > counts[slot]) {
+                    counts[slot] = count;
+                    siftDown(slot);
+                }
+                return HOT;
+            }
+
+            if (size < capacity) {
+                ids[size] = id;
+                labels[size] = key;
+                counts[size] = count;
+                index.put(id, size);
+                siftUp(size);
+                size++;
+                promotions++;
+                return HOT;
+            }
+
+            if (count < counts[0]) {
+                return COLD;
+            }
+
+            // 挤出堆顶(计数最小)的 key
+            Item expelled = new Item(labelOf(0), count);
+            if (key != null) {
+                EXPELLED_KEY.set(expelled.key());
+            }
+            index.remove(ids[0]);
+            ids[0] = id;
+            labels[0] = key;
+            counts[0] = count;
+            index.put(id, 0);
+            siftDown(0);
+            promotions++;
+            expelledQueue.offer(expelled);
+            return EXPELLED;
+        } finally {
+            lock.unlockWrite(writeStamp);
+        }
+    }
+
+    long promotions() {
+        return promotions;
+    }
+
+    List<Item> list() {
+        long stamp = lock.readLock();
+        try {
+            List<Item> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new Item(labelOf(i), counts[i]));
+            }
+            result.sort((a, b) -> Integer.compare(b.count(), a.count()));
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 所有计数减半, 减半不改变相对顺序, 因此无需重新建堆
+     */
+    void halve() {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                counts[i] = counts[i] >> 1;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private String labelOf(int slot) {
+        return labels[slot] != null ? labels[slot] : Long.toString(ids[slot]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = (i << 1) + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && counts[right] < counts[left]) {
+                smallest = right;
+            }
+            if (counts[i] <= counts[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        String label = labels[i];
+        int count = counts[i];
+        ids[i] = ids[j];
+        labels[i] = labels[j];
+        counts[i] = counts[j];
+        ids[j] = id;
+        labels[j] = label;
+        counts[j] = count;
+        index.put(ids[i], i);
+        index.put(ids[j], j);
+    }
+
+    /**
+     * long -> int 的开放寻址索引(线性探测, 删除时回移后续元素, 不留删除标记)
+     * 元素数量不超过堆容量, 表大小固定为容量的 2 倍以上, 不需要扩容
+     */
+    private static final class LongIntIndex {
+        private static final int FREE = -1;
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        LongIntIndex(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 4 - 1);
+            this.keys = new long[tableSize];
+            this.values = new int[tableSize];
+            this.mask = tableSize - 1;
+            Arrays.fill(values, FREE);
+        }
+
+        /**
+         * @return 堆下标, 不存在时返回 -1
+         */
+        int get(long key) {
+            int i = slotOf(key);
+            for (int probes = 0; probes <= mask; probes++) {
+                int value = values[i];
+                if (value == FREE) {
+                    return FREE;
+                }
+                if (keys[i] == key) {
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return FREE;
+        }
+
+        void put(long key, int value) {
+            int i = slotOf(key);
+            while (values[i] != FREE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int i = slotOf(key);
+            while (values[i] != FREE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == FREE) {
+                return;
+            }
+            // 把后续探测链上的元素前移, 保证查找不会在空位提前结束
+            int hole = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (values[j] == FREE) {
+                    break;
+                }
+                int home = slotOf(keys[j]);
+                // home 不在 (hole, j] 区间内时, j 可以移动到 hole
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = FREE;
+        }
+
+        private int slotOf(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.List;
+
+/**
+ * 一个时间窗口内合并后的点赞状态变更
+ * @param nodeId 发送节点,接收方跳过自己发送的批次
+ * @param sentAt 发送时间(毫秒),用于统计传播延迟
+ */
+public record InvalidationBatch(String nodeId, long sentAt, List<ThumbInvalidation> invalidations) {}
@@ -0,0 +1,155 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 紧凑的 long 集合(开放寻址,线性探测),每个元素只占 8~16 字节,没有装箱对象
+ * 读操作使用乐观读不加锁,写操作加写锁;只支持正数(数据库自增ID)
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+    private static final long DELETED = -1L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] table;
+    private int size;
+    // 已使用的槽位(包括删除标记),用于判断是否需要扩容
+    private int used;
+
+    public LongHashSet(int expectedSize) {
+        this.table = new long[tableSizeFor(expectedSize)];
+    }
+
+    public static LongHashSet of(Iterable<Long> values, int expectedSize) {
+        LongHashSet set = new LongHashSet(expectedSize);
+        for (Long value : values) {
+            if (value != null) {
+                set.add(value);
+            }
+        }
+        return set;
+    }
+
+    public boolean contains(long value) {
+        checkValue(value);
+        long stamp = lock.tryOptimisticRead();
+        boolean found = find(table, value) >= 0;
+        if (lock.validate(stamp)) {
+            return found;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(table, value) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean add(long value) {
+        checkValue(value);
+        long stamp = lock.writeLock();
+        try {
+            if (find(table, value) >= 0) {
+                return false;
+            }
+            if (used + 1 > table.length * LOAD_FACTOR) {
+                rehash(size + 1);
+            }
+            int mask = table.length - 1;
+            int i = mix(value) & mask;
+            while (table[i] != EMPTY && table[i] != DELETED) {
+                i = (i + 1) & mask;
+            }
+            if (table[i] == EMPTY) {
+                used++;
+            }
+            table[i] = value;
+            size++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long value) {
+        checkValue(value);
+        long stamp = lock.writeLock();
+        try {
+            int i = find(table, value);
+            if (i < 0) {
+                return false;
+            }
+            table[i] = DELETED;
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 估算占用的内存(字节)
+     */
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private static int find(long[] table, long value) {
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        for (int probes = 0; probes < table.length; probes++) {
+            long current = table[i];
+            if (current == EMPTY) {
+                return -1;
+            }
+            if (current == value) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int expectedSize) {
+        long[] old = table;
+        table = new long[tableSizeFor(Math.max(expectedSize, size) * 2)];
+        used = 0;
+        int mask = table.length - 1;
+        for (long value : old) {
+            if (value != EMPTY && value != DELETED) {
+                int i = mix(value) & mask;
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+                used++;
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = (int) Math.min(1L << 30, Math.max(16L, (long) Math.ceil(expectedSize / LOAD_FACTOR)));
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void checkValue(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("LongHashSet 只支持正数: " + value);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.yxc.thumbbackend.manager.cache;
+
+/**
+ * 两个 long 组成的 key(用户ID, 博客ID)的哈希
+ * 结果与 Guava {@code Hashing.murmur3_128().newHasher().putLong(first).putLong(second).hash().asLong()} 相同,
+ * 即用一个依次写入两个 long 的 Funnel 得到的哈希,但不创建 Hasher/HashCode,也不拼接字符串,与平台字符集无关
+ */
+public final class LongPairHash {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private LongPairHash() {
+    }
+
+    /**
+     * murmur3_128(seed 0) 处理一个 16 字节的块后的前 64 位
+     */
+    public static long hash(long first, long second) {
+        long h1 = 0;
+        long h2 = 0;
+
+        long k1 = first * C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        long k2 = second * C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        h1 ^= 16;
+        h2 ^= 16;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix64(h1);
+        h2 = mix64(h2);
+        return h1 + h2;
+    }
+
+    /**
+     * murmur3 的 fmix64,把 64 位充分打散
+     */
+    public static long mix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
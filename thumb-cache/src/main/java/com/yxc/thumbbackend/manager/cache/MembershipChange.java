@@ -0,0 +1,9 @@
+package com.yxc.thumbbackend.manager.cache;
+
+/**
+ * 点赞过滤器的一次变更
+ * @param nodeId    产生变更的节点,该节点在本地已经应用,跟随时跳过
+ * @param added     true 为点赞(添加),false 为取消点赞(删除)
+ * @param createdAt 产生时间(毫秒),用于统计传播延迟
+ */
+public record MembershipChange(String nodeId, long userId, long blogId, boolean added, long createdAt) {}
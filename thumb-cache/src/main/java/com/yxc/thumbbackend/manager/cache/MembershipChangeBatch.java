@@ -0,0 +1,10 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.List;
+
+/**
+ * 从变更流中读取的一批变更
+ * @param lastId 最后一条变更的位置,下次从这里继续读取
+ * @param gap    上次读取的位置已经被裁剪,中间的变更丢失,需要从数据库补齐
+ */
+public record MembershipChangeBatch(String lastId, List<MembershipChange> changes, boolean gap) {}
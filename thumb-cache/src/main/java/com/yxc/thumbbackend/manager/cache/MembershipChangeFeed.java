@@ -0,0 +1,27 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.time.Duration;
+
+/**
+ * 点赞过滤器的变更流,所有节点共享
+ * 每个节点把自己的添加/删除追加到流中,并按顺序跟随其他节点的变更,本地过滤器因此在有限延迟内保持一致
+ */
+public interface MembershipChangeFeed {
+
+    /**
+     * 追加一条变更
+     */
+    void append(MembershipChange change);
+
+    /**
+     * 当前最新的位置,从数据库或快照加载前记录,加载完成后从这里开始跟随
+     */
+    String latestId();
+
+    /**
+     * 读取 afterId 之后的变更,没有新变更时最多等待 block
+     * @param afterId 上次读取到的位置
+     * @param limit   最多读取的数量
+     */
+    MembershipChangeBatch read(String afterId, int limit, Duration block) throws InterruptedException;
+}
@@ -0,0 +1,53 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 集合成员过滤器: 判断"一定不存在"或"可能存在"
+ * 元素是(用户ID, 博客ID)两个 long,直接对两个 long 做哈希({@link LongPairHash}),不拼接字符串
+ * 实现: {@link ScalableBloomFilter}(不支持删除) / {@link CuckooFilter}(支持删除)
+ */
+public interface MembershipFilter {
+
+    boolean mightContain(long userId, long blogId);
+
+    /**
+     * 添加元素
+     * 不支持删除的实现中已经(可能)存在的元素不会重复添加; 支持删除的实现每次都保存一份指纹,与 remove 一一对应
+     * @return 是否改变了过滤器内容
+     */
+    boolean put(long userId, long blogId);
+
+    /**
+     * 删除元素,只能删除确实添加过的元素,否则可能误删指纹相同的其他元素
+     * @return 是否删除,不支持删除的实现始终返回 false
+     */
+    default boolean remove(long userId, long blogId) {
+        return false;
+    }
+
+    /**
+     * 添加的元素数量(删除的不计入)
+     */
+    long approximateElementCount();
+
+    /**
+     * 根据当前填充程度估算的误判率
+     */
+    double expectedFpp();
+
+    /**
+     * 子过滤器数量,容量不够时各实现都通过追加子过滤器扩容
+     */
+    int stageCount();
+
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * 用序列化的内容替换当前内容
+     * @throws IllegalArgumentException 序列化内容不属于当前实现或参数与当前配置不一致
+     */
+    void readFrom(InputStream in) throws IOException;
+}
@@ -0,0 +1,207 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 共享变更流的本地过滤器镜像
+ * 查询只访问本地过滤器; 本节点的添加/删除立即应用到本地并追加到变更流,其他节点的变更由 {@link #poll} 按顺序应用
+ * 同一组合在去重窗口内只删除一次: 每次删除去掉一份指纹,同一次取消点赞被重复应用时(例如变更流重复读取)会误删指纹相同的其他元素
+ */
+public class MirroredMembershipFilter {
+
+    private final MembershipFilter local;
+    private final MembershipChangeFeed feed;
+    private final String nodeId;
+    private final long removeDedupMillis;
+    private final LongSupplier clock;
+
+    // 去重窗口内删除过的元素 -> 删除时间
+    private final ConcurrentHashMap<Key, Long> recentlyRemoved = new ConcurrentHashMap<>();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+    private volatile String position;
+    private volatile long lagMillis;
+    private long lastPurge;
+
+    /**
+     * @param nodeId            本节点ID,跟随时跳过本节点产生的变更
+     * @param removeDedupWindow 删除去重窗口
+     */
+    public MirroredMembershipFilter(MembershipFilter local, MembershipChangeFeed feed,
+                                    String nodeId, Duration removeDedupWindow) {
+        this(local, feed, nodeId, removeDedupWindow, System::currentTimeMillis);
+    }
+
+    MirroredMembershipFilter(MembershipFilter local, MembershipChangeFeed feed,
+                             String nodeId, Duration removeDedupWindow, LongSupplier clock) {
+        this.local = local;
+        this.feed = feed;
+        this.nodeId = nodeId;
+        this.removeDedupMillis = removeDedupWindow.toMillis();
+        this.clock = clock;
+    }
+
+    public boolean mightContain(long userId, long blogId) {
+        return local.mightContain(userId, blogId);
+    }
+
+    /**
+     * 添加并广播给其他节点,本地过滤器没有变化时不广播(各节点应用同样的变更,本地已有的其他节点也已经有了)
+     */
+    public void add(long userId, long blogId) {
+        long now = clock.getAsLong();
+        if (applyAdd(userId, blogId)) {
+            feed.append(new MembershipChange(nodeId, userId, blogId, true, now));
+        }
+    }
+
+    /**
+     * 删除并广播给其他节点,去重窗口内已经删除过的不再删除和广播
+     */
+    public void remove(long userId, long blogId) {
+        long now = clock.getAsLong();
+        if (applyRemove(userId, blogId, now)) {
+            feed.append(new MembershipChange(nodeId, userId, blogId, false, now));
+        }
+    }
+
+    /**
+     * 应用本节点的添加,变更已由调用方追加到变更流(例如在点赞脚本中与点赞状态一起写入),这里只修改本地
+     */
+    public void addAppended(long userId, long blogId) {
+        applyAdd(userId, blogId);
+    }
+
+    /**
+     * 应用本节点的删除,变更已由调用方追加到变更流,这里只修改本地(去重窗口内已经删除过的不再删除)
+     */
+    public void removeAppended(long userId, long blogId) {
+        applyRemove(userId, blogId, clock.getAsLong());
+    }
+
+    /**
+     * 只添加到本地,用于从数据库加载和查询回写,这些数据每个节点都能从数据库中得到
+     */
+    public void addLocal(long userId, long blogId) {
+        local.put(userId, blogId);
+    }
+
+    /**
+     * 本地过滤器判断一定不存在时才添加,只修改本地,用于可能已经添加过的记录(查询回写、加载时的回放重叠区、对账)
+     * 支持删除的过滤器每次添加都保存一份指纹,重复添加后一次删除删不干净
+     * @return 是否添加
+     */
+    public boolean addLocalIfAbsent(long userId, long blogId) {
+        if (local.mightContain(userId, blogId)) {
+            return false;
+        }
+        local.put(userId, blogId);
+        return true;
+    }
+
+    /**
+     * 记录变更流当前的位置,在从快照或数据库加载之前调用,加载完成后从这里开始跟随
+     */
+    public void markPosition() {
+        position = feed.latestId();
+    }
+
+    /**
+     * 读取并应用一批其他节点的变更,需要先调用 {@link #markPosition()}
+     * @return 读取到的批次,gap 为 true 时有变更丢失,需要从数据库补齐
+     */
+    public MembershipChangeBatch poll(int limit, Duration block) throws InterruptedException {
+        if (position == null) {
+            throw new IllegalStateException("尚未记录变更流位置");
+        }
+        MembershipChangeBatch batch = feed.read(position, limit, block);
+        long now = clock.getAsLong();
+        for (MembershipChange change : batch.changes()) {
+            if (nodeId.equals(change.nodeId())) {
+                continue;
+            }
+            if (change.added()) {
+                applyAdd(change.userId(), change.blogId());
+            } else {
+                applyRemove(change.userId(), change.blogId(), now);
+            }
+            applied.increment();
+            lagMillis = Math.max(0, now - change.createdAt());
+        }
+        if (batch.gap()) {
+            gaps.increment();
+        }
+        position = batch.lastId();
+        purgeRemoved(now);
+        return batch;
+    }
+
+    public MembershipFilter local() {
+        return local;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 应用的其他节点变更数量
+     */
+    public long applied() {
+        return applied.sum();
+    }
+
+    /**
+     * 发现变更丢失的次数
+     */
+    public long gaps() {
+        return gaps.sum();
+    }
+
+    /**
+     * 最近应用的变更从产生到应用的延迟(毫秒)
+     */
+    public long lagMillis() {
+        return lagMillis;
+    }
+
+    private boolean applyAdd(long userId, long blogId) {
+        // 重新添加后,之后的删除需要再次执行; 窗口内没有删除记录时不创建 Key
+        if (!recentlyRemoved.isEmpty()) {
+            recentlyRemoved.remove(new Key(userId, blogId));
+        }
+        return local.put(userId, blogId);
+    }
+
+    private boolean applyRemove(long userId, long blogId, long now) {
+        boolean[] first = new boolean[1];
+        recentlyRemoved.compute(new Key(userId, blogId), (k, removedAt) -> {
+            if (removedAt == null || now - removedAt >= removeDedupMillis) {
+                first[0] = true;
+                return now;
+            }
+            return removedAt;
+        });
+        if (first[0]) {
+            local.remove(userId, blogId);
+        }
+        return first[0];
+    }
+
+    /**
+     * 清理超过去重窗口的删除记录,每个窗口最多清理一次
+     */
+    private void purgeRemoved(long now) {
+        if (now - lastPurge < removeDedupMillis) {
+            return;
+        }
+        lastPurge = now;
+        recentlyRemoved.values().removeIf(removedAt -> now - removedAt >= removeDedupMillis);
+    }
+
+    private record Key(long userId, long blogId) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 多维度热点key检测器,每个维度持有一个独立的 TopK
+ */
+public class MultiDimensionHotKeyDetector {
+
+    private final Map<HotKeyDimension, TopK> detectors;
+
+    public MultiDimensionHotKeyDetector(Map<HotKeyDimension, TopK> detectors) {
+        this.detectors = new EnumMap<>(detectors);
+        for (HotKeyDimension dimension : HotKeyDimension.values()) {
+            if (!this.detectors.containsKey(dimension)) {
+                throw new IllegalArgumentException("缺少热点key检测维度: " + dimension);
+            }
+        }
+    }
+
+    public TopK get(HotKeyDimension dimension) {
+        return detectors.get(dimension);
+    }
+
+    public boolean add(HotKeyDimension dimension, long key, int increment) {
+        return detectors.get(dimension).add(key, increment);
+    }
+
+    /**
+     * 组合维度的 long key: 高 32 位为用户ID, 低 32 位为博客ID
+     * @return 任一ID超过 int 范围时返回 -1, 此时使用 {@link #pairKeyHash(long, long)}
+     */
+    public static long packPairKey(long userId, long blogId) {
+        if (userId <= 0 || userId > Integer.MAX_VALUE || blogId <= 0 || blogId > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (userId << 32) | blogId;
+    }
+
+    /**
+     * ID 超过 int 范围时组合维度的 long key: 两个ID的哈希,最高位置 1
+     * 压缩的 key 一定是正数,哈希得到的 key 一定是负数,两者在同一个 TopK 中不会混淆; 负数 key 无法还原出ID
+     */
+    public static long pairKeyHash(long userId, long blogId) {
+        return LongPairHash.hash(userId, blogId) | Long.MIN_VALUE;
+    }
+
+    public void fading() {
+        detectors.values().forEach(TopK::fading);
+    }
+}
@@ -0,0 +1,263 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可扩容的布隆过滤器(Scalable Bloom Filter)
+ * 由一串容量逐级翻倍、误判率逐级收紧的子过滤器组成,当前子过滤器插满后追加一个新的
+ * 第 i 个子过滤器的误判率为 fpp * (1 - r) * r^i,所有子过滤器的误判率之和不超过 fpp,数据量增长后整体误判率仍然不超过配置值
+ * 查询需要依次检查所有子过滤器,子过滤器数量随数据量对数增长
+ * 子过滤器的位数组和哈希方式与 Guava BloomFilter 相同(最优位数/哈希函数个数, 64 位 Kirsch-Mitzenmacher),
+ * 但直接用一次 {@link LongPairHash} 的结果推导所有位置,每个元素只哈希一次,所有子过滤器共用
+ */
+public class ScalableBloomFilter implements MembershipFilter {
+
+    // 序列化内容的类型标记,哈希方式改变后位数组不再兼容,标记随之改变(1: 字符串 key 的 Guava BloomFilter, 2: long 对)
+    private static final int TYPE = 0x53424632;
+
+    // 每个子过滤器的容量是上一个的 2 倍
+    private static final int GROWTH = 2;
+
+    // 每个子过滤器的误判率是上一个的一半
+    private static final double TIGHTENING = 0.5;
+
+    private final long initialCapacity;
+    private final double fpp;
+
+    // 写时复制,查询时不加锁
+    private volatile Stage[] stages;
+
+    /**
+     * @param initialCapacity 第一个子过滤器的容量
+     * @param fpp             整体误判率上限
+     */
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        if (initialCapacity <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("initialCapacity 必须大于 0, fpp 必须在 (0, 1) 之间");
+        }
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.stages = new Stage[]{stage(0)};
+    }
+
+    @Override
+    public boolean mightContain(long userId, long blogId) {
+        long hash = LongPairHash.hash(userId, blogId);
+        return mightContain(stages, hash, LongPairHash.mix64(hash));
+    }
+
+    /**
+     * 添加元素,已经(可能)存在的元素不会重复占用容量
+     * @return 是否新增
+     */
+    @Override
+    public boolean put(long userId, long blogId) {
+        long hash1 = LongPairHash.hash(userId, blogId);
+        long hash2 = LongPairHash.mix64(hash1);
+        Stage[] current = stages;
+        if (mightContain(current, hash1, hash2)) {
+            return false;
+        }
+        Stage last = current[current.length - 1];
+        if (!last.put(hash1, hash2)) {
+            return false;
+        }
+        if (last.count.incrementAndGet() >= last.capacity) {
+            grow(last);
+        }
+        return true;
+    }
+
+    /**
+     * 添加的元素数量(不含判断为已存在的元素)
+     */
+    @Override
+    public long approximateElementCount() {
+        long count = 0;
+        for (Stage stage : stages) {
+            count += stage.count.get();
+        }
+        return count;
+    }
+
+    /**
+     * 根据各子过滤器当前填充程度估算的整体误判率
+     */
+    @Override
+    public double expectedFpp() {
+        double miss = 1;
+        for (Stage stage : stages) {
+            miss *= 1 - stage.expectedFpp();
+        }
+        return 1 - miss;
+    }
+
+    @Override
+    public int stageCount() {
+        return stages.length;
+    }
+
+    /**
+     * 序列化: 类型标记 + 初始容量 + 误判率 + 子过滤器数量 + 每个子过滤器的元素数量、位数组长度和位数组
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        Stage[] current = stages;
+        data.writeInt(TYPE);
+        data.writeLong(initialCapacity);
+        data.writeDouble(fpp);
+        data.writeInt(current.length);
+        for (Stage stage : current) {
+            data.writeLong(stage.count.get());
+            data.writeInt(stage.words.length());
+            for (int i = 0; i < stage.words.length(); i++) {
+                data.writeLong(stage.words.get(i));
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * 用序列化的内容替换当前内容
+     * @throws IllegalArgumentException 序列化时的初始容量或误判率与当前不一致
+     */
+    @Override
+    public synchronized void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != TYPE) {
+            throw new IllegalArgumentException("不是 ScalableBloomFilter 的序列化内容");
+        }
+        long savedCapacity = data.readLong();
+        double savedFpp = data.readDouble();
+        if (savedCapacity != initialCapacity || savedFpp != fpp) {
+            throw new IllegalArgumentException("快照参数(" + savedCapacity + ", " + savedFpp
+                    + ")与当前配置(" + initialCapacity + ", " + fpp + ")不一致");
+        }
+        int length = data.readInt();
+        if (length <= 0 || length > 64) {
+            throw new IllegalArgumentException("子过滤器数量不合法: " + length);
+        }
+        Stage[] loaded = new Stage[length];
+        for (int i = 0; i < length; i++) {
+            long count = data.readLong();
+            // 初始容量和误判率一致时,各子过滤器的参数也一致
+            Stage stage = stage(i);
+            int words = data.readInt();
+            if (words != stage.words.length()) {
+                throw new IllegalArgumentException("第 " + i + " 个子过滤器的位数组长度不合法: " + words);
+            }
+            for (int j = 0; j < words; j++) {
+                long word = data.readLong();
+                stage.words.set(j, word);
+                stage.bitCount.add(Long.bitCount(word));
+            }
+            stage.count.set(count);
+            loaded[i] = stage;
+        }
+        this.stages = loaded;
+    }
+
+    private static boolean mightContain(Stage[] current, long hash1, long hash2) {
+        // 新数据在最后的子过滤器中,从后往前查
+        for (int i = current.length - 1; i >= 0; i--) {
+            if (current[i].mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前子过滤器插满后追加新的子过滤器,多个线程同时发现插满时只追加一次
+     */
+    private synchronized void grow(Stage full) {
+        Stage[] current = stages;
+        if (current[current.length - 1] != full) {
+            return;
+        }
+        Stage[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = stage(current.length);
+        stages = next;
+    }
+
+    private Stage stage(int index) {
+        long capacity = initialCapacity * (long) Math.pow(GROWTH, index);
+        double stageFpp = fpp * (1 - TIGHTENING) * Math.pow(TIGHTENING, index);
+        return new Stage(capacity, stageFpp);
+    }
+
+    private static final class Stage {
+        private final long capacity;
+        private final long bits;
+        private final int hashes;
+        // 无锁位数组,置位使用 CAS
+        private final AtomicLongArray words;
+        private final LongAdder bitCount = new LongAdder();
+        private final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double fpp) {
+            // 与 Guava BloomFilter 相同的最优位数和哈希函数个数
+            long optimalBits = (long) (-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            long wordCount = (Math.max(Long.SIZE, optimalBits) + Long.SIZE - 1) / Long.SIZE;
+            if (wordCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("子过滤器过大: " + capacity);
+            }
+            this.capacity = capacity;
+            this.words = new AtomicLongArray((int) wordCount);
+            this.bits = wordCount * Long.SIZE;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            long combined = hash1;
+            for (int i = 0; i < hashes; i++) {
+                long index = (combined & Long.MAX_VALUE) % bits;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += hash2;
+            }
+            return true;
+        }
+
+        /**
+         * @return 是否有位由 0 变为 1
+         */
+        boolean put(long hash1, long hash2) {
+            boolean changed = false;
+            long combined = hash1;
+            for (int i = 0; i < hashes; i++) {
+                changed |= set((combined & Long.MAX_VALUE) % bits);
+                combined += hash2;
+            }
+            return changed;
+        }
+
+        double expectedFpp() {
+            return Math.pow((double) bitCount.sum() / bits, hashes);
+        }
+
+        private boolean set(long index) {
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long old;
+            do {
+                old = words.get(word);
+                if ((old & mask) != 0) {
+                    return false;
+                }
+            } while (!words.compareAndSet(word, old, old | mask));
+            bitCount.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.yxc.thumbbackend.manager.cache;
+
+/**
+ * 一条点赞状态变更,其他节点据此清理本地缓存
+ */
+public record ThumbInvalidation(long userId, long blogId, boolean thumbed) {}
@@ -0,0 +1,22 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存失效消息总线
+ * 每个节点把一个时间窗口内的点赞状态变更合并成一个批次广播出去,所有节点收到后清理自己的本地缓存
+ */
+public interface ThumbInvalidationBus {
+
+    /**
+     * 广播一个批次,发送节点自己也会收到
+     * @param batch 合并后的点赞状态变更
+     */
+    void publish(InvalidationBatch batch);
+
+    /**
+     * 订阅所有节点广播的批次
+     * @param listener 收到批次后的处理逻辑
+     */
+    void subscribe(Consumer<InvalidationBatch> listener);
+}
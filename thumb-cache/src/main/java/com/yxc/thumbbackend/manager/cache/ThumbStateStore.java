@@ -0,0 +1,314 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 本地点赞状态缓存: key 为压缩成一个 long 的(用户ID, 博客ID),value 为三态(已点赞/未点赞/未知)
+ * 分段的开放寻址表,每个槽位 14 字节(key 8 + 状态 1 + 写入时间 4 + 访问位 1),没有装箱对象和链表节点
+ * 槽位数按负载因子 0.75 计算后向上取 2 的幂,满载时每个条目实际占用约 19~37 字节,平均约 29 字节(见 {@link #memoryBytes()})
+ * 容量满时按 CLOCK 算法淘汰: 访问过的条目获得一次豁免,过期条目优先淘汰
+ * 用户ID或博客ID超过 int 范围时无法压缩,这类组合不缓存,get 返回 {@link #UNKNOWN}
+ */
+public class ThumbStateStore {
+    public static final byte UNKNOWN = 0;
+    public static final byte NOT_THUMBED = 1;
+    public static final byte THUMBED = 2;
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int expireSeconds;
+    private final LongSupplier nanoTime;
+    private final long baseNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries    最多缓存的组合数量
+     * @param expireSeconds 写入后的过期时间(秒)
+     */
+    public ThumbStateStore(int maxEntries, int expireSeconds) {
+        this(maxEntries, expireSeconds, System::nanoTime);
+    }
+
+    ThumbStateStore(int maxEntries, int expireSeconds, LongSupplier nanoTime) {
+        if (maxEntries <= 0 || expireSeconds <= 0) {
+            throw new IllegalArgumentException("maxEntries 和 expireSeconds 必须大于 0");
+        }
+        // 每段至少 16 个条目,段数为 2 的幂
+        int segmentCount = Integer.highestOneBit(Math.max(2, Math.min(MAX_SEGMENTS, maxEntries / 16)));
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        int segmentCapacity = (maxEntries + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.expireSeconds = expireSeconds;
+        this.nanoTime = nanoTime;
+        this.baseNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * @return {@link #THUMBED} / {@link #NOT_THUMBED} / {@link #UNKNOWN}(未缓存或已过期)
+     */
+    public byte get(long userId, long blogId) {
+        long key = MultiDimensionHotKeyDetector.packPairKey(userId, blogId);
+        if (key <= 0) {
+            misses.increment();
+            return UNKNOWN;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+
+        // 乐观读,读到不一致的数据时退化为读锁
+        long stamp = segment.lock.tryOptimisticRead();
+        int slot = segment.find(key, hash);
+        byte state = slot >= 0 ? segment.states[slot] : UNKNOWN;
+        int writeTime = slot >= 0 ? segment.writeTimes[slot] : 0;
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                slot = segment.find(key, hash);
+                state = slot >= 0 ? segment.states[slot] : UNKNOWN;
+                writeTime = slot >= 0 ? segment.writeTimes[slot] : 0;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        if (slot < 0 || isExpired(writeTime, now())) {
+            misses.increment();
+            return UNKNOWN;
+        }
+        // 访问位只影响淘汰顺序,不加锁写入
+        segment.refs[slot] = 1;
+        hits.increment();
+        return state;
+    }
+
+    public void put(long userId, long blogId, boolean thumbed) {
+        write(userId, blogId, thumbed, false);
+    }
+
+    /**
+     * 只修改已缓存(且未过期)的组合,不新增
+     */
+    public void putIfPresent(long userId, long blogId, boolean thumbed) {
+        write(userId, blogId, thumbed, true);
+    }
+
+    public void remove(long userId, long blogId) {
+        long key = MultiDimensionHotKeyDetector.packPairKey(userId, blogId);
+        if (key <= 0) {
+            return;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = segment.find(key, hash);
+            if (slot >= 0) {
+                segment.removeAt(slot);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 表占用的内存(字节)
+     */
+    public long memoryBytes() {
+        long slots = 0;
+        for (Segment segment : segments) {
+            slots += segment.keys.length;
+        }
+        return slots * (Long.BYTES + Byte.BYTES + Integer.BYTES + Byte.BYTES);
+    }
+
+    public static long blogIdOf(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+
+    public static long userIdOf(long key) {
+        return key >>> 32;
+    }
+
+    private void write(long userId, long blogId, boolean thumbed, boolean onlyIfPresent) {
+        long key = MultiDimensionHotKeyDetector.packPairKey(userId, blogId);
+        if (key <= 0) {
+            return;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        byte state = thumbed ? THUMBED : NOT_THUMBED;
+        int now = now();
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = segment.find(key, hash);
+            if (slot >= 0) {
+                if (onlyIfPresent && isExpired(segment.writeTimes[slot], now)) {
+                    return;
+                }
+                segment.states[slot] = state;
+                segment.writeTimes[slot] = now;
+                return;
+            }
+            if (onlyIfPresent) {
+                return;
+            }
+            if (segment.size >= segment.capacity) {
+                evictOne(segment, now);
+            }
+            segment.insert(key, hash, state, now);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * CLOCK 淘汰: 指针扫过有访问位的条目时清除访问位,遇到没有访问位或已过期的条目时淘汰
+     */
+    private void evictOne(Segment segment, int now) {
+        long[] keys = segment.keys;
+        int mask = keys.length - 1;
+        while (true) {
+            int i = segment.hand;
+            segment.hand = (i + 1) & mask;
+            if (keys[i] == 0) {
+                continue;
+            }
+            if (segment.refs[i] != 0 && !isExpired(segment.writeTimes[i], now)) {
+                segment.refs[i] = 0;
+                continue;
+            }
+            segment.removeAt(i);
+            evictions.increment();
+            return;
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    private int now() {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(nanoTime.getAsLong() - baseNanos);
+    }
+
+    private boolean isExpired(int writeTime, int now) {
+        return now - writeTime >= expireSeconds;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final int capacity;
+        // 0 表示空槽位, 压缩后的 key 一定大于 0
+        private final long[] keys;
+        private final byte[] states;
+        private final int[] writeTimes;
+        private final byte[] refs;
+        private final int mask;
+        private int size;
+        private int hand;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit((int) Math.ceil(capacity / LOAD_FACTOR) * 2 - 1);
+            this.keys = new long[tableSize];
+            this.states = new byte[tableSize];
+            this.writeTimes = new int[tableSize];
+            this.refs = new byte[tableSize];
+            this.mask = tableSize - 1;
+        }
+
+        int find(long key, long hash) {
+            int i = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long current = keys[i];
+                if (current == 0) {
+                    return -1;
+                }
+                if (current == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, long hash, byte state, int now) {
+            int i = (int) hash & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            states[i] = state;
+            writeTimes[i] = now;
+            refs[i] = 0;
+            size++;
+        }
+
+        /**
+         * 删除槽位上的条目,并把后续探测链上的条目前移,保证查找不会在空槽位提前结束
+         */
+        void removeAt(int slot) {
+            int hole = slot;
+            int j = slot;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == 0) {
+                    break;
+                }
+                int home = (int) mix(keys[j]) & mask;
+                // home 不在 (hole, j] 区间内时, j 可以移动到 hole
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    keys[hole] = keys[j];
+                    states[hole] = states[j];
+                    writeTimes[hole] = writeTimes[j];
+                    refs[hole] = refs[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+            refs[hole] = 0;
+            size--;
+        }
+    }
+}
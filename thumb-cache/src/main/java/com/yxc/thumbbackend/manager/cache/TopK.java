@@ -0,0 +1,22 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;  
+
+public interface TopK {  
+    AddResult add(String key, int increment);  
+    /**
+     * long key(博客ID/用户ID)的 add, 不转换字符串, 也不分配结果对象
+     * 同一个 TopK 的 key 应统一使用 String 或 long 其中一种
+     * @return 当前 key 是否在 TopK 中
+     */
+    boolean add(long key, int increment);
+    List<Item> list();  
+    BlockingQueue<Item> expelled();  
+    void fading();  
+    long total();  
+    /**
+     * 新 key 进入 TopK 的累计次数
+     */
+    long promotions();
+}
@@ -0,0 +1,135 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuckooFilterTest {
+
+    private static final long BLOG = 42;
+
+    @Test
+    void putRemoveAndGrow() {
+        CuckooFilter filter = new CuckooFilter(1000);
+        for (long i = 0; i < 20000; i++) {
+            assertTrue(filter.put(i, BLOG));
+        }
+        assertTrue(filter.stageCount() > 1);
+        assertEquals(20000, filter.approximateElementCount());
+        for (long i = 0; i < 20000; i++) {
+            assertTrue(filter.mightContain(i, BLOG));
+        }
+
+        // 删除偶数后,奇数仍然存在,偶数基本不存在
+        for (long i = 0; i < 20000; i += 2) {
+            assertTrue(filter.remove(i, BLOG));
+        }
+        int falsePositives = 0;
+        for (long i = 0; i < 20000; i++) {
+            if (i % 2 == 1) {
+                assertTrue(filter.mightContain(i, BLOG));
+            } else if (filter.mightContain(i, BLOG)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 10, "false positives: " + falsePositives);
+        assertTrue(filter.expectedFpp() < 0.001);
+    }
+
+    @Test
+    void removingOneOfTwoElementsWithSameFingerprintKeepsTheOther() {
+        long[] users = sameFingerprintAndBucket();
+        CuckooFilter filter = new CuckooFilter(4, 0.01);
+        assertTrue(filter.put(users[0], BLOG));
+        // 指纹相同,添加前就判断为可能存在,但仍然保存一份自己的指纹
+        assertTrue(filter.mightContain(users[1], BLOG));
+        assertTrue(filter.put(users[1], BLOG));
+        assertEquals(2, filter.approximateElementCount());
+
+        assertTrue(filter.remove(users[0], BLOG));
+        assertTrue(filter.mightContain(users[1], BLOG));
+        assertTrue(filter.remove(users[1], BLOG));
+        assertFalse(filter.mightContain(users[1], BLOG));
+        assertFalse(filter.remove(users[0], BLOG));
+    }
+
+    @Test
+    void repeatedPutNeedsRepeatedRemove() {
+        CuckooFilter filter = new CuckooFilter(100);
+        filter.put(1, BLOG);
+        filter.put(1, BLOG);
+        assertTrue(filter.remove(1, BLOG));
+        assertTrue(filter.mightContain(1, BLOG));
+        assertTrue(filter.remove(1, BLOG));
+        assertFalse(filter.mightContain(1, BLOG));
+    }
+
+    @Test
+    void growsAndKeepsFppBelowTarget() {
+        // 0.01% 时第一个表就需要 32 位指纹
+        for (double fpp : new double[]{0.01, 0.0001}) {
+            CuckooFilter filter = new CuckooFilter(1000, fpp);
+            for (long i = 0; i < 50000; i++) {
+                filter.put(i, BLOG);
+            }
+            assertTrue(filter.stageCount() > 3);
+            assertTrue(filter.expectedFpp() <= fpp, "expected fpp: " + filter.expectedFpp());
+            int falsePositives = 0;
+            for (long i = 50000; i < 250000; i++) {
+                if (filter.mightContain(i, BLOG)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue(falsePositives <= 200000 * fpp * 2, "false positives: " + falsePositives);
+        }
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        CuckooFilter filter = new CuckooFilter(100);
+        for (long i = 0; i < 1000; i++) {
+            filter.put(i, BLOG);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.writeTo(out);
+
+        CuckooFilter restored = new CuckooFilter(100);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(filter.stageCount(), restored.stageCount());
+        assertEquals(filter.approximateElementCount(), restored.approximateElementCount());
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(restored.mightContain(i, BLOG));
+        }
+
+        CuckooFilter otherFpp = new CuckooFilter(100, 0.01);
+        assertThrows(IllegalArgumentException.class,
+                () -> otherFpp.readFrom(new ByteArrayInputStream(out.toByteArray())));
+
+        ScalableBloomFilter bloom = new ScalableBloomFilter(100, 0.01);
+        assertThrows(IllegalArgumentException.class,
+                () -> bloom.readFrom(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * 两个桶、16 位指纹的过滤器中指纹和第一个候选桶都相同的两个用户
+     */
+    private static long[] sameFingerprintAndBucket() {
+        Map<Long, Long> seen = new HashMap<>();
+        for (long userId = 1; ; userId++) {
+            long hash = LongPairHash.hash(userId, BLOG);
+            if ((hash & 0xFFFF) == 0) {
+                continue;
+            }
+            Long other = seen.putIfAbsent(hash & 0xFFFF | (hash >>> 32 & 1) << 16, userId);
+            if (other != null) {
+                return new long[]{other, userId};
+            }
+        }
+    }
+}
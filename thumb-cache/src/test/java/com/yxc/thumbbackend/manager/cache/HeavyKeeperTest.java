@@ -0,0 +1,125 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyKeeperTest {
+
+    @Test
+    void heavyHittersEnterTopK() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(3, 1000, 5, 0.92, 3);
+        for (int round = 0; round < 200; round++) {
+            heavyKeeper.add("hot-1", 1);
+            heavyKeeper.add("hot-2", 1);
+            if (round % 2 == 0) {
+                heavyKeeper.add("hot-3", 1);
+            }
+            heavyKeeper.add("cold-" + round, 1);
+        }
+
+        List<String> keys = heavyKeeper.list().stream().map(Item::key).toList();
+        assertEquals(List.of("hot-1", "hot-2", "hot-3"), keys);
+        assertTrue(heavyKeeper.list().get(0).count() >= 150);
+    }
+
+    @Test
+    void concurrentAddKeepsExactTotal() throws InterruptedException {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 3);
+        int threads = 8;
+        int perThread = 20000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.startVirtualThread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    heavyKeeper.add(String.valueOf(ThreadLocalRandom.current().nextInt(50)), 1);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * perThread, heavyKeeper.total());
+        assertEquals(10, heavyKeeper.list().size());
+    }
+
+    @Test
+    void weakestKeyIsExpelledWhenTopKIsFull() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(2, 1000, 5, 0.92, 1);
+        for (int i = 0; i < 10; i++) {
+            heavyKeeper.add("a", 1);
+        }
+        for (int i = 0; i < 5; i++) {
+            heavyKeeper.add("b", 1);
+        }
+        for (int i = 0; i < 6; i++) {
+            heavyKeeper.add("c", 1);
+        }
+
+        assertEquals(List.of("a", "c"), heavyKeeper.list().stream().map(Item::key).toList());
+        Item expelled = heavyKeeper.expelled().poll();
+        assertNotNull(expelled);
+        assertEquals("b", expelled.key());
+        assertNull(heavyKeeper.expelled().poll());
+        assertEquals(3, heavyKeeper.promotions());
+    }
+
+    @Test
+    void longKeysShareTheTopKWithoutStrings() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(4, 1000, 5, 0.92, 1);
+        // 大量冷 key 不断挤出堆顶, 验证索引在删除后仍然一致
+        for (long round = 1; round <= 2000; round++) {
+            heavyKeeper.add(7L, 2);
+            heavyKeeper.add(9L, 1);
+            heavyKeeper.add(1000 + round, 1);
+        }
+
+        assertTrue(heavyKeeper.add(7L, 1));
+        List<String> keys = heavyKeeper.list().stream().map(Item::key).toList();
+        assertEquals(4, keys.size());
+        assertEquals(4, keys.stream().distinct().count());
+        assertEquals(List.of("7", "9"), keys.subList(0, 2));
+        assertFalse(heavyKeeper.expelled().isEmpty());
+    }
+
+    @Test
+    void hashedPairKeysStayApartFromPackedKeys() {
+        long big = Integer.MAX_VALUE + 1L;
+        assertEquals(-1, MultiDimensionHotKeyDetector.packPairKey(big, 1));
+        long hashed = MultiDimensionHotKeyDetector.pairKeyHash(big, 1);
+        long packed = MultiDimensionHotKeyDetector.packPairKey(1, 1);
+        assertTrue(hashed < 0 && packed > 0);
+        assertEquals(hashed, MultiDimensionHotKeyDetector.pairKeyHash(big, 1));
+        assertNotEquals(hashed, MultiDimensionHotKeyDetector.pairKeyHash(1, big));
+
+        HeavyKeeper heavyKeeper = new HeavyKeeper(4, 1000, 5, 0.92, 1);
+        for (int i = 0; i < 10; i++) {
+            heavyKeeper.add(hashed, 1);
+            heavyKeeper.add(packed, 1);
+        }
+        List<String> keys = heavyKeeper.list().stream().map(Item::key).toList();
+        assertTrue(keys.contains(Long.toString(hashed)));
+        assertTrue(keys.contains(Long.toString(packed)));
+    }
+
+    @Test
+    void fadingHalvesCounts() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(1, 1000, 5, 0.92, 3);
+        for (int i = 0; i < 100; i++) {
+            heavyKeeper.add("blog", 1);
+        }
+
+        heavyKeeper.fading();
+
+        assertEquals(50, heavyKeeper.total());
+        assertEquals(50, heavyKeeper.list().get(0).count());
+        AddResult result = heavyKeeper.add("blog", 1);
+        assertTrue(result.isHotKey());
+        assertEquals(51, heavyKeeper.list().get(0).count());
+    }
+}
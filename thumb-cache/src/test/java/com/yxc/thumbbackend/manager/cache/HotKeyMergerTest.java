@@ -0,0 +1,43 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotKeyMergerTest {
+
+    @Test
+    void keyHotAcrossNodesWinsOverLocalSpike() {
+        HotKeySnapshotStore store = new InMemoryHotKeySnapshotStore();
+        // blog 1 在每个节点上都只是中等热度,blog 9 只在单个节点上突增
+        store.publish("node-1", List.of(new Item("9", 50), new Item("1", 20)), Duration.ofMinutes(1));
+        store.publish("node-2", List.of(new Item("1", 20), new Item("2", 5)), Duration.ofMinutes(1));
+        store.publish("node-3", List.of(new Item("1", 20), new Item("3", 5)), Duration.ofMinutes(1));
+
+        List<Item> merged = HotKeyMerger.merge(store.snapshots().values(), 2);
+
+        assertEquals(List.of(new Item("1", 60), new Item("9", 50)), merged);
+    }
+
+    @Test
+    void onlyOneNodeHoldsTheMergeLease() {
+        HotKeySnapshotStore store = new InMemoryHotKeySnapshotStore();
+
+        assertTrue(store.tryAcquireMergeLease("node-1", Duration.ofMinutes(1)));
+        assertFalse(store.tryAcquireMergeLease("node-2", Duration.ofMinutes(1)));
+        assertTrue(store.tryAcquireMergeLease("node-1", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void expiredSnapshotsAreIgnored() throws InterruptedException {
+        HotKeySnapshotStore store = new InMemoryHotKeySnapshotStore();
+        store.publish("node-1", List.of(new Item("1", 10)), Duration.ofMillis(1));
+        store.publish("node-2", List.of(new Item("2", 10)), Duration.ofMinutes(1));
+        Thread.sleep(5);
+
+        assertEquals(List.of("node-2"), List.copyOf(store.snapshots().keySet()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void addRemoveAndGrow() {
+        LongHashSet set = LongHashSet.of(List.of(1L, 2L, 3L), 3);
+        for (long i = 4; i <= 1000; i++) {
+            assertTrue(set.add(i));
+        }
+        assertFalse(set.add(500L));
+        assertEquals(1000, set.size());
+
+        assertTrue(set.remove(2L));
+        assertFalse(set.remove(2L));
+        assertFalse(set.contains(2L));
+        assertTrue(set.contains(1000L));
+        assertFalse(set.contains(1001L));
+
+        assertTrue(set.add(2L));
+        assertTrue(set.contains(2L));
+        assertEquals(1000, set.size());
+    }
+}
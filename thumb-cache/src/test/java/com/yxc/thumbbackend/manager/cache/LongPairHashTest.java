@@ -0,0 +1,29 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongPairHashTest {
+
+    @Test
+    void matchesMurmur3OfTwoLongs() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[][] pairs = {{0, 0}, {1, 2}, {2, 1}, {-1, Long.MAX_VALUE}, {Long.MIN_VALUE, 0}};
+        for (long[] pair : pairs) {
+            assertEquals(guava(pair[0], pair[1]), LongPairHash.hash(pair[0], pair[1]));
+        }
+        for (int i = 0; i < 10000; i++) {
+            long first = random.nextLong();
+            long second = random.nextLong();
+            assertEquals(guava(first, second), LongPairHash.hash(first, second));
+        }
+    }
+
+    private static long guava(long first, long second) {
+        return Hashing.murmur3_128().newHasher().putLong(first).putLong(second).hash().asLong();
+    }
+}
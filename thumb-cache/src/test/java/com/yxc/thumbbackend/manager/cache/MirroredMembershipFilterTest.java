@@ -0,0 +1,112 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MirroredMembershipFilterTest {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+
+    @Test
+    void nodesConvergeThroughFeed() throws InterruptedException {
+        InMemoryMembershipChangeFeed feed = new InMemoryMembershipChangeFeed(1000);
+        MirroredMembershipFilter nodeA = mirror("A", feed);
+        MirroredMembershipFilter nodeB = mirror("B", feed);
+
+        nodeA.add(1, 100);
+        nodeA.add(2, 100);
+        assertTrue(nodeA.mightContain(1, 100));
+        assertFalse(nodeB.mightContain(1, 100));
+
+        nodeB.poll(100, NO_WAIT);
+        assertTrue(nodeB.mightContain(1, 100));
+        assertTrue(nodeB.mightContain(2, 100));
+        assertEquals(2, nodeB.applied());
+
+        // 同一组合在去重窗口内只删除、广播一次
+        nodeB.remove(1, 100);
+        nodeB.remove(1, 100);
+        assertFalse(nodeB.mightContain(1, 100));
+        MembershipChangeBatch batch = nodeA.poll(100, NO_WAIT);
+        assertEquals(3, batch.changes().size());
+        assertFalse(nodeA.mightContain(1, 100));
+        assertTrue(nodeA.mightContain(2, 100));
+        assertEquals(1, nodeA.applied());
+    }
+
+    @Test
+    void appendedChangesOnlyTouchTheLocalFilter() throws InterruptedException {
+        InMemoryMembershipChangeFeed feed = new InMemoryMembershipChangeFeed(1000);
+        MirroredMembershipFilter nodeA = mirror("A", feed);
+        MirroredMembershipFilter nodeB = mirror("B", feed);
+
+        // 调用方自己把变更写入流,镜像只应用到本地,不再重复追加
+        nodeA.addAppended(1, 100);
+        feed.append(new MembershipChange("A", 1, 100, true, 0));
+        assertTrue(nodeA.mightContain(1, 100));
+        assertEquals(1, nodeB.poll(100, NO_WAIT).changes().size());
+        assertTrue(nodeB.mightContain(1, 100));
+
+        nodeA.removeAppended(1, 100);
+        feed.append(new MembershipChange("A", 1, 100, false, 0));
+        assertFalse(nodeA.mightContain(1, 100));
+        nodeB.poll(100, NO_WAIT);
+        assertFalse(nodeB.mightContain(1, 100));
+        // 本节点写入的变更跟随时跳过
+        nodeA.poll(100, NO_WAIT);
+        assertEquals(0, nodeA.applied());
+    }
+
+    @Test
+    void addLocalIfAbsentKeepsOneCopy() {
+        InMemoryMembershipChangeFeed feed = new InMemoryMembershipChangeFeed(1000);
+        MirroredMembershipFilter nodeA = mirror("A", feed);
+
+        nodeA.addLocal(1, 100);
+        assertFalse(nodeA.addLocalIfAbsent(1, 100));
+        assertTrue(nodeA.addLocalIfAbsent(2, 100));
+        assertEquals(2, nodeA.local().approximateElementCount());
+        assertEquals("0", feed.latestId());
+
+        // 只有一份指纹,一次删除即可删干净
+        nodeA.remove(1, 100);
+        assertFalse(nodeA.mightContain(1, 100));
+    }
+
+    @Test
+    void addOnlyAppendsWhenLocalFilterChanges() {
+        InMemoryMembershipChangeFeed feed = new InMemoryMembershipChangeFeed(1000);
+        MirroredMembershipFilter nodeA = new MirroredMembershipFilter(
+                new ScalableBloomFilter(1000, 0.01), feed, "A", Duration.ofMinutes(10));
+
+        nodeA.add(1, 100);
+        nodeA.add(1, 100);
+        assertEquals("1", feed.latestId());
+    }
+
+    @Test
+    void reportsGapWhenFeedIsTrimmed() throws InterruptedException {
+        InMemoryMembershipChangeFeed feed = new InMemoryMembershipChangeFeed(4);
+        MirroredMembershipFilter nodeA = mirror("A", feed);
+        MirroredMembershipFilter nodeB = mirror("B", feed);
+        for (long userId = 1; userId <= 10; userId++) {
+            nodeA.add(userId, 7);
+        }
+
+        MembershipChangeBatch batch = nodeB.poll(100, NO_WAIT);
+        assertTrue(batch.gap());
+        assertEquals(4, batch.changes().size());
+        assertEquals(1, nodeB.gaps());
+        assertFalse(nodeB.poll(100, NO_WAIT).gap());
+    }
+
+    private static MirroredMembershipFilter mirror(String nodeId, MembershipChangeFeed feed) {
+        MirroredMembershipFilter mirror = new MirroredMembershipFilter(
+                new CuckooFilter(1000), feed, nodeId, Duration.ofMinutes(10));
+        mirror.markPosition();
+        return mirror;
+    }
+}
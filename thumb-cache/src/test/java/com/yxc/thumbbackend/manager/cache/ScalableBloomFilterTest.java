@@ -0,0 +1,57 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    private static final long BLOG = 42;
+
+    @Test
+    void growsAndKeepsFppBelowTarget() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.001);
+        for (long i = 0; i < 20000; i++) {
+            filter.put(i, BLOG);
+        }
+
+        assertTrue(filter.stageCount() > 1);
+        for (long i = 0; i < 20000; i++) {
+            assertTrue(filter.mightContain(i, BLOG));
+        }
+        int falsePositives = 0;
+        for (long i = 1_000_000; i < 1_100_000; i++) {
+            if (filter.mightContain(i, BLOG)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives / 100_000.0 < 0.002, "false positives: " + falsePositives);
+        assertTrue(filter.expectedFpp() < 0.001);
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (long i = 0; i < 1000; i++) {
+            filter.put(i, BLOG);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.writeTo(out);
+
+        ScalableBloomFilter restored = new ScalableBloomFilter(100, 0.01);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(filter.stageCount(), restored.stageCount());
+        assertEquals(filter.approximateElementCount(), restored.approximateElementCount());
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(restored.mightContain(i, BLOG));
+        }
+
+        ScalableBloomFilter other = new ScalableBloomFilter(200, 0.01);
+        assertThrows(IllegalArgumentException.class,
+                () -> other.readFrom(new ByteArrayInputStream(out.toByteArray())));
+    }
+}
@@ -0,0 +1,61 @@
+package com.yxc.thumbbackend.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbStateStoreTest {
+
+    @Test
+    void keepsTriStatePerPair() {
+        ThumbStateStore store = new ThumbStateStore(1000, 60);
+        store.put(1, 100, true);
+        store.put(2, 100, false);
+        store.putIfPresent(3, 100, true);
+
+        assertEquals(ThumbStateStore.THUMBED, store.get(1, 100));
+        assertEquals(ThumbStateStore.NOT_THUMBED, store.get(2, 100));
+        assertEquals(ThumbStateStore.UNKNOWN, store.get(3, 100));
+        assertEquals(ThumbStateStore.UNKNOWN, store.get(1L << 40, 100));
+
+        store.putIfPresent(1, 100, false);
+        assertEquals(ThumbStateStore.NOT_THUMBED, store.get(1, 100));
+        store.remove(1, 100);
+        assertEquals(ThumbStateStore.UNKNOWN, store.get(1, 100));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void clockEvictionBoundsSize() {
+        ThumbStateStore store = new ThumbStateStore(1024, 60);
+        for (long userId = 1; userId <= 5000; userId++) {
+            store.put(userId, 8, true);
+            assertEquals(ThumbStateStore.THUMBED, store.get(userId, 8));
+        }
+
+        assertTrue(store.size() <= 1024);
+        assertEquals(5000 - store.size(), store.evictions());
+    }
+
+    @Test
+    void removeAndExpire() {
+        AtomicLong nanos = new AtomicLong();
+        ThumbStateStore store = new ThumbStateStore(10000, 60, nanos::get);
+        for (long userId = 1; userId <= 3000; userId++) {
+            store.put(userId, userId % 3 + 1, true);
+        }
+
+        for (long userId = 3; userId <= 3000; userId += 3) {
+            store.remove(userId, 1);
+        }
+        assertEquals(ThumbStateStore.UNKNOWN, store.get(3, 1));
+        assertEquals(ThumbStateStore.THUMBED, store.get(1, 2));
+        assertEquals(2000, store.size());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(ThumbStateStore.UNKNOWN, store.get(1, 2));
+    }
+}
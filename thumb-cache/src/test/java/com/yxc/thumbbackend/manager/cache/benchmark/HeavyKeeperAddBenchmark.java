@@ -0,0 +1,136 @@
+package com.yxc.thumbbackend.manager.cache.benchmark;
+
+import com.yxc.thumbbackend.manager.cache.AddResult;
+import com.yxc.thumbbackend.manager.cache.HeavyKeeper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeavyKeeper.add() 的吞吐量和延迟, 分别测试 String key 和 long key
+ * 维度: 线程数(1/4/16) x key分布(uniform/zipf) x k/width/depth
+ * 吞吐量看 thrpt 结果,延迟看 sample 模式下的 p50/p99/p99.99
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeavyKeeperAddBenchmark {
+
+    private static final int STREAM_LENGTH = 1 << 20;
+
+    @State(Scope.Benchmark)
+    public static class Sketch {
+        @Param({"uniform", "zipf"})
+        public String distribution;
+
+        @Param({"100", "1000"})
+        public int k;
+
+        @Param({"10000", "100000"})
+        public int width;
+
+        @Param({"3", "5"})
+        public int depth;
+
+        // key 的总数
+        @Param({"100000"})
+        public int universe;
+
+        // zipf 分布的倾斜度
+        @Param({"1.1"})
+        public double skew;
+
+        HeavyKeeper heavyKeeper;
+        HeavyKeeper longHeavyKeeper;
+        String[] keys;
+        long[] longKeys;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            heavyKeeper = new HeavyKeeper(k, width, depth, 0.92, 3);
+            keys = KeyStream.generate(distribution, universe, STREAM_LENGTH, skew, 42);
+            // 预热 TopK,测量稳定状态下的 add
+            for (String key : keys) {
+                heavyKeeper.add(key, 1);
+            }
+            longHeavyKeeper = new HeavyKeeper(k, width, depth, 0.92, 3);
+            longKeys = new long[STREAM_LENGTH];
+            for (int i = 0; i < STREAM_LENGTH; i++) {
+                longKeys[i] = Long.parseLong(keys[i]);
+                longHeavyKeeper.add(longKeys[i], 1);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            // 每个线程从不同的位置开始读取key序列
+            index = ThreadLocalRandom.current().nextInt(STREAM_LENGTH);
+        }
+
+        String next(String[] keys) {
+            index = (index + 1) & (STREAM_LENGTH - 1);
+            return keys[index];
+        }
+
+        long next(long[] keys) {
+            index = (index + 1) & (STREAM_LENGTH - 1);
+            return keys[index];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public AddResult add1Thread(Sketch sketch, Cursor cursor) {
+        return sketch.heavyKeeper.add(cursor.next(sketch.keys), 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AddResult add4Threads(Sketch sketch, Cursor cursor) {
+        return sketch.heavyKeeper.add(cursor.next(sketch.keys), 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public AddResult add16Threads(Sketch sketch, Cursor cursor) {
+        return sketch.heavyKeeper.add(cursor.next(sketch.keys), 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean addLong1Thread(Sketch sketch, Cursor cursor) {
+        return sketch.longHeavyKeeper.add(cursor.next(sketch.longKeys), 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean addLong4Threads(Sketch sketch, Cursor cursor) {
+        return sketch.longHeavyKeeper.add(cursor.next(sketch.longKeys), 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean addLong16Threads(Sketch sketch, Cursor cursor) {
+        return sketch.longHeavyKeeper.add(cursor.next(sketch.longKeys), 1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.yxc.thumbbackend.manager.cache.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 基准测试用的key序列生成器
+ * uniform: 所有key等概率出现; zipf: 第 i 热的key出现概率与 1/i^s 成正比,模拟热点博客
+ */
+final class KeyStream {
+
+    private KeyStream() {
+    }
+
+    static String[] generate(String distribution, int universe, int length, double skew, long seed) {
+        Random random = new Random(seed);
+        String[] keys = new String[length];
+        switch (distribution) {
+            case "uniform" -> {
+                for (int i = 0; i < length; i++) {
+                    keys[i] = String.valueOf(random.nextInt(universe) + 1);
+                }
+            }
+            case "zipf" -> {
+                double[] cdf = zipfCdf(universe, skew);
+                for (int i = 0; i < length; i++) {
+                    int rank = Arrays.binarySearch(cdf, random.nextDouble());
+                    if (rank < 0) {
+                        rank = -rank - 1;
+                    }
+                    keys[i] = String.valueOf(Math.min(rank, universe - 1) + 1);
+                }
+            }
+            default -> throw new IllegalArgumentException("未知的key分布: " + distribution);
+        }
+        return keys;
+    }
+
+    private static double[] zipfCdf(int universe, double skew) {
+        double[] cdf = new double[universe];
+        double sum = 0;
+        for (int i = 0; i < universe; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < universe; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
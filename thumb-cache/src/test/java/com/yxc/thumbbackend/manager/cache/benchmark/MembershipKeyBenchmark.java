@@ -0,0 +1,111 @@
+package com.yxc.thumbbackend.manager.cache.benchmark;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hashing;
+import com.yxc.thumbbackend.manager.cache.CuckooFilter;
+import com.yxc.thumbbackend.manager.cache.LongPairHash;
+import com.yxc.thumbbackend.manager.cache.ScalableBloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞记录过滤器的 key: "userId:blogId" 字符串 + stringFunnel 与直接哈希两个 long 的对比
+ * stringKey* 是改动前的做法(每次拼接字符串,再按平台字符集编码后哈希), pair* 是 {@link LongPairHash}
+ * 一半查询命中、一半不命中; 分配量加 -prof gc 看 gc.alloc.rate.norm(字节/次)
+ * 运行: mvn -pl thumb-cache -Pjmh test-compile exec:exec -Djmh.args="MembershipKeyBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MembershipKeyBenchmark {
+
+    private static final int QUERIES = 1 << 20;
+    private static final int INSERTIONS = 1_000_000;
+    private static final double FPP = 0.0001;
+
+    @State(Scope.Benchmark)
+    public static class Filters {
+        BloomFilter<CharSequence> stringBloom;
+        ScalableBloomFilter pairBloom;
+        CuckooFilter pairCuckoo;
+        long[] userIds;
+        long[] blogIds;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            stringBloom = BloomFilter.create(Funnels.stringFunnel(Charset.defaultCharset()), INSERTIONS, FPP);
+            pairBloom = new ScalableBloomFilter(INSERTIONS, FPP);
+            pairCuckoo = new CuckooFilter(INSERTIONS);
+            userIds = new long[QUERIES];
+            blogIds = new long[QUERIES];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < QUERIES; i++) {
+                userIds[i] = 1 + random.nextInt(10_000_000);
+                blogIds[i] = 1 + random.nextInt(1_000_000);
+                // 只添加偶数位置的组合
+                if ((i & 1) == 0 && i / 2 < INSERTIONS) {
+                    stringBloom.put(userIds[i] + ":" + blogIds[i]);
+                    pairBloom.put(userIds[i], blogIds[i]);
+                    pairCuckoo.put(userIds[i], blogIds[i]);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            index = (index + 1) & (QUERIES - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public long stringKeyHash(Filters filters, Cursor cursor) {
+        int i = cursor.next();
+        return Hashing.murmur3_128()
+                .hashString(filters.userIds[i] + ":" + filters.blogIds[i], Charset.defaultCharset()).asLong();
+    }
+
+    @Benchmark
+    public long pairHash(Filters filters, Cursor cursor) {
+        int i = cursor.next();
+        return LongPairHash.hash(filters.userIds[i], filters.blogIds[i]);
+    }
+
+    @Benchmark
+    public boolean stringKeyBloomMightContain(Filters filters, Cursor cursor) {
+        int i = cursor.next();
+        return filters.stringBloom.mightContain(filters.userIds[i] + ":" + filters.blogIds[i]);
+    }
+
+    @Benchmark
+    public boolean pairBloomMightContain(Filters filters, Cursor cursor) {
+        int i = cursor.next();
+        return filters.pairBloom.mightContain(filters.userIds[i], filters.blogIds[i]);
+    }
+
+    @Benchmark
+    public boolean pairCuckooMightContain(Filters filters, Cursor cursor) {
+        int i = cursor.next();
+        return filters.pairCuckoo.mightContain(filters.userIds[i], filters.blogIds[i]);
+    }
+}
@@ -0,0 +1,68 @@
+package com.yxc.thumbbackend.manager.cache.benchmark;
+
+import com.yxc.thumbbackend.manager.cache.HeavyKeeper;
+import com.yxc.thumbbackend.manager.cache.Item;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HeavyKeeper 的 TopK 准确率,与精确计数(HashMap)对比
+ * recall: 真实 TopK 中被检测出来的比例
+ * error: 检测出来的真实热点的计数平均相对误差
+ * 运行: mvn -pl thumb-cache -Pjmh test-compile exec:exec -Djmh.mainClass=com.yxc.thumbbackend.manager.cache.benchmark.TopKRecallReport
+ */
+public class TopKRecallReport {
+
+    private static final int UNIVERSE = 1_000_000;
+    private static final int STREAM_LENGTH = 2_000_000;
+
+    public static void main(String[] args) {
+        System.out.printf("%-8s %5s %6s %7s %6s %8s %8s%n", "dist", "skew", "k", "width", "depth", "recall", "error");
+        for (String distribution : List.of("uniform", "zipf")) {
+            for (double skew : distribution.equals("zipf") ? new double[]{0.8, 1.1} : new double[]{0}) {
+                String[] keys = KeyStream.generate(distribution, UNIVERSE, STREAM_LENGTH, skew, 42);
+                Map<String, Integer> exact = new HashMap<>();
+                for (String key : keys) {
+                    exact.merge(key, 1, Integer::sum);
+                }
+                for (int k : new int[]{100, 1000}) {
+                    for (int width : new int[]{10_000, 100_000}) {
+                        for (int depth : new int[]{3, 5}) {
+                            report(distribution, skew, k, width, depth, keys, exact);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void report(String distribution, double skew, int k, int width, int depth,
+                               String[] keys, Map<String, Integer> exact) {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(k, width, depth, 0.92, 3);
+        for (String key : keys) {
+            heavyKeeper.add(key, 1);
+        }
+
+        Set<String> truth = new HashSet<>();
+        exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(k)
+                .forEach(entry -> truth.add(entry.getKey()));
+
+        int hits = 0;
+        double error = 0;
+        for (Item item : heavyKeeper.list()) {
+            if (truth.contains(item.key())) {
+                hits++;
+                int count = exact.get(item.key());
+                error += Math.abs(item.count() - count) / (double) count;
+            }
+        }
+        System.out.printf("%-8s %5.1f %6d %7d %6d %8.3f %8.3f%n", distribution, skew, k, width, depth,
+                hits / (double) truth.size(), hits == 0 ? 0 : error / hits);
+    }
+}